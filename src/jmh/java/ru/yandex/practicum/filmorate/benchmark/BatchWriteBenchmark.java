@@ -0,0 +1,91 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.BatchResponse;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пакетная запись фильмов и лайков против поштучных вызовов сервиса.
+ * Время указано на весь пакет из batchSize элементов.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class BatchWriteBenchmark {
+
+    @Param({"1000"})
+    public int batchSize;
+
+    @Param({"1000"})
+    public int users;
+
+    private FilmService filmService;
+    private List<Film> films;
+    private List<Like> likes;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        BenchmarkData.muteLogging();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        filmService = BenchmarkData.filmService(new InMemoryFilmStorage(), userStorage);
+        for (int i = 0; i < users; i++) {
+            userStorage.createUser(BenchmarkData.user(i));
+        }
+        filmService.create(BenchmarkData.film(0));
+        films = BenchmarkData.films(batchSize);
+        Random random = new Random(42);
+        likes = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            likes.add(new Like(1, 1 + random.nextInt(users)));
+        }
+    }
+
+    @Benchmark
+    public BatchResponse createFilmsInBatch() {
+        return filmService.createAll(films);
+    }
+
+    @Benchmark
+    public int createFilmsOneByOne() {
+        for (Film film : films) {
+            filmService.create(film);
+        }
+        return films.size();
+    }
+
+    @Benchmark
+    public BatchResponse addLikesInBatch() {
+        return filmService.addLikes(likes);
+    }
+
+    @Benchmark
+    public int addLikesOneByOne() {
+        for (Like like : likes) {
+            filmService.addLike(like.getFilmId(), like.getUserId());
+        }
+        return likes.size();
+    }
+}
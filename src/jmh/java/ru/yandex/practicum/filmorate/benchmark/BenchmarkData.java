@@ -0,0 +1,138 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.support.NoOpCacheManager;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.replication.ReadReplicas;
+import ru.yandex.practicum.filmorate.service.FilmRecommendations;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.FilmServiceImpl;
+import ru.yandex.practicum.filmorate.service.FriendRecommendations;
+import ru.yandex.practicum.filmorate.service.LikeIngestion;
+import ru.yandex.practicum.filmorate.service.PopularFilmsSketch;
+import ru.yandex.practicum.filmorate.service.TrendingFilms;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.service.UserServiceImpl;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Общие данные для бенчмарков: генерация фильмов и пользователей и отключение логов.
+ */
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    // Сервисы пишут в лог каждый вызов, без этого замеряется вывод в консоль, а не хранилище
+    static void muteLogging() {
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+    }
+
+    // Логи форматируются как в приложении, но никуда не пишутся: замеряется форматирование без ввода-вывода
+    static void formatLogging(String level) {
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d{yyyy-MM-dd HH:mm:ss.SSS} %5level [%thread] %logger{39} : %msg%n");
+        encoder.start();
+        OutputStreamAppender<ILoggingEvent> appender = new OutputStreamAppender<>();
+        appender.setContext(context);
+        appender.setEncoder(encoder);
+        appender.setOutputStream(OutputStream.nullOutputStream());
+        appender.start();
+        Logger root = context.getLogger(Logger.ROOT_LOGGER_NAME);
+        root.detachAndStopAllAppenders();
+        root.addAppender(appender);
+        root.setLevel(Level.toLevel(level));
+    }
+
+    // Сервис фильмов, собранный как в приложении с настройками по умолчанию, но без фонового расчёта рекомендаций
+    static FilmService filmService(FilmStorage filmStorage, UserStorage userStorage) {
+        return filmService(filmStorage, userStorage, new LikeIngestion("sync", 1, 1, 10, new NoOpCacheManager()));
+    }
+
+    static FilmService filmService(FilmStorage filmStorage, UserStorage userStorage, LikeIngestion likeIngestion) {
+        return new FilmServiceImpl(filmStorage, userStorage, new TrendingFilms(),
+                new PopularFilmsSketch(filmStorage, "exact", 1), new FilmRecommendations(filmStorage, 20, 0, 0),
+                likeIngestion, new ReadReplicas(filmStorage, userStorage, 0, 1, 0, 1));
+    }
+
+    // Сервис пользователей без кэша рекомендаций: замеряется их вычисление
+    static UserService userService(UserStorage userStorage) {
+        return new UserServiceImpl(userStorage, friendRecommendations(userStorage),
+                new ReadReplicas(new InMemoryFilmStorage(), userStorage, 0, 1, 0, 1));
+    }
+
+    static FriendRecommendations friendRecommendations(UserStorage userStorage) {
+        return new FriendRecommendations(userStorage, new NoOpCacheManager());
+    }
+
+    static Film film(int number) {
+        return Film.builder()
+                .name("Film " + number)
+                .description("description " + number)
+                .duration(90L + number % 60)
+                .releaseDate(LocalDate.of(1950 + number % 70, 1 + number % 12, 1 + number % 28))
+                .likes(new HashSet<>())
+                .build();
+    }
+
+    static User user(int number) {
+        return User.builder()
+                .login("user" + number)
+                .name("User " + number)
+                .email("user" + number + "@mail.ru")
+                .birthday(LocalDate.of(1960 + number % 40, 1 + number % 12, 1 + number % 28))
+                .friends(new HashSet<>())
+                .build();
+    }
+
+    static List<Film> films(int count) {
+        List<Film> films = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            films.add(film(i));
+        }
+        return films;
+    }
+
+    static List<User> users(int count) {
+        List<User> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            users.add(user(i));
+        }
+        return users;
+    }
+
+    // Id фильмов от 1 до films с вероятностью, обратно пропорциональной рангу в степени exponent
+    static int[] zipfSamples(int films, double exponent, int size, Random random) {
+        double[] cumulative = new double[films];
+        double sum = 0;
+        for (int rank = 1; rank <= films; rank++) {
+            sum += 1 / Math.pow(rank, exponent);
+            cumulative[rank - 1] = sum;
+        }
+        int[] samples = new int[size];
+        for (int i = 0; i < size; i++) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            samples[i] = 1 + (index >= 0 ? index : -index - 1);
+        }
+        return samples;
+    }
+}
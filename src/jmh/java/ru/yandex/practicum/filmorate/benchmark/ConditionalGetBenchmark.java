@@ -0,0 +1,83 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import ru.yandex.practicum.filmorate.controller.ConditionalGet;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Ответ на повторный запрос списка фильмов: полный JSON, он же в gzip и 304 по совпавшему If-None-Match.
+ * Размер ответа без сжатия и со сжатием печатается при подготовке.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConditionalGetBenchmark {
+
+    @Param({"1000", "10000"})
+    public int films;
+
+    private InMemoryFilmStorage filmStorage;
+    private ObjectMapper mapper;
+    private ConditionalGet conditionalGet;
+    private String etag;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        BenchmarkData.muteLogging();
+        filmStorage = new InMemoryFilmStorage();
+        filmStorage.createFilms(BenchmarkData.films(films));
+        mapper = Jackson2ObjectMapperBuilder.json().build();
+        conditionalGet = new ConditionalGet();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        conditionalGet.notModified(new ServletWebRequest(new MockHttpServletRequest("GET", "/films"), response),
+                "films", filmStorage.getModifications());
+        etag = response.getHeader("ETag");
+        System.out.printf("%nфильмов %d: JSON %d байт, gzip %d байт%n", films, json().length, gzip().length);
+    }
+
+    @Benchmark
+    public byte[] json() throws IOException {
+        return mapper.writeValueAsBytes(filmStorage.getAllFilms());
+    }
+
+    @Benchmark
+    public byte[] gzip() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            mapper.writeValue(out, filmStorage.getAllFilms());
+        }
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public boolean notModified() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/films");
+        request.addHeader("If-None-Match", etag);
+        return conditionalGet.notModified(new ServletWebRequest(request, new MockHttpServletResponse()),
+                "films", filmStorage.getModifications());
+    }
+}
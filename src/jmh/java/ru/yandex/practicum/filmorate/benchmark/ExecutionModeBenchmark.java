@@ -0,0 +1,134 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Нагрузочный тест режимов filmorate.execution.mode: много клиентов одновременно ставят и снимают лайки
+ * и добавляют и удаляют друзей по HTTP. Хранилище в памяти с журналом изменений и sync-commit, поэтому
+ * каждый запрос ждёт записи журнала на диск. Режим SampleTime показывает процентили, в том числе p0.99.
+ * Число клиентов задаётся ключом -t, в режиме platform оно больше server.tomcat.threads.max (200).
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(1000)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ExecutionModeBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Server {
+
+        @Param({"platform", "virtual"})
+        public String mode;
+
+        @Param({"1000"})
+        public int films;
+
+        HttpClient client;
+        String baseUrl;
+        int filmCount;
+        private Path dir;
+        private ConfigurableApplicationContext context;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            dir = Files.createTempDirectory("filmorate-execution");
+            context = SpringApplication.run(FilmorateApplication.class,
+                    "--server.port=0",
+                    "--spring.main.banner-mode=off",
+                    "--logging.level.root=WARN",
+                    "--filmorate.execution.mode=" + mode,
+                    "--filmorate.persistence.enabled=true",
+                    "--filmorate.persistence.sync-commit=true",
+                    "--filmorate.persistence.dir=" + dir,
+                    "--filmorate.warmup.iterations=0");
+            // По пользователю и другу на клиента, до 5000 клиентов
+            context.getBean(UserService.class).createAll(BenchmarkData.users(10_000));
+            context.getBean(FilmService.class).createAll(BenchmarkData.films(films));
+            filmCount = films;
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            baseUrl = "http://localhost:" + port;
+            client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            context.close();
+            try (Stream<Path> files = Files.walk(dir)) {
+                for (Path path : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+
+        int userId;
+        int friendId;
+        int filmId;
+        boolean liked;
+        boolean befriended;
+
+        @Setup(Level.Trial)
+        public void setUp(Server server, ThreadParams threadParams) {
+            userId = 1 + threadParams.getThreadIndex() % 5_000;
+            friendId = userId + 5_000;
+            filmId = 1 + threadParams.getThreadIndex() % server.filmCount;
+        }
+    }
+
+    @Benchmark
+    public int likeOrUnlike(Server server, Client client) throws IOException, InterruptedException {
+        client.liked = !client.liked;
+        return send(server, client.liked ? "PUT" : "DELETE",
+                "/films/" + client.filmId + "/like/" + client.userId);
+    }
+
+    @Benchmark
+    public int befriendOrUnfriend(Server server, Client client) throws IOException, InterruptedException {
+        client.befriended = !client.befriended;
+        return send(server, client.befriended ? "PUT" : "DELETE",
+                "/users/" + client.userId + "/friends/" + client.friendId);
+    }
+
+    private static int send(Server server, String method, String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(server.baseUrl + path))
+                .method(method, HttpRequest.BodyPublishers.noBody())
+                .build();
+        return server.client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
@@ -0,0 +1,109 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.service.FilmRecommendations;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Рекомендации фильмов по схожести: полное построение, пересчёт после порции лайков и выдача пользователю.
+ * Лайки случайных пользователей распределены по фильмам по закону Ципфа.
+ */
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class FilmRecommendationsBenchmark {
+
+    private static final int CHUNK = 100_000;
+    private static final int REFRESH_LIKES = 1000;
+
+    @Param({"100000"})
+    public int films;
+
+    @Param({"1000000"})
+    public int users;
+
+    @Param({"5000000"})
+    public int likes;
+
+    private InMemoryFilmStorage filmStorage;
+    private FilmRecommendations recommendations;
+    private int[] samples;
+    private int nextUser;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkData.muteLogging();
+        filmStorage = new InMemoryFilmStorage();
+        filmStorage.createFilms(BenchmarkData.films(films));
+        samples = BenchmarkData.zipfSamples(films, 1.0, 1 << 20, new Random(42));
+        Random random = new Random(7);
+        List<Like> chunk = new ArrayList<>(CHUNK);
+        for (int i = 0; i < likes; i++) {
+            chunk.add(new Like(samples[random.nextInt(samples.length)], 1 + random.nextInt(users)));
+            if (chunk.size() == CHUNK) {
+                filmStorage.addLikes(chunk);
+                chunk = new ArrayList<>(CHUNK);
+            }
+        }
+        filmStorage.addLikes(chunk);
+        recommendations = new FilmRecommendations(filmStorage, 20, 0, 0);
+        recommendations.rebuild();
+        nextUser = users;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public void rebuild() {
+        recommendations.rebuild();
+    }
+
+    // Новые пользователи лайкают по REFRESH_LIKES фильмов, затем пересчитываются соседи изменившихся фильмов
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    public void likeAndRefresh() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < REFRESH_LIKES; i++) {
+            int userId = ++nextUser;
+            for (int j = 0; j < 3; j++) {
+                int filmId = samples[random.nextInt(samples.length)];
+                Film film = filmStorage.getFilmById(filmId);
+                filmStorage.addLike(film, userId);
+                recommendations.like(filmId, userId);
+            }
+        }
+        recommendations.refresh();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    public List<Integer> recommend() {
+        return recommendations.recommend(1 + ThreadLocalRandom.current().nextInt(users), 10);
+    }
+}
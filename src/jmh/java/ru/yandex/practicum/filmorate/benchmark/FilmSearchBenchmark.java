@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmQuery;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Поиск фильмов по индексам хранилища в памяти против полного обхода getAllFilms с фильтрацией,
+ * которым поиск делался раньше. Слово "film" есть у всех фильмов, номер фильма - у одного.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class FilmSearchBenchmark {
+
+    private static final int LIMIT = 100;
+
+    @Param({"1000000"})
+    public int films;
+
+    private InMemoryFilmStorage filmStorage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkData.muteLogging();
+        filmStorage = new InMemoryFilmStorage();
+        filmStorage.createFilms(BenchmarkData.films(films));
+    }
+
+    // Фильмы одного месяца: около films / 840 подходящих
+    @Benchmark
+    public List<Film> dateRange() {
+        LocalDate from = randomMonth();
+        return filmStorage.searchFilms(FilmQuery.builder()
+                .from(from).to(from.plusMonths(1).minusDays(1)).limit(LIMIT).build());
+    }
+
+    @Benchmark
+    public List<Film> dateRangeAndDuration() {
+        LocalDate from = randomMonth();
+        return filmStorage.searchFilms(FilmQuery.builder()
+                .from(from).to(from.plusMonths(1).minusDays(1)).minDuration(140L).limit(LIMIT).build());
+    }
+
+    // Редкое слово вместе с частым: пересечение короткого списка с длинным
+    @Benchmark
+    public List<Film> words() {
+        return filmStorage.searchFilms(FilmQuery.builder()
+                .text("film " + ThreadLocalRandom.current().nextInt(films)).limit(LIMIT).build());
+    }
+
+    @Benchmark
+    public List<Film> dateRangeFullScan() {
+        LocalDate from = randomMonth();
+        LocalDate to = from.plusMonths(1).minusDays(1);
+        List<Film> result = new ArrayList<>();
+        for (Film film : filmStorage.getAllFilms()) {
+            if (!film.getReleaseDate().isBefore(from) && !film.getReleaseDate().isAfter(to)) {
+                result.add(film);
+                if (result.size() == LIMIT) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static LocalDate randomMonth() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return LocalDate.of(1950 + random.nextInt(70), 1 + random.nextInt(12), 1);
+    }
+}
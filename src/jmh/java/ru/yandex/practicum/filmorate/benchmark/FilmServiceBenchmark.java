@@ -0,0 +1,114 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Популярные фильмы и лайки на хранилищах в памяти.
+ * Размер каталога задаётся параметрами (-p films=...), число потоков - ключом -t.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilmServiceBenchmark {
+
+    // Пользователи, которые лайкают фильмы только в замерах, по одному на поток
+    private static final int BENCHMARK_USERS = 256;
+
+    @State(Scope.Benchmark)
+    public static class Catalogue {
+
+        @Param({"1000", "100000"})
+        public int films;
+
+        @Param({"1000"})
+        public int users;
+
+        @Param({"20"})
+        public int likesPerFilm;
+
+        FilmService filmService;
+        int firstBenchmarkUser;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            BenchmarkData.muteLogging();
+            InMemoryUserStorage userStorage = new InMemoryUserStorage();
+            filmService = BenchmarkData.filmService(new InMemoryFilmStorage(), userStorage);
+            List<Integer> userIds = new ArrayList<>();
+            for (int i = 0; i < users + BENCHMARK_USERS; i++) {
+                userIds.add(userStorage.createUser(BenchmarkData.user(i)).getId());
+            }
+            firstBenchmarkUser = userIds.get(users);
+
+            filmService.createAll(BenchmarkData.films(films));
+            Random random = new Random(42);
+            List<Like> likes = new ArrayList<>();
+            for (Film film : filmService.findAll()) {
+                int filmLikes = random.nextInt(2 * likesPerFilm + 1);
+                for (int i = 0; i < filmLikes; i++) {
+                    likes.add(new Like(film.getId(), userIds.get(random.nextInt(users))));
+                }
+            }
+            filmService.addLikes(likes);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Liker {
+
+        int userId;
+
+        @Setup(Level.Trial)
+        public void setUp(Catalogue catalogue, ThreadParams threadParams) {
+            userId = catalogue.firstBenchmarkUser + threadParams.getThreadIndex();
+        }
+    }
+
+    @Benchmark
+    public List<Film> getPopFilms(Catalogue catalogue) {
+        return catalogue.filmService.getPopFilms(10);
+    }
+
+    @Benchmark
+    public List<Film> getTrendingFilms(Catalogue catalogue) {
+        return catalogue.filmService.getTrendingFilms("day", 10);
+    }
+
+    @Benchmark
+    public Film findFilm(Catalogue catalogue) {
+        return catalogue.filmService.findFilm(1 + ThreadLocalRandom.current().nextInt(catalogue.films));
+    }
+
+    // Лайк и его снятие в паре, чтобы каталог не менялся от итерации к итерации
+    @Benchmark
+    public Film addAndDelLike(Catalogue catalogue, Liker liker) {
+        int filmId = 1 + ThreadLocalRandom.current().nextInt(catalogue.films);
+        catalogue.filmService.addLike(filmId, liker.userId);
+        return catalogue.filmService.delLike(filmId, liker.userId);
+    }
+}
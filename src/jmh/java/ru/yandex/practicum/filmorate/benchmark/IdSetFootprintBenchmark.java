@@ -0,0 +1,64 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.util.SortedIntSet;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Наборы лайков и друзей: HashSet против SortedIntSet.
+ * Запускать с -prof gc: gc.alloc.rate.norm, делённый на size, даёт байты на одну связь.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class IdSetFootprintBenchmark {
+
+    @Param({"50", "5000"})
+    public int size;
+
+    private int[] ids;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        ids = new int[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = 1 + random.nextInt(10 * size);
+        }
+    }
+
+    @Benchmark
+    public Set<Integer> hashSet() {
+        Set<Integer> set = new HashSet<>();
+        for (int id : ids) {
+            set.add(id);
+        }
+        return set;
+    }
+
+    @Benchmark
+    public Set<Integer> sortedIntSet() {
+        SortedIntSet set = new SortedIntSet();
+        for (int id : ids) {
+            set.add(id);
+        }
+        return set;
+    }
+}
@@ -0,0 +1,101 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cache.support.NoOpCacheManager;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.LikeIngestion;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Поток лайков и снятий лайков на популярные по закону Ципфа фильмы: синхронная запись против очереди
+ * со схлопыванием. Число потоков задаётся ключом -t, например -t 16 или -t 64 на машине с таким числом ядер.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class LikeIngestionBenchmark {
+
+    private static final int SAMPLES = 1 << 20;
+
+    @Param({"sync", "async"})
+    public String mode;
+
+    @Param({"10000"})
+    public int films;
+
+    @Param({"10000"})
+    public int users;
+
+    private int[] samples;
+    private final AtomicInteger next = new AtomicInteger();
+    private LikeIngestion likeIngestion;
+    private FilmService filmService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkData.muteLogging();
+        samples = BenchmarkData.zipfSamples(films, 1.0, SAMPLES, new Random(42));
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        filmStorage.createFilms(BenchmarkData.films(films));
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        userStorage.createUsers(BenchmarkData.users(users));
+        likeIngestion = new LikeIngestion(mode, 65536, 4096, 10, new NoOpCacheManager());
+        filmService = BenchmarkData.filmService(filmStorage, userStorage, likeIngestion);
+        likeIngestion.afterSingletonsInstantiated();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        likeIngestion.destroy();
+    }
+
+    // Каждый поток снимает свой предыдущий лайк, поэтому число лайков не растёт и снятия не заканчиваются ошибкой
+    @State(Scope.Thread)
+    public static class PendingLike {
+        int filmId;
+        int userId;
+    }
+
+    @Benchmark
+    public Film likeOrUnlike(PendingLike pending) {
+        if (pending.filmId != 0) {
+            Film film = delLike(pending.filmId, pending.userId);
+            pending.filmId = 0;
+            return film;
+        }
+        pending.filmId = samples[next.getAndIncrement() & (SAMPLES - 1)];
+        pending.userId = 1 + ThreadLocalRandom.current().nextInt(users);
+        return filmService.addLike(pending.filmId, pending.userId);
+    }
+
+    private Film delLike(int filmId, int userId) {
+        try {
+            return filmService.delLike(filmId, userId);
+        } catch (RuntimeException e) {
+            // Другой поток мог успеть снять тот же лайк
+            return null;
+        }
+    }
+}
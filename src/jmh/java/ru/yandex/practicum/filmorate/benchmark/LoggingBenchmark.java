@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Лайк популярному фильму с включённым логированием: сколько стоит форматирование логов на горячем пути.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoggingBenchmark {
+
+    @Param({"INFO", "DEBUG"})
+    public String logLevel;
+
+    @Param({"10000"})
+    public int popularFilmLikes;
+
+    private FilmService filmService;
+    private int filmId;
+    private int userId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkData.muteLogging();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        filmService = BenchmarkData.filmService(new InMemoryFilmStorage(), userStorage);
+        filmService.createAll(BenchmarkData.films(1));
+        filmId = filmService.findAll().get(0).getId();
+        List<Like> likes = new ArrayList<>(popularFilmLikes);
+        for (int i = 0; i <= popularFilmLikes; i++) {
+            int id = userStorage.createUser(BenchmarkData.user(i)).getId();
+            likes.add(new Like(filmId, id));
+        }
+        // Последний пользователь лайкает только в замере
+        userId = likes.remove(likes.size() - 1).getUserId();
+        filmService.addLikes(likes);
+        BenchmarkData.formatLogging(logLevel);
+    }
+
+    @Benchmark
+    public Film addAndDelLike() {
+        filmService.addLike(filmId, userId);
+        return filmService.delLike(filmId, userId);
+    }
+}
@@ -0,0 +1,133 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.util.SpaceSavingSketch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Точный индекс популярности хранилища против наброска Space-Saving: скорость лайка и чтения первых 10 фильмов.
+ * Лайки распределены по закону Ципфа. Точность наброска (доля верных фильмов среди первых 10 и 100 и наибольшее
+ * завышение оценки) считается при подготовке на том же потоке лайков и печатается в вывод бенчмарка.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class PopularitySketchBenchmark {
+
+    private static final int SAMPLES = 1 << 20;
+    private static final int ACCURACY_LIKES = 5_000_000;
+
+    @Param({"100000", "1000000"})
+    public int films;
+
+    @Param({"1000"})
+    public int capacity;
+
+    @Param({"1.0"})
+    public double zipfExponent;
+
+    private int[] samples;
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicInteger nextUser = new AtomicInteger();
+    private InMemoryFilmStorage filmStorage;
+    private Film[] filmsById;
+    private SpaceSavingSketch sketch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkData.muteLogging();
+        samples = BenchmarkData.zipfSamples(films, zipfExponent, SAMPLES, new Random(42));
+        filmStorage = new InMemoryFilmStorage();
+        filmsById = new Film[films + 1];
+        for (Film film : filmStorage.createFilms(BenchmarkData.films(films))) {
+            filmsById[film.getId()] = film;
+        }
+        sketch = new SpaceSavingSketch(capacity);
+        printAccuracy();
+    }
+
+    @Benchmark
+    public boolean exactLike() {
+        return filmStorage.addLike(filmsById[nextFilm()], nextUser.incrementAndGet());
+    }
+
+    @Benchmark
+    public void sketchLike() {
+        sketch.add(nextFilm());
+    }
+
+    @Benchmark
+    public List<Film> exactTop10() {
+        return filmStorage.getPopFilms(10);
+    }
+
+    @Benchmark
+    public List<Integer> sketchTop10() {
+        return sketch.top(10);
+    }
+
+    private int nextFilm() {
+        return samples[next.getAndIncrement() & (SAMPLES - 1)];
+    }
+
+    private void printAccuracy() {
+        int[] counts = new int[films + 1];
+        SpaceSavingSketch accuracySketch = new SpaceSavingSketch(capacity);
+        Random random = new Random(7);
+        for (int i = 0; i < ACCURACY_LIKES; i++) {
+            int filmId = samples[random.nextInt(SAMPLES)];
+            counts[filmId]++;
+            accuracySketch.add(filmId);
+        }
+        List<Integer> exact = exactTop(counts, 100);
+        long maxOverestimate = 0;
+        for (int filmId : accuracySketch.top(10)) {
+            maxOverestimate = Math.max(maxOverestimate, accuracySketch.estimate(filmId) - counts[filmId]);
+        }
+        System.out.printf("Фильмов: %d; Счётчиков: %d; Лайков: %d; Верных в первых 10: %d; в первых 100: %d; "
+                        + "Наибольшее завышение в первых 10: %d; Граница N/k: %d%n",
+                films, capacity, ACCURACY_LIKES,
+                overlap(exact.subList(0, 10), accuracySketch.top(10)),
+                overlap(exact, accuracySketch.top(100)),
+                maxOverestimate, ACCURACY_LIKES / capacity);
+    }
+
+    private static List<Integer> exactTop(int[] counts, int count) {
+        Integer[] ids = new Integer[counts.length - 1];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i + 1;
+        }
+        Arrays.sort(ids, (first, second) -> Integer.compare(counts[second], counts[first]));
+        return new ArrayList<>(Arrays.asList(ids).subList(0, count));
+    }
+
+    private static int overlap(List<Integer> expected, List<Integer> actual) {
+        Set<Integer> ids = new HashSet<>(expected);
+        ids.retainAll(actual);
+        return ids.size();
+    }
+}
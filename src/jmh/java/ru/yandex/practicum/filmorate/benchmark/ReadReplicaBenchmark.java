@@ -0,0 +1,97 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.replication.ReadReplicas;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Чтение фильмов и популярных фильмов через реплики в зависимости от их числа, пока один поток пишет лайки
+ * в основное хранилище. max-lag=0 отправляет чтение в основное хранилище, пока реплика не догнала ленту,
+ * большое значение разрешает читать с отстающей реплики. Число потоков чтения меняется ключом -tg 1,N.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ReadReplicaBenchmark {
+
+    private static final int SAMPLES = 1 << 20;
+
+    @Param({"0", "1", "2", "4"})
+    public int replicas;
+
+    @Param({"0", "1000000"})
+    public long maxLag;
+
+    @Param({"100000"})
+    public int films;
+
+    private int[] samples;
+    private final AtomicInteger next = new AtomicInteger();
+    private InMemoryFilmStorage filmStorage;
+    private ReadReplicas readReplicas;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkData.muteLogging();
+        samples = BenchmarkData.zipfSamples(films, 1.0, SAMPLES, new Random(42));
+        filmStorage = new InMemoryFilmStorage();
+        filmStorage.createFilms(BenchmarkData.films(films));
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        readReplicas = new ReadReplicas(filmStorage, userStorage, replicas, 65536, maxLag, 1);
+        readReplicas.afterSingletonsInstantiated();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        readReplicas.destroy();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public boolean writeLike() {
+        Film film = filmStorage.getFilmById(nextFilm());
+        return filmStorage.addLike(film, ThreadLocalRandom.current().nextInt(100_000));
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public Film readFilm() {
+        return readReplicas.films().getFilmById(nextFilm());
+    }
+
+    @Benchmark
+    public List<Film> readPopFilms() {
+        return readReplicas.films().getPopFilms(10);
+    }
+
+    private int nextFilm() {
+        return samples[next.getAndIncrement() & (SAMPLES - 1)];
+    }
+}
@@ -0,0 +1,108 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.persistence.StoragePersistence;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Время восстановления хранилищ при запуске: все лайки в снимке (source=snapshot)
+ * или все лайки в журнале изменений (source=wal). Снимок загружается на recoveryThreads потоках
+ * (0 - по числу ядер).
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class RecoveryBenchmark {
+
+    private static final int LIKES_BATCH = 100_000;
+
+    @Param({"10000000"})
+    public int likes;
+
+    @Param({"10000"})
+    public int films;
+
+    @Param({"100000"})
+    public int users;
+
+    @Param({"snapshot", "wal"})
+    public String source;
+
+    @Param({"0"})
+    public int recoveryThreads;
+
+    private Path dir;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        BenchmarkData.muteLogging();
+        dir = Files.createTempDirectory("filmorate-recovery");
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        StoragePersistence persistence = new StoragePersistence(filmStorage, userStorage, dir, false, 0, 1);
+        persistence.start();
+        userStorage.createUsers(BenchmarkData.users(users));
+        filmStorage.createFilms(BenchmarkData.films(films));
+        Random random = new Random(42);
+        List<Like> batch = new ArrayList<>(LIKES_BATCH);
+        for (int i = 0; i < likes; i++) {
+            batch.add(new Like(1 + random.nextInt(films), 1 + random.nextInt(users)));
+            if (batch.size() == LIKES_BATCH) {
+                filmStorage.addLikes(batch);
+                batch.clear();
+            }
+        }
+        filmStorage.addLikes(batch);
+        if ("snapshot".equals(source)) {
+            persistence.snapshot();
+        }
+        persistence.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path path : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public int recover() throws IOException {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        StoragePersistence persistence = new StoragePersistence(filmStorage, userStorage, dir, false, 0,
+                recoveryThreads);
+        persistence.start();
+        persistence.close();
+        return filmStorage.getFilmsCount();
+    }
+}
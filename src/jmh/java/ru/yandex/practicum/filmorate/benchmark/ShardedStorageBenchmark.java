@@ -0,0 +1,106 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.ShardedFilmStorage;
+import ru.yandex.practicum.filmorate.storage.ShardedUserStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Пропускная способность шардированного хранилища в зависимости от числа шардов: операции с одним фильмом
+ * (лайк, чтение), сбор популярных фильмов со всех шардов и общие друзья двух пользователей с разных шардов.
+ * Число потоков задаётся ключом -t; прирост от шардов виден, когда потоков и ядер не меньше числа шардов.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ShardedStorageBenchmark {
+
+    private static final int SAMPLES = 1 << 20;
+    private static final int FRIENDS = 50;
+
+    @Param({"1", "2", "4", "8"})
+    public int shards;
+
+    @Param({"100000"})
+    public int films;
+
+    @Param({"10000"})
+    public int users;
+
+    private int[] samples;
+    private final AtomicInteger next = new AtomicInteger();
+    private FilmService filmService;
+    private UserService userService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkData.muteLogging();
+        samples = BenchmarkData.zipfSamples(films, 1.0, SAMPLES, new Random(42));
+        ShardedFilmStorage filmStorage = new ShardedFilmStorage(shards, 128);
+        filmStorage.createFilms(BenchmarkData.films(films));
+        ShardedUserStorage userStorage = new ShardedUserStorage(shards, 128);
+        userStorage.createUsers(BenchmarkData.users(users));
+        Random random = new Random(7);
+        List<Friendship> friendships = new ArrayList<>();
+        for (int userId = 1; userId <= users; userId++) {
+            for (int i = 0; i < FRIENDS / 2; i++) {
+                int friendId = 1 + random.nextInt(users);
+                friendships.add(new Friendship(userId, friendId));
+                friendships.add(new Friendship(friendId, userId));
+            }
+        }
+        userStorage.addFriends(friendships);
+        filmService = BenchmarkData.filmService(filmStorage, userStorage);
+        userService = BenchmarkData.userService(userStorage);
+    }
+
+    @Benchmark
+    public Film addLike() {
+        return filmService.addLike(nextFilm(), 1 + ThreadLocalRandom.current().nextInt(users));
+    }
+
+    @Benchmark
+    public Film findFilm() {
+        return filmService.findFilm(nextFilm());
+    }
+
+    @Benchmark
+    public List<Film> getPopFilms() {
+        return filmService.getPopFilms(10);
+    }
+
+    @Benchmark
+    public List<User> getCommonFriends() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return userService.getCommonFriends(1 + random.nextInt(users), 1 + random.nextInt(users));
+    }
+
+    private int nextFilm() {
+        return samples[next.getAndIncrement() & (SAMPLES - 1)];
+    }
+}
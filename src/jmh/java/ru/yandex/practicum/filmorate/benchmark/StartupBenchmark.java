@@ -0,0 +1,113 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.persistence.StoragePersistence;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Время от запуска приложения до готовности к приёму запросов: восстановление из снимка на recoveryThreads
+ * потоках (0 - по числу ядер) и прогрев на warmupIterations итерациях. Каждый замер - отдельная JVM,
+ * иначе второй запуск контекста идёт на уже прогретом JIT.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(value = 5, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class StartupBenchmark {
+
+    private static final int LIKES_BATCH = 100_000;
+
+    @Param({"100000"})
+    public int films;
+
+    @Param({"100000"})
+    public int users;
+
+    @Param({"5000000"})
+    public int likes;
+
+    @Param({"1", "0"})
+    public int recoveryThreads;
+
+    @Param({"0", "10000"})
+    public int warmupIterations;
+
+    private Path dir;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        BenchmarkData.muteLogging();
+        dir = Files.createTempDirectory("filmorate-startup");
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        StoragePersistence persistence = new StoragePersistence(filmStorage, userStorage, dir, false, 0, 1);
+        persistence.start();
+        userStorage.createUsers(BenchmarkData.users(users));
+        filmStorage.createFilms(BenchmarkData.films(films));
+        Random random = new Random(42);
+        List<Like> batch = new ArrayList<>(LIKES_BATCH);
+        for (int i = 0; i < likes; i++) {
+            batch.add(new Like(1 + random.nextInt(films), 1 + random.nextInt(users)));
+            if (batch.size() == LIKES_BATCH) {
+                filmStorage.addLikes(batch);
+                batch.clear();
+            }
+        }
+        filmStorage.addLikes(batch);
+        persistence.snapshot();
+        persistence.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path path : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean timeToReady() {
+        try (ConfigurableApplicationContext context = SpringApplication.run(FilmorateApplication.class,
+                "--server.port=0",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN",
+                "--filmorate.persistence.enabled=true",
+                "--filmorate.persistence.dir=" + dir,
+                "--filmorate.persistence.snapshot-interval-seconds=0",
+                "--filmorate.persistence.recovery-threads=" + recoveryThreads,
+                "--filmorate.warmup.iterations=" + warmupIterations)) {
+            return context.isActive();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.service.FriendRecommendations;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Друзья, общие друзья, рекомендации друзей, создание и обновление пользователей на хранилище в памяти.
+ * У пользователя с id = 1 друзей hubFriends, у остальных в среднем friends - так проверяется перекос размеров.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserServiceBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Network {
+
+        @Param({"10000", "100000"})
+        public int users;
+
+        @Param({"50"})
+        public int friends;
+
+        @Param({"5000"})
+        public int hubFriends;
+
+        UserService userService;
+        FriendRecommendations friendRecommendations;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            BenchmarkData.muteLogging();
+            InMemoryUserStorage userStorage = new InMemoryUserStorage();
+            userService = BenchmarkData.userService(userStorage);
+            friendRecommendations = BenchmarkData.friendRecommendations(userStorage);
+            userService.createAll(BenchmarkData.users(users));
+            Random random = new Random(42);
+            List<Friendship> friendships = new ArrayList<>();
+            // Каждая пара добавляется в обе стороны, поэтому на пользователя нужна половина связей
+            for (int userId = 2; userId <= users; userId++) {
+                for (int i = 0; i < friends / 2; i++) {
+                    friendships.add(new Friendship(userId, 2 + random.nextInt(users - 1)));
+                }
+            }
+            for (int i = 0; i < hubFriends; i++) {
+                friendships.add(new Friendship(1, 2 + random.nextInt(users - 1)));
+            }
+            friendships.removeIf(friendship -> friendship.getUserId().equals(friendship.getFriendId()));
+            userService.addFriends(friendships);
+        }
+
+        int randomUser() {
+            return 2 + ThreadLocalRandom.current().nextInt(users - 1);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class EmptyStorage {
+
+        UserService userService;
+
+        // Новое хранилище на каждую итерацию, чтобы create не копил пользователей между замерами
+        @Setup(Level.Iteration)
+        public void setUp() {
+            BenchmarkData.muteLogging();
+            userService = BenchmarkData.userService(new InMemoryUserStorage());
+        }
+    }
+
+    @Benchmark
+    public List<User> getFriends(Network network) {
+        return network.userService.getFriends(network.randomUser());
+    }
+
+    @Benchmark
+    public List<User> getCommonFriends(Network network) {
+        return network.userService.getCommonFriends(network.randomUser(), network.randomUser());
+    }
+
+    @Benchmark
+    public List<User> getCommonFriendsWithHub(Network network) {
+        return network.userService.getCommonFriends(network.randomUser(), 1);
+    }
+
+    // Рекомендации без кэша: у обычного пользователя около friends * friends друзей друзей
+    @Benchmark
+    public int[] getRecommendations(Network network) {
+        return network.friendRecommendations.computeRecommendations(network.randomUser());
+    }
+
+    // У хаба около hubFriends * friends друзей друзей, подсчёт идёт параллельно по диапазонам id
+    @Benchmark
+    public int[] getRecommendationsForHub(Network network) {
+        return network.friendRecommendations.computeRecommendations(1);
+    }
+
+    @Benchmark
+    public User create(EmptyStorage storage) {
+        return storage.userService.create(BenchmarkData.user(ThreadLocalRandom.current().nextInt(1000)));
+    }
+
+    // Обновление с прежним набором друзей, чтобы граф не менялся
+    @Benchmark
+    public User update(Network network) {
+        User stored = network.userService.findUser(network.randomUser());
+        User user = BenchmarkData.user(stored.getId());
+        user.setId(stored.getId());
+        user.setFriends(stored.getFriends());
+        return network.userService.update(user);
+    }
+}
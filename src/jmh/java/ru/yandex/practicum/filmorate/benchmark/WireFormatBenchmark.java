@@ -0,0 +1,97 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Запись и чтение ответа со списком фильмов (с лайками) и списком пользователей в JSON, Smile и CBOR
+ * теми же настройками Jackson, что и у конвертеров приложения. Размер ответа в байтах печатается при подготовке.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WireFormatBenchmark {
+
+    @Param({"json", "smile", "cbor"})
+    public String format;
+
+    @Param({"100"})
+    public int size;
+
+    private ObjectMapper mapper;
+    private List<Film> films;
+    private List<User> users;
+    private byte[] filmsBytes;
+    private byte[] usersBytes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        switch (format) {
+            case "smile":
+                mapper = Jackson2ObjectMapperBuilder.smile().build();
+                break;
+            case "cbor":
+                mapper = Jackson2ObjectMapperBuilder.cbor().build();
+                break;
+            default:
+                mapper = Jackson2ObjectMapperBuilder.json().build();
+        }
+        Random random = new Random(42);
+        films = BenchmarkData.films(size);
+        for (int i = 0; i < films.size(); i++) {
+            films.get(i).setId(i + 1);
+            for (int like = 0; like < 20; like++) {
+                films.get(i).getLikes().add(1 + random.nextInt(100_000));
+            }
+        }
+        users = BenchmarkData.users(size);
+        for (int i = 0; i < users.size(); i++) {
+            users.get(i).setId(i + 1);
+        }
+        filmsBytes = mapper.writeValueAsBytes(films);
+        usersBytes = mapper.writeValueAsBytes(users);
+        System.out.printf("%n%s: фильмы %d байт, пользователи %d байт%n", format, filmsBytes.length, usersBytes.length);
+    }
+
+    @Benchmark
+    public byte[] writeFilms() throws IOException {
+        return mapper.writeValueAsBytes(films);
+    }
+
+    @Benchmark
+    public byte[] writeUsers() throws IOException {
+        return mapper.writeValueAsBytes(users);
+    }
+
+    @Benchmark
+    public Film[] readFilms() throws IOException {
+        return mapper.readValue(filmsBytes, Film[].class);
+    }
+
+    @Benchmark
+    public User[] readUsers() throws IOException {
+        return mapper.readValue(usersBytes, User[].class);
+    }
+}
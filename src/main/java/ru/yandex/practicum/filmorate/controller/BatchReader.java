@@ -0,0 +1,103 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.BatchResponse;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Читает тело пакетного запроса (JSON-массив или NDJSON) поэлементно, проверяет каждый элемент
+ * и передаёт корректные элементы в сервис порциями по CHUNK_SIZE, не загружая весь пакет в память.
+ */
+@Slf4j
+@Component
+public class BatchReader {
+
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    static final int CHUNK_SIZE = 1000;
+
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    @Autowired
+    public BatchReader(ObjectMapper objectMapper, Validator validator) {
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+    }
+
+    public <T> BatchResponse read(InputStream body, Class<T> type,
+                                  Function<List<T>, BatchResponse> handler) throws IOException {
+        BatchResponse response = new BatchResponse();
+        List<T> chunk = new ArrayList<>(CHUNK_SIZE);
+        int[] chunkIndexes = new int[CHUNK_SIZE];
+        int index = 0;
+        try (MappingIterator<T> items = objectMapper.readerFor(type).readValues(body)) {
+            while (items.hasNextValue()) {
+                try {
+                    T item = items.nextValue();
+                    String error = validate(item);
+                    if (error == null) {
+                        chunkIndexes[chunk.size()] = index;
+                        chunk.add(item);
+                    } else {
+                        response.addError(index, error);
+                    }
+                } catch (JsonParseException e) {
+                    throw e;
+                } catch (JsonMappingException e) {
+                    response.addError(index, "Некорректный элемент: " + e.getOriginalMessage());
+                }
+                index++;
+                if (chunk.size() == CHUNK_SIZE) {
+                    flush(chunk, chunkIndexes, handler, response);
+                }
+            }
+        } catch (JsonParseException e) {
+            log.warn("Ошибка разбора пакетного запроса на элементе {}: {}", index, e.getOriginalMessage());
+            response.addError(index, "Ошибка разбора запроса: " + e.getOriginalMessage());
+        }
+        flush(chunk, chunkIndexes, handler, response);
+        response.getErrors().sort((error1, error2) -> Integer.compare(error1.getIndex(), error2.getIndex()));
+        log.info("Пакетный запрос обработан. Элементов: {}; Ошибок: {}", index, response.getFailed());
+        return response;
+    }
+
+    private <T> void flush(List<T> chunk, int[] chunkIndexes, Function<List<T>, BatchResponse> handler,
+                           BatchResponse response) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        BatchResponse chunkResponse = handler.apply(chunk);
+        response.addProcessed(chunkResponse.getProcessed());
+        for (BatchResponse.ItemError error : chunkResponse.getErrors()) {
+            response.addError(chunkIndexes[error.getIndex()], error.getError());
+        }
+        chunk.clear();
+    }
+
+    private <T> String validate(T item) {
+        Set<ConstraintViolation<T>> violations = validator.validate(item);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+}
@@ -0,0 +1,31 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+/**
+ * Двоичный формат CBOR (RFC 8949) для клиентов, присылающих Accept или Content-Type application/cbor.
+ * Модели и настройки Jackson те же, что у JSON. Конвертер стоит после JSON, поэтому запросы без Accept
+ * по-прежнему получают JSON.
+ */
+@Component
+public class CborMessageConverter extends MappingJackson2CborHttpMessageConverter {
+
+    @Autowired
+    public CborMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        super(builder.factory(new CBORFactory()).build());
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+        PresizedBody.write(object, outputMessage, body -> super.writeInternal(object, type, body));
+    }
+
+}
@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.WebRequest;
+import ru.yandex.practicum.filmorate.storage.ModificationCounter;
+
+import java.time.Clock;
+import java.util.Objects;
+
+/**
+ * Условные GET для списков: сильный ETag из эпохи и версии хранилища, Last-Modified - время его изменения.
+ * Если тег из If-None-Match совпал, клиент получает 304 без чтения хранилища и сериализации.
+ * Один и тот же список в JSON, Smile и CBOR, сжатый и нет, - разные представления, поэтому в тег входят
+ * Accept и то, принимает ли клиент gzip. Версия читается до списка: если хранилище изменится, пока список
+ * читается, ответ окажется новее тега, и следующий запрос просто получит его заново.
+ * Дата в Last-Modified точна до секунды, а изменения приходят чаще: пока не кончилась секунда последнего изменения,
+ * в неё может попасть следующее с той же датой, и If-Modified-Since получил бы 304 на изменённый список.
+ * Поэтому до конца этой секунды Last-Modified не отдаётся и не сравнивается, ответ проверяется только по ETag.
+ */
+@Component
+public class ConditionalGet {
+
+    private final Clock clock;
+
+    @Autowired
+    public ConditionalGet() {
+        this(Clock.systemUTC());
+    }
+
+    public ConditionalGet(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Проставляет ETag и Last-Modified в ответ и возвращает true, если клиенту достаточно ответа 304.
+     * Без версии хранилища (modifications == null) заголовки не ставятся.
+     */
+    public boolean notModified(WebRequest request, String resource, ModificationCounter modifications) {
+        if (modifications == null) {
+            return false;
+        }
+        long version = modifications.getVersion();
+        String etag = '"' + resource + '-' + Long.toString(modifications.getEpoch(), 36) + '-' + version
+                + '-' + variant(request) + '"';
+        long lastModified = modifications.getLastModified();
+        if (clock.millis() / 1000 <= lastModified / 1000) {
+            return request.checkNotModified(etag);
+        }
+        return request.checkNotModified(etag, lastModified);
+    }
+
+    private static String variant(WebRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        return Integer.toHexString(Objects.hashCode(accept)) + (gzip ? "-gz" : "");
+    }
+
+}
@@ -1,10 +1,22 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.BatchResponse;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmQuery;
+import ru.yandex.practicum.filmorate.model.Like;
 import ru.yandex.practicum.filmorate.service.FilmService;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
 import java.util.List;
 
 @Slf4j
@@ -13,15 +25,38 @@ import java.util.List;
 public class FilmController {
 
     private final FilmService filmService;
+    private final BatchReader batchReader;
+    private final PageStreamer pageStreamer;
+    private final ConditionalGet conditionalGet;
 
-    public FilmController(FilmService filmService) {
+    public FilmController(FilmService filmService, BatchReader batchReader, PageStreamer pageStreamer,
+                          ConditionalGet conditionalGet) {
         this.filmService = filmService;
+        this.batchReader = batchReader;
+        this.pageStreamer = pageStreamer;
+        this.conditionalGet = conditionalGet;
     }
 
     @GetMapping
-    public List<Film> findAll() {
-        log.info("Обработка запроса на получение списка фильмов");
-        return filmService.findAll();
+    public List<Film> findAll(@RequestParam(required = false) Integer after,
+                              @RequestParam(required = false) Integer limit, WebRequest request) {
+        if (after == null && limit == null) {
+            log.info("Обработка запроса на получение списка фильмов");
+            if (conditionalGet.notModified(request, "films", filmService.getModifications())) {
+                return null;
+            }
+            return filmService.findAll();
+        }
+        log.info("Обработка запроса на получение страницы фильмов после id={}", after);
+        return filmService.findPage(after == null ? 0 : after, limit == null ? PageStreamer.PAGE_SIZE : limit);
+    }
+
+    @GetMapping(params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        log.info("Обработка запроса на потоковое получение списка фильмов");
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(pageStreamer.stream(filmService::findPage, Film::getId));
     }
 
     @GetMapping("/{id}")
@@ -31,17 +66,48 @@ public class FilmController {
     }
 
     @GetMapping(value = "/popular")
-    public List<Film> getPopFilms(@RequestParam(defaultValue = "10") int count) {
+    public List<Film> getPopFilms(@RequestParam(defaultValue = "10") int count, WebRequest request) {
         log.info("Обработка запроса на получение списка из {} популярных фильмов", count);
+        if (conditionalGet.notModified(request, "popular-" + count + "-" + filmService.getPopularSketchVersion(),
+                filmService.getModifications())) {
+            return null;
+        }
         return filmService.getPopFilms(count);
     }
 
+    @GetMapping(value = "/trending")
+    public List<Film> getTrendingFilms(@RequestParam(defaultValue = "day") String window,
+                                       @RequestParam(defaultValue = "10") int count) {
+        log.info("Обработка запроса на получение списка из {} набирающих популярность фильмов за окно {}",
+                count, window);
+        return filmService.getTrendingFilms(window, count);
+    }
+
+    @GetMapping(value = "/search")
+    public List<Film> searchFilms(@RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate from,
+                                  @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate to,
+                                  @RequestParam(required = false) Long minDuration,
+                                  @RequestParam(required = false) Long maxDuration,
+                                  @RequestParam(required = false) String q,
+                                  @RequestParam(defaultValue = "100") int limit) {
+        FilmQuery query = new FilmQuery(from, to, minDuration, maxDuration, q, limit);
+        log.info("Обработка запроса на поиск фильмов. Условия: {}", query);
+        return filmService.searchFilms(query);
+    }
+
     @PostMapping
     public Film create(@Valid @RequestBody Film film) {
         log.info("Обработка запроса на создание фильма {}",film.getName());
         return filmService.create(film);
     }
 
+    @PostMapping(value = "/batch",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, BatchReader.APPLICATION_NDJSON_VALUE})
+    public BatchResponse createAll(InputStream body) throws IOException {
+        log.info("Обработка пакетного запроса на создание фильмов");
+        return batchReader.read(body, Film.class, filmService::createAll);
+    }
+
     @PutMapping
     public Film update(@Valid @RequestBody Film film) {
         log.info("Обработка запроса на обновление фильма {}",film.getName());
@@ -54,6 +120,13 @@ public class FilmController {
         return filmService.addLike(id, userId);
     }
 
+    @PutMapping(value = "/likes",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, BatchReader.APPLICATION_NDJSON_VALUE})
+    public BatchResponse addLikes(InputStream body) throws IOException {
+        log.info("Обработка пакетного запроса на присвоение лайков");
+        return batchReader.read(body, Like.class, filmService::addLikes);
+    }
+
     @DeleteMapping(value = "/{id}/like/{userId}")
     public Film deleteLike(@PathVariable Integer id, @PathVariable Integer userId) {
         log.info("Обработка запроса на удаление лайка фильму {} пользователем {}",id,userId);
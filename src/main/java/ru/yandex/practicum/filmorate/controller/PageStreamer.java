@@ -0,0 +1,50 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Пишет JSON-массив в ответ постранично: очередная страница запрашивается по id последнего
+ * отданного элемента и сбрасывается клиенту, в памяти держится не больше одной страницы.
+ */
+@Component
+public class PageStreamer {
+
+    static final int PAGE_SIZE = 500;
+
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public PageStreamer(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public <T> StreamingResponseBody stream(BiFunction<Integer, Integer, List<T>> pages, Function<T, Integer> idOf) {
+        return outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartArray();
+                Integer afterId = 0;
+                List<T> page;
+                do {
+                    page = pages.apply(afterId, PAGE_SIZE);
+                    for (T item : page) {
+                        generator.writeObject(item);
+                    }
+                    generator.flush();
+                    if (!page.isEmpty()) {
+                        afterId = idOf.apply(page.get(page.size() - 1));
+                    }
+                } while (page.size() == PAGE_SIZE);
+                generator.writeEndArray();
+            }
+        };
+    }
+
+}
@@ -0,0 +1,54 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+
+/**
+ * Тело двоичного ответа пишется в буфер, размер которого заранее оценён по числу элементов списка, и уходит
+ * одной записью с Content-Length: без chunked-кодирования, без роста буфера на больших списках и со сжатием
+ * только ответов больше server.compression.min-response-size.
+ */
+final class PresizedBody {
+
+    // Фильм или пользователь в Smile и CBOR занимает 40-80 байт вместе с именами полей
+    private static final int ELEMENT_BYTES = 96;
+    private static final int MIN_BYTES = 256;
+    private static final int MAX_BYTES = 1 << 20;
+
+    private PresizedBody() {
+    }
+
+    static void write(Object object, HttpOutputMessage outputMessage, BodyWriter writer) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(estimate(object));
+        writer.write(new HttpOutputMessage() {
+            @Override
+            public OutputStream getBody() {
+                return body;
+            }
+
+            @Override
+            public HttpHeaders getHeaders() {
+                return outputMessage.getHeaders();
+            }
+        });
+        outputMessage.getHeaders().setContentLength(body.size());
+        body.writeTo(outputMessage.getBody());
+    }
+
+    static int estimate(Object object) {
+        if (object instanceof Collection) {
+            long bytes = (long) ((Collection<?>) object).size() * ELEMENT_BYTES;
+            return (int) Math.max(MIN_BYTES, Math.min(MAX_BYTES, bytes));
+        }
+        return MIN_BYTES;
+    }
+
+    interface BodyWriter {
+        void write(HttpOutputMessage outputMessage) throws IOException;
+    }
+}
@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+/**
+ * Двоичный формат Smile для клиентов, присылающих Accept или Content-Type application/x-jackson-smile.
+ * Модели и настройки Jackson те же, что у JSON; имена полей передаются один раз на ответ, числа и даты -
+ * в двоичном виде. Конвертер стоит после JSON, поэтому запросы без Accept по-прежнему получают JSON.
+ */
+@Component
+public class SmileMessageConverter extends MappingJackson2SmileHttpMessageConverter {
+
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+
+    @Autowired
+    public SmileMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        super(builder.factory(new SmileFactory()).build());
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+        PresizedBody.write(object, outputMessage, body -> super.writeInternal(object, type, body));
+    }
+
+}
@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.apache.coyote.http11.AbstractHttp11Protocol;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tomcat по умолчанию не сжимает ответы с сильным ETag: сжатый ответ - другое представление, и тег у него
+ * должен быть другим. Теги списков (ConditionalGet) уже различают клиентов, принимающих gzip,
+ * поэтому списки с тегами сжимаются так же, как остальные ответы (server.compression).
+ */
+@Component
+public class StrongEtagCompressionCustomizer implements TomcatProtocolHandlerCustomizer<AbstractHttp11Protocol<?>> {
+
+    @Override
+    public void customize(AbstractHttp11Protocol<?> protocolHandler) {
+        protocolHandler.setNoCompressionStrongETag(false);
+    }
+
+}
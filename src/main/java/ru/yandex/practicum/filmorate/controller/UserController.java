@@ -2,10 +2,20 @@ package ru.yandex.practicum.filmorate.controller;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.BatchResponse;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.UserService;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 @Slf4j
@@ -14,16 +24,41 @@ import java.util.List;
 public class UserController {
 
     private final UserService userService;
+    private final FilmService filmService;
+    private final BatchReader batchReader;
+    private final PageStreamer pageStreamer;
+    private final ConditionalGet conditionalGet;
 
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService, FilmService filmService, BatchReader batchReader,
+                          PageStreamer pageStreamer, ConditionalGet conditionalGet) {
         this.userService = userService;
+        this.filmService = filmService;
+        this.batchReader = batchReader;
+        this.pageStreamer = pageStreamer;
+        this.conditionalGet = conditionalGet;
     }
 
     @GetMapping
-    public List<User> findAll() {
-        log.info("Поступил запрос на получение всех пользователей");
-        return userService.findAll();
+    public List<User> findAll(@RequestParam(required = false) Integer after,
+                              @RequestParam(required = false) Integer limit, WebRequest request) {
+        if (after == null && limit == null) {
+            log.info("Поступил запрос на получение всех пользователей");
+            if (conditionalGet.notModified(request, "users", userService.getModifications())) {
+                return null;
+            }
+            return userService.findAll();
+        }
+        log.info("Поступил запрос на получение страницы пользователей после id={}", after);
+        return userService.findPage(after == null ? 0 : after, limit == null ? PageStreamer.PAGE_SIZE : limit);
+    }
+
+    @GetMapping(params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        log.info("Поступил запрос на потоковое получение всех пользователей");
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(pageStreamer.stream(userService::findPage, User::getId));
     }
 
     @GetMapping("/{id}")
@@ -44,12 +79,31 @@ public class UserController {
         return userService.getCommonFriends(id, otherId);
     }
 
+    @GetMapping(value = "/{id}/recommendations")
+    public List<User> getRecommendations(@PathVariable Integer id, @RequestParam(defaultValue = "10") int count) {
+        log.info("Поступил запрос на получение {} рекомендаций друзей для пользователя с id={}", count, id);
+        return userService.getRecommendations(id, count);
+    }
+
+    @GetMapping(value = "/{id}/films/recommended")
+    public List<Film> getRecommendedFilms(@PathVariable Integer id, @RequestParam(defaultValue = "10") int count) {
+        log.info("Поступил запрос на получение {} рекомендованных фильмов для пользователя с id={}", count, id);
+        return filmService.getRecommendedFilms(id, count);
+    }
+
     @PostMapping
     public User create(@Valid @RequestBody User user) {
         log.info("Поступил запрос на создание пользователя {}",user.getName());
         return userService.create(user);
     }
 
+    @PostMapping(value = "/batch",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, BatchReader.APPLICATION_NDJSON_VALUE})
+    public BatchResponse createAll(InputStream body) throws IOException {
+        log.info("Поступил пакетный запрос на создание пользователей");
+        return batchReader.read(body, User.class, userService::createAll);
+    }
+
     @PutMapping
     public User update(@Valid @RequestBody User user) {
         log.info("Поступил запрос на обновление пользователя {}",user.getName());
@@ -62,6 +116,13 @@ public class UserController {
         return userService.addFriend(id, friendId);
     }
 
+    @PutMapping(value = "/friends",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, BatchReader.APPLICATION_NDJSON_VALUE})
+    public BatchResponse addFriends(InputStream body) throws IOException {
+        log.info("Поступил пакетный запрос на добавление друзей");
+        return batchReader.read(body, Friendship.class, userService::addFriends);
+    }
+
     @DeleteMapping(value = "/{id}/friends/{friendId}")
     public User delFriend(@PathVariable Integer id, @PathVariable Integer friendId) {
         log.info("Поступил запрос на удаление друга с id={} для пользователя с id={}",friendId,id);
@@ -0,0 +1,59 @@
+package ru.yandex.practicum.filmorate.execution;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Режим filmorate.execution.mode=virtual: Tomcat обрабатывает каждый запрос в отдельном виртуальном потоке
+ * вместо пула из server.tomcat.threads.max потоков, поэтому запросы, ждущие хранилище (запись журнала на диск,
+ * базу данных), не занимают потоки пула и не ограничивают число одновременных запросов.
+ * Виртуальные потоки есть начиная с JDK 21, а приложение собирается под Java 11, поэтому исполнитель
+ * создаётся через отражение. На JDK без виртуальных потоков остаётся обычный пул.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "filmorate.execution.mode", havingValue = "virtual")
+public class VirtualThreadTomcatCustomizer implements TomcatProtocolHandlerCustomizer<ProtocolHandler>, DisposableBean {
+
+    private final ExecutorService executor = newVirtualThreadPerTaskExecutor();
+
+    @Override
+    public void customize(ProtocolHandler protocolHandler) {
+        if (executor == null) {
+            log.warn("Виртуальные потоки недоступны в JDK {}, запросы обрабатываются пулом потоков Tomcat",
+                    Runtime.version());
+            return;
+        }
+        protocolHandler.setExecutor(executor);
+        log.info("Запросы обрабатываются в виртуальных потоках");
+    }
+
+    @Override
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (InvocationTargetException e) {
+            // На JDK 19 и 20 виртуальные потоки доступны только с --enable-preview
+            log.warn("Не удалось создать исполнитель на виртуальных потоках: {}", e.getCause().toString());
+            return null;
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.AfterReturning;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.BatchResponse;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Время каждого вызова методов интерфейсов сервисов и хранилищ (filmorate.service, filmorate.storage)
+ * и счётчики операций с лайками и друзьями. Вспомогательные бины сервисов (рейтинги, рекомендации, очередь лайков)
+ * не замеряются: их вызовы входят во время вызова сервиса. Время запросов к контроллерам пишет сам Spring (http.server.requests).
+ */
+@Aspect
+@Component
+public class MetricsAspect {
+
+    private final MeterRegistry registry;
+    private final Counter likesAdded;
+    private final Counter likesRemoved;
+    private final Counter friendsAdded;
+    private final Counter friendsRemoved;
+    // Таймеры успешных вызовов по методу: поиск таймера в реестре по тегам заметен на каждом вызове
+    private final Map<Method, Timer> timers = new ConcurrentHashMap<>();
+
+    @Autowired
+    public MetricsAspect(MeterRegistry registry) {
+        this.registry = registry;
+        this.likesAdded = operationCounter("filmorate.likes", "add");
+        this.likesRemoved = operationCounter("filmorate.likes", "remove");
+        this.friendsAdded = operationCounter("filmorate.friendships", "add");
+        this.friendsRemoved = operationCounter("filmorate.friendships", "remove");
+    }
+
+    @Around("execution(* ru.yandex.practicum.filmorate.storage.FilmStorage.*(..)) "
+            + "|| execution(* ru.yandex.practicum.filmorate.storage.UserStorage.*(..))")
+    public Object timeStorage(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time("filmorate.storage", joinPoint);
+    }
+
+    @Around("execution(* ru.yandex.practicum.filmorate.service.*Service.*(..))")
+    public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time("filmorate.service", joinPoint);
+    }
+
+    @AfterReturning("execution(* ru.yandex.practicum.filmorate.service.FilmService.addLike(..))")
+    public void countLike() {
+        likesAdded.increment();
+    }
+
+    @AfterReturning("execution(* ru.yandex.practicum.filmorate.service.FilmService.delLike(..))")
+    public void countDelLike() {
+        likesRemoved.increment();
+    }
+
+    @AfterReturning(pointcut = "execution(* ru.yandex.practicum.filmorate.service.FilmService.addLikes(..))",
+            returning = "response")
+    public void countLikes(BatchResponse response) {
+        likesAdded.increment(response.getProcessed());
+    }
+
+    @AfterReturning("execution(* ru.yandex.practicum.filmorate.service.UserService.addFriend(..))")
+    public void countFriend() {
+        friendsAdded.increment();
+    }
+
+    @AfterReturning("execution(* ru.yandex.practicum.filmorate.service.UserService.delFriend(..))")
+    public void countDelFriend() {
+        friendsRemoved.increment();
+    }
+
+    @AfterReturning(pointcut = "execution(* ru.yandex.practicum.filmorate.service.UserService.addFriends(..))",
+            returning = "response")
+    public void countFriends(BatchResponse response) {
+        friendsAdded.increment(response.getProcessed());
+    }
+
+    private Object time(String name, ProceedingJoinPoint joinPoint) throws Throwable {
+        Timer.Sample sample = Timer.start(registry);
+        try {
+            Object result = joinPoint.proceed();
+            sample.stop(timers.computeIfAbsent(((MethodSignature) joinPoint.getSignature()).getMethod(),
+                    method -> timer(name, joinPoint, "none")));
+            return result;
+        } catch (Throwable e) {
+            sample.stop(timer(name, joinPoint, e.getClass().getSimpleName()));
+            throw e;
+        }
+    }
+
+    private Timer timer(String name, ProceedingJoinPoint joinPoint, String exception) {
+        return Timer.builder(name)
+                .tag("class", joinPoint.getSignature().getDeclaringType().getSimpleName())
+                .tag("method", joinPoint.getSignature().getName())
+                .tag("exception", exception)
+                .register(registry);
+    }
+
+    private Counter operationCounter(String name, String operation) {
+        return Counter.builder(name)
+                .tag("operation", operation)
+                .register(registry);
+    }
+}
@@ -0,0 +1,51 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.replication.ReadReplica;
+import ru.yandex.practicum.filmorate.replication.ReadReplicas;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+/**
+ * Размеры хранилищ: число фильмов и пользователей; отставание реплик чтения в изменениях и миллисекундах.
+ */
+@Component
+public class StorageMetrics implements MeterBinder {
+
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final ReadReplicas readReplicas;
+
+    @Autowired
+    public StorageMetrics(FilmStorage filmStorage, UserStorage userStorage, ReadReplicas readReplicas) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.readReplicas = readReplicas;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("filmorate.films", filmStorage, FilmStorage::getFilmsCount)
+                .description("Число фильмов в хранилище")
+                .register(registry);
+        Gauge.builder("filmorate.users", userStorage, UserStorage::getUsersCount)
+                .description("Число пользователей в хранилище")
+                .register(registry);
+        for (ReadReplica replica : readReplicas.getReplicas()) {
+            Gauge.builder("filmorate.replication.lag", replica, readReplicas::lag)
+                    .description("Отставание реплики чтения от ленты изменений")
+                    .tag("replica", replica.getName())
+                    .baseUnit("mutations")
+                    .register(registry);
+            Gauge.builder("filmorate.replication.lag.time", replica, readReplicas::lagMillis)
+                    .description("Время с первого не применённого репликой изменения")
+                    .tag("replica", replica.getName())
+                    .baseUnit("milliseconds")
+                    .register(registry);
+        }
+    }
+}
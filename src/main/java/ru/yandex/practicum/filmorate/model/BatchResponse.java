@@ -0,0 +1,48 @@
+package ru.yandex.practicum.filmorate.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BatchResponse {
+    private int processed;
+    private final List<ItemError> errors = new ArrayList<>();
+
+    public void addProcessed(int count) {
+        processed += count;
+    }
+
+    public void addError(int index, String error) {
+        errors.add(new ItemError(index, error));
+    }
+
+    public int getProcessed() {
+        return processed;
+    }
+
+    public int getFailed() {
+        return errors.size();
+    }
+
+    public List<ItemError> getErrors() {
+        return errors;
+    }
+
+    public static class ItemError {
+        private final int index;
+        private final String error;
+
+        public ItemError(int index, String error) {
+            this.index = index;
+            this.error = error;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public String getError() {
+            return error;
+        }
+    }
+
+}
@@ -2,9 +2,9 @@ package ru.yandex.practicum.filmorate.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.*;
+import ru.yandex.practicum.filmorate.util.SortedIntSet;
 import javax.validation.constraints.*;
 import java.time.LocalDate;
-import java.util.HashSet;
 import java.util.Set;
 
 @Data
@@ -26,14 +26,14 @@ public class Film {
     private Set<Integer> likes;
 
     public Film() {
-        this.likes = new HashSet<>(); // Initialize the set in the constructor
+        this.likes = new SortedIntSet(); // Initialize the set in the constructor
     }
 
-    public void addLike(Integer id) {
-        this.likes.add(id);
+    public boolean addLike(Integer id) {
+        return this.likes.add(id);
     }
 
-    public void delLike(Integer id) {
-        this.likes.remove(id);
+    public boolean delLike(Integer id) {
+        return this.likes.remove(id);
     }
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Условия поиска фильмов, все необязательные: даты выхода и продолжительность включительно,
+ * text - слова, каждое из которых должно быть в названии или описании фильма.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FilmQuery {
+    private LocalDate from;
+    private LocalDate to;
+    private Long minDuration;
+    private Long maxDuration;
+    private String text;
+    private int limit;
+}
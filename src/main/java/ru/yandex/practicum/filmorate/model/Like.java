@@ -0,0 +1,24 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotNull;
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Like {
+    @NotNull
+    private Integer filmId;
+    @NotNull
+    private Integer userId;
+    // Время лайка для рейтинга набирающих популярность фильмов, если не задано - время обработки запроса
+    private Instant likedAt;
+
+    public Like(Integer filmId, Integer userId) {
+        this(filmId, userId, null);
+    }
+}
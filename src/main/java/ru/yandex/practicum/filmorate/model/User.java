@@ -1,9 +1,9 @@
 package ru.yandex.practicum.filmorate.model;
 
 import lombok.*;
+import ru.yandex.practicum.filmorate.util.SortedIntSet;
 import javax.validation.constraints.*;
 import java.time.LocalDate;
-import java.util.HashSet;
 import java.util.Set;
 
 @Data
@@ -24,7 +24,7 @@ public class User {
     private Set<Integer> friends;
 
     public User() {
-        this.friends = new HashSet<>(); // Initialize the set in the constructor
+        this.friends = new SortedIntSet(); // Initialize the set in the constructor
     }
 
     public void addFriend(Integer id) {
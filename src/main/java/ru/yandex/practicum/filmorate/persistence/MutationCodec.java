@@ -0,0 +1,168 @@
+package ru.yandex.practicum.filmorate.persistence;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.Mutation;
+import ru.yandex.practicum.filmorate.util.SortedIntSet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Двоичный формат изменений для журнала, снимков и ленты изменений реплик. Числа пишутся в порядке big-endian,
+ * строки - длиной и байтами UTF-8, отсутствующие значения - длиной -1 или Long.MIN_VALUE.
+ */
+public final class MutationCodec {
+
+    private static final long NULL_LONG = Long.MIN_VALUE;
+    private static final Mutation.Type[] TYPES = Mutation.Type.values();
+
+    private MutationCodec() {
+    }
+
+    public static byte[] encode(Mutation mutation) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(mutation.getType().ordinal());
+            switch (mutation.getType()) {
+                case CREATE_FILM:
+                case UPDATE_FILM:
+                    writeFilm(out, mutation.getFilm());
+                    break;
+                case CREATE_USER:
+                case UPDATE_USER:
+                    writeUser(out, mutation.getUser());
+                    break;
+                case ADD_LIKE:
+                case DEL_LIKE:
+                case ADD_FRIEND:
+                case DEL_FRIEND:
+                    out.writeInt(mutation.getId());
+                    out.writeInt(mutation.getOtherId());
+                    break;
+                default:
+                    break;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static Mutation decode(ByteBuffer in) {
+        Mutation.Type type = TYPES[in.get()];
+        switch (type) {
+            case CREATE_FILM:
+                return Mutation.createFilm(readFilm(in));
+            case UPDATE_FILM:
+                return Mutation.updateFilm(readFilm(in));
+            case ADD_LIKE:
+                return Mutation.addLike(in.getInt(), in.getInt());
+            case DEL_LIKE:
+                return Mutation.delLike(in.getInt(), in.getInt());
+            case CLEAR_FILMS:
+                return Mutation.clearFilms();
+            case CREATE_USER:
+                return Mutation.createUser(readUser(in));
+            case UPDATE_USER:
+                return Mutation.updateUser(readUser(in));
+            case ADD_FRIEND:
+                return Mutation.addFriend(in.getInt(), in.getInt());
+            case DEL_FRIEND:
+                return Mutation.delFriend(in.getInt(), in.getInt());
+            case CLEAR_USERS:
+                return Mutation.clearUsers();
+            default:
+                throw new IllegalArgumentException("Неизвестный тип изменения: " + type);
+        }
+    }
+
+    private static void writeFilm(DataOutputStream out, Film film) throws IOException {
+        out.writeInt(film.getId());
+        writeString(out, film.getName());
+        writeString(out, film.getDescription());
+        writeDate(out, film.getReleaseDate());
+        out.writeLong(film.getDuration() == null ? NULL_LONG : film.getDuration());
+        writeIds(out, SortedIntSet.of(film.getLikes()).toIntArray());
+    }
+
+    private static Film readFilm(ByteBuffer in) {
+        Film film = new Film();
+        film.setId(in.getInt());
+        film.setName(readString(in));
+        film.setDescription(readString(in));
+        film.setReleaseDate(readDate(in));
+        long duration = in.getLong();
+        film.setDuration(duration == NULL_LONG ? null : duration);
+        film.setLikes(SortedIntSet.ofSorted(readIds(in)));
+        return film;
+    }
+
+    private static void writeUser(DataOutputStream out, User user) throws IOException {
+        out.writeInt(user.getId());
+        writeString(out, user.getLogin());
+        writeString(out, user.getName());
+        writeString(out, user.getEmail());
+        writeDate(out, user.getBirthday());
+        writeIds(out, SortedIntSet.of(user.getFriends()).toIntArray());
+    }
+
+    private static User readUser(ByteBuffer in) {
+        User user = new User();
+        user.setId(in.getInt());
+        user.setLogin(readString(in));
+        user.setName(readString(in));
+        user.setEmail(readString(in));
+        user.setBirthday(readDate(in));
+        user.setFriends(SortedIntSet.ofSorted(readIds(in)));
+        return user;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeDate(DataOutputStream out, LocalDate date) throws IOException {
+        out.writeLong(date == null ? NULL_LONG : date.toEpochDay());
+    }
+
+    private static LocalDate readDate(ByteBuffer in) {
+        long epochDay = in.getLong();
+        return epochDay == NULL_LONG ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    private static void writeIds(DataOutputStream out, int[] ids) throws IOException {
+        out.writeInt(ids.length);
+        for (int id : ids) {
+            out.writeInt(id);
+        }
+    }
+
+    private static int[] readIds(ByteBuffer in) {
+        int[] ids = new int[in.getInt()];
+        in.asIntBuffer().get(ids);
+        in.position(in.position() + ids.length * Integer.BYTES);
+        return ids;
+    }
+}
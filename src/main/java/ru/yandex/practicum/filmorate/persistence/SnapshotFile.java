@@ -0,0 +1,207 @@
+package ru.yandex.practicum.filmorate.persistence;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.Mutation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Снимок хранилищ: заголовок (MAGIC, VERSION, номер последней учтённой записи журнала, счётчики id),
+ * затем порции фильмов и пользователей и длина -1 в конце. Порция - длина, число записей и до CHUNK_ENTRIES
+ * изменений CREATE_* в формате MutationCodec, каждое с длиной впереди; фильмы и пользователи в одной порции
+ * не смешиваются. Порции независимы, поэтому при чтении разбираются и применяются параллельно.
+ * Файл пишется и читается через отображение в память кусками по REGION_SIZE.
+ */
+final class SnapshotFile {
+
+    static final int MAGIC = 0x464C4D53;
+    static final int VERSION = 2;
+    static final int CHUNK_ENTRIES = 4096;
+    private static final long REGION_SIZE = 64L << 20;
+    private static final int END = -1;
+
+    private SnapshotFile() {
+    }
+
+    @Getter
+    @AllArgsConstructor
+    static class Header {
+        private final long seq;
+        private final int lastFilmId;
+        private final int lastUserId;
+    }
+
+    static void write(Path file, Header header, Collection<Film> films, Collection<User> users) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedOutput out = new MappedOutput(channel);
+            ByteBuffer buffer = out.ensure(Integer.BYTES * 2 + Long.BYTES + Integer.BYTES * 2);
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putLong(header.getSeq());
+            buffer.putInt(header.getLastFilmId());
+            buffer.putInt(header.getLastUserId());
+            ChunkWriter chunk = new ChunkWriter(out);
+            for (Film film : films) {
+                chunk.add(MutationCodec.encode(Mutation.createFilm(film)));
+            }
+            chunk.flush();
+            for (User user : users) {
+                chunk.add(MutationCodec.encode(Mutation.createUser(user)));
+            }
+            chunk.flush();
+            out.ensure(Integer.BYTES).putInt(END);
+            out.finish();
+        }
+    }
+
+    /**
+     * Читает снимок и передаёт порции изменений в consumer на потоках executor. Возвращает управление,
+     * когда все порции применены.
+     */
+    static Header read(Path file, Executor executor, Consumer<List<Mutation>> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedInput in = new MappedInput(channel);
+            ByteBuffer buffer = in.ensure(Integer.BYTES * 2 + Long.BYTES + Integer.BYTES * 2);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Файл " + file + " не является снимком хранилищ этой версии");
+            }
+            Header header = new Header(buffer.getLong(), buffer.getInt(), buffer.getInt());
+            List<CompletableFuture<Void>> chunks = new ArrayList<>();
+            while (true) {
+                int length = in.ensure(Integer.BYTES).getInt();
+                if (length == END) {
+                    break;
+                }
+                buffer = in.ensure(length);
+                ByteBuffer data = buffer.slice().limit(length);
+                buffer.position(buffer.position() + length);
+                chunks.add(CompletableFuture.runAsync(() -> consumer.accept(decodeChunk(data)), executor));
+            }
+            try {
+                CompletableFuture.allOf(chunks.toArray(new CompletableFuture[0])).join();
+            } catch (CompletionException e) {
+                throw new IOException("Ошибка чтения снимка хранилищ " + file, e.getCause());
+            }
+            return header;
+        }
+    }
+
+    private static List<Mutation> decodeChunk(ByteBuffer data) {
+        int count = data.getInt();
+        List<Mutation> mutations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int length = data.getInt();
+            ByteBuffer entry = data.slice().limit(length);
+            data.position(data.position() + length);
+            mutations.add(MutationCodec.decode(entry));
+        }
+        return mutations;
+    }
+
+    // Копит записи порции в памяти, чтобы записать её в файл вместе с длиной
+    private static final class ChunkWriter {
+
+        private final MappedOutput out;
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(CHUNK_ENTRIES * 64);
+        private final DataOutputStream data = new DataOutputStream(bytes);
+        private int count;
+
+        ChunkWriter(MappedOutput out) {
+            this.out = out;
+        }
+
+        void add(byte[] entry) throws IOException {
+            data.writeInt(entry.length);
+            data.write(entry);
+            if (++count == CHUNK_ENTRIES) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            if (count == 0) {
+                return;
+            }
+            ByteBuffer buffer = out.ensure(Integer.BYTES * 2 + bytes.size());
+            buffer.putInt(Integer.BYTES + bytes.size());
+            buffer.putInt(count);
+            buffer.put(bytes.toByteArray());
+            bytes.reset();
+            count = 0;
+        }
+    }
+
+    private static final class MappedOutput {
+
+        private final FileChannel channel;
+        private long regionStart;
+        private MappedByteBuffer buffer;
+
+        MappedOutput(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, REGION_SIZE);
+        }
+
+        ByteBuffer ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                regionStart += buffer.position();
+                buffer.force();
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, regionStart, Math.max(REGION_SIZE, bytes));
+            }
+            return buffer;
+        }
+
+        void finish() throws IOException {
+            long size = regionStart + buffer.position();
+            buffer.force();
+            // Отображение последнего куска длиннее данных, лишние нули отрезаются
+            channel.truncate(size);
+            channel.force(true);
+        }
+    }
+
+    private static final class MappedInput {
+
+        private final FileChannel channel;
+        private final long size;
+        private long regionStart;
+        private MappedByteBuffer buffer;
+
+        MappedInput(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(REGION_SIZE, size));
+        }
+
+        ByteBuffer ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                regionStart += buffer.position();
+                long length = Math.min(Math.max(REGION_SIZE, bytes), size - regionStart);
+                if (length < bytes) {
+                    throw new EOFException("Снимок хранилищ обрывается на позиции " + regionStart);
+                }
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, regionStart, length);
+            }
+            return buffer;
+        }
+    }
+}
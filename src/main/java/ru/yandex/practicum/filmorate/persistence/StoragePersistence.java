@@ -0,0 +1,199 @@
+package ru.yandex.practicum.filmorate.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.Mutation;
+import ru.yandex.practicum.filmorate.storage.MutationLog;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Сохранение хранилищ в памяти на диск: журнал изменений и периодические снимки.
+ * При запуске хранилища восстанавливаются из последнего снимка и хвоста журнала до того, как приложение
+ * начнёт принимать запросы. Порции снимка загружаются параллельно на recovery-threads потоках
+ * (0 - по числу ядер), вместе с ними строятся индекс популярности и списки друзей; журнал применяется
+ * по порядку. Снимок пишется без остановки записи: изменения, попавшие и в снимок,
+ * и в хвост журнала, при восстановлении применяются повторно без изменения результата.
+ */
+@Slf4j
+@Component
+@ConditionalOnExpression("${filmorate.persistence.enabled:false} and '${filmorate.storage:memory}' == 'memory'")
+public class StoragePersistence {
+
+    private static final int APPLY_BATCH = 4096;
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+
+    private final InMemoryFilmStorage filmStorage;
+    private final InMemoryUserStorage userStorage;
+    private final Path dir;
+    private final boolean syncCommit;
+    private final long snapshotIntervalSeconds;
+    private final int recoveryThreads;
+
+    private WriteAheadLog wal;
+    private ScheduledExecutorService scheduler;
+
+    @Autowired
+    public StoragePersistence(InMemoryFilmStorage filmStorage, InMemoryUserStorage userStorage,
+                              @Value("${filmorate.persistence.dir:data}") Path dir,
+                              @Value("${filmorate.persistence.sync-commit:true}") boolean syncCommit,
+                              @Value("${filmorate.persistence.snapshot-interval-seconds:300}") long snapshotIntervalSeconds,
+                              @Value("${filmorate.persistence.recovery-threads:0}") int recoveryThreads) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.dir = dir;
+        this.syncCommit = syncCommit;
+        this.snapshotIntervalSeconds = snapshotIntervalSeconds;
+        this.recoveryThreads = recoveryThreads > 0 ? recoveryThreads : Runtime.getRuntime().availableProcessors();
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        Files.createDirectories(dir);
+        long seq = recover();
+        wal = new WriteAheadLog(dir, seq, syncCommit);
+        filmStorage.setMutationLog(wal);
+        userStorage.setMutationLog(wal);
+        if (snapshotIntervalSeconds > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "storage-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::scheduledSnapshot,
+                    snapshotIntervalSeconds, snapshotIntervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Пишет снимок хранилищ и удаляет журнал и снимки, которые он заменяет. Возвращает номер последней
+     * записи журнала, учтённой в снимке.
+     */
+    public synchronized long snapshot() throws IOException {
+        long started = System.nanoTime();
+        long seq = wal.rotate();
+        SnapshotFile.Header header = new SnapshotFile.Header(seq, filmStorage.getLastId(), userStorage.getLastId());
+        Path tmp = dir.resolve(SNAPSHOT_PREFIX + "tmp");
+        SnapshotFile.write(tmp, header, filmStorage.getAllFilms(), userStorage.getAllUsers());
+        Path snapshot = dir.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, seq, SNAPSHOT_SUFFIX));
+        Files.move(tmp, snapshot, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        for (Path old : snapshots()) {
+            if (!old.equals(snapshot)) {
+                Files.delete(old);
+            }
+        }
+        wal.deleteSegmentsUpTo(seq);
+        log.info("Снимок хранилищ записан за {} мс. Последнее изменение: {}",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), seq);
+        return seq;
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        filmStorage.setMutationLog(MutationLog.NONE);
+        userStorage.setMutationLog(MutationLog.NONE);
+        wal.close();
+    }
+
+    private long recover() throws IOException {
+        long started = System.nanoTime();
+        long seq = 0;
+        List<Path> snapshots = snapshots();
+        if (!snapshots.isEmpty()) {
+            SnapshotFile.Header header = loadSnapshot(snapshots.get(snapshots.size() - 1));
+            filmStorage.restoreLastId(header.getLastFilmId());
+            userStorage.restoreLastId(header.getLastUserId());
+            seq = header.getSeq();
+        }
+        long snapshotLoaded = System.nanoTime();
+        Applier applier = new Applier();
+        seq = WriteAheadLog.replay(dir, seq, applier::accept);
+        applier.flush();
+        log.info("Хранилища восстановлены за {} мс (снимок {} мс на {} потоках). "
+                        + "Фильмов: {}; Пользователей: {}; Последнее изменение: {}",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started),
+                TimeUnit.NANOSECONDS.toMillis(snapshotLoaded - started), recoveryThreads,
+                filmStorage.getFilmsCount(), userStorage.getUsersCount(), seq);
+        return seq;
+    }
+
+    private SnapshotFile.Header loadSnapshot(Path snapshot) throws IOException {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(recoveryThreads,
+                runnable -> new Thread(runnable, "storage-recovery-" + threadNumber.incrementAndGet()));
+        try {
+            return SnapshotFile.read(snapshot, executor, chunk -> {
+                if (chunk.get(0).isFilmMutation()) {
+                    filmStorage.apply(chunk);
+                } else {
+                    userStorage.apply(chunk);
+                }
+            });
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void scheduledSnapshot() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            log.error("Ошибка записи снимка хранилищ", e);
+        }
+    }
+
+    private List<Path> snapshots() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files
+                    .filter(path -> path.getFileName().toString().startsWith(SNAPSHOT_PREFIX)
+                            && path.getFileName().toString().endsWith(SNAPSHOT_SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    // Изменения применяются пачками, чтобы не проходить прокси хранилищ на каждое изменение
+    private class Applier {
+
+        private final List<Mutation> films = new ArrayList<>(APPLY_BATCH);
+        private final List<Mutation> users = new ArrayList<>(APPLY_BATCH);
+
+        void accept(Mutation mutation) {
+            List<Mutation> batch = mutation.isFilmMutation() ? films : users;
+            batch.add(mutation);
+            if (batch.size() == APPLY_BATCH) {
+                flush();
+            }
+        }
+
+        void flush() {
+            filmStorage.apply(films);
+            userStorage.apply(users);
+            films.clear();
+            users.clear();
+        }
+    }
+}
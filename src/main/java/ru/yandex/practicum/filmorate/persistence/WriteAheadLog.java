@@ -0,0 +1,333 @@
+package ru.yandex.practicum.filmorate.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.storage.Mutation;
+import ru.yandex.practicum.filmorate.storage.MutationLog;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал изменений с групповой фиксацией. Потоки запросов только дописывают записи в буфер,
+ * отдельный поток пишет накопившееся одним вызовом write и одним force на всю группу.
+ * Журнал делится на сегменты wal-<номер первой записи>.log; новый сегмент начинается при снимке
+ * и при превышении SEGMENT_SIZE.
+ * Запись: длина данных, CRC32 номера и данных, номер записи, данные (см. MutationCodec).
+ */
+@Slf4j
+public class WriteAheadLog implements MutationLog, Closeable {
+
+    static final long SEGMENT_SIZE = 256L << 20;
+    private static final int HEADER_SIZE = Integer.BYTES + Integer.BYTES + Long.BYTES;
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path dir;
+    private final boolean syncCommit;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition hasPending = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+    // Запись в файл и смена сегмента выполняются только под этим замком
+    private final Object channelLock = new Object();
+    private final Thread flusher;
+
+    private Buffer pending = new Buffer();
+    private Buffer writing = new Buffer();
+    private long lastSeq;
+    private long flushedSeq;
+    private IOException failure;
+    private boolean closed;
+    private FileChannel channel;
+
+    public WriteAheadLog(Path dir, long lastSeq, boolean syncCommit) throws IOException {
+        this.dir = dir;
+        this.syncCommit = syncCommit;
+        this.lastSeq = lastSeq;
+        this.flushedSeq = lastSeq;
+        openSegment(lastSeq + 1);
+        flusher = new Thread(this::runFlusher, "wal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @Override
+    public void append(Mutation mutation) {
+        byte[] data = MutationCodec.encode(mutation);
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Журнал изменений закрыт");
+            }
+            pending.writeRecord(++lastSeq, data);
+            hasPending.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void sync() {
+        if (!syncCommit) {
+            return;
+        }
+        lock.lock();
+        try {
+            long target = lastSeq;
+            while (flushedSeq < target) {
+                if (failure != null) {
+                    throw new IllegalStateException("Ошибка записи журнала изменений", failure);
+                }
+                if (closed) {
+                    throw new IllegalStateException("Журнал изменений закрыт");
+                }
+                flushed.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Сбрасывает буфер на диск и начинает новый сегмент.
+     * Возвращает номер последней записи в закрытых сегментах: все изменения до него уже применены к хранилищам.
+     */
+    public long rotate() throws IOException {
+        synchronized (channelLock) {
+            long seq = flush();
+            openSegment(seq + 1);
+            return seq;
+        }
+    }
+
+    /**
+     * Удаляет сегменты, все записи которых не новее seq.
+     */
+    public void deleteSegmentsUpTo(long seq) throws IOException {
+        List<Segment> segments = segments(dir);
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            if (segments.get(i + 1).firstSeq <= seq + 1) {
+                Files.deleteIfExists(segments.get(i).path);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closed = true;
+            hasPending.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (channelLock) {
+            flush();
+            channel.close();
+        }
+    }
+
+    /**
+     * Передаёт consumer записи всех сегментов с номером больше afterSeq и возвращает номер последней записи.
+     * Недописанный хвост последнего сегмента (например, после сбоя питания) обрезается.
+     */
+    public static long replay(Path dir, long afterSeq, Consumer<Mutation> consumer) throws IOException {
+        long lastSeq = afterSeq;
+        List<Segment> segments = segments(dir);
+        for (int i = 0; i < segments.size(); i++) {
+            Segment segment = segments.get(i);
+            boolean last = i == segments.size() - 1;
+            if (!last && segments.get(i + 1).firstSeq <= afterSeq + 1) {
+                continue;
+            }
+            long validSize;
+            long size = Files.size(segment.path);
+            try (FileChannel readChannel = FileChannel.open(segment.path, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = readChannel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                CRC32 crc = new CRC32();
+                while (true) {
+                    int position = buffer.position();
+                    if (buffer.remaining() < HEADER_SIZE) {
+                        break;
+                    }
+                    int length = buffer.getInt();
+                    int checksum = buffer.getInt();
+                    if (length < 0 || buffer.remaining() < Long.BYTES + length) {
+                        buffer.position(position);
+                        break;
+                    }
+                    crc.reset();
+                    crc.update(buffer.slice().limit(Long.BYTES + length));
+                    if ((int) crc.getValue() != checksum) {
+                        buffer.position(position);
+                        break;
+                    }
+                    long seq = buffer.getLong();
+                    ByteBuffer data = buffer.slice().limit(length);
+                    buffer.position(buffer.position() + length);
+                    if (seq > lastSeq) {
+                        consumer.accept(MutationCodec.decode(data));
+                        lastSeq = seq;
+                    }
+                }
+                validSize = buffer.position();
+            }
+            if (validSize < size) {
+                if (!last) {
+                    throw new IOException("Повреждён сегмент журнала " + segment.path + " на позиции " + validSize);
+                }
+                log.warn("Обрезан недописанный хвост журнала {}: {} байт", segment.path, size - validSize);
+                try (FileChannel writeChannel = FileChannel.open(segment.path, StandardOpenOption.WRITE)) {
+                    writeChannel.truncate(validSize);
+                }
+            }
+        }
+        return lastSeq;
+    }
+
+    private void runFlusher() {
+        while (true) {
+            lock.lock();
+            try {
+                while (pending.size() == 0 && !closed) {
+                    hasPending.awaitUninterruptibly();
+                }
+                if (closed) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+            try {
+                synchronized (channelLock) {
+                    long seq = flush();
+                    if (channel.size() >= SEGMENT_SIZE) {
+                        openSegment(seq + 1);
+                    }
+                }
+            } catch (IOException e) {
+                log.error("Ошибка записи журнала изменений", e);
+                lock.lock();
+                try {
+                    failure = e;
+                    flushed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            }
+        }
+    }
+
+    // Вызывается под channelLock
+    private long flush() throws IOException {
+        long seq;
+        lock.lock();
+        try {
+            Buffer batch = pending;
+            pending = writing;
+            writing = batch;
+            seq = lastSeq;
+        } finally {
+            lock.unlock();
+        }
+        if (writing.size() > 0) {
+            ByteBuffer bytes = writing.asByteBuffer();
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(false);
+            writing.reset();
+        }
+        lock.lock();
+        try {
+            flushedSeq = seq;
+            flushed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        return seq;
+    }
+
+    // Вызывается под channelLock или из конструктора
+    private void openSegment(long firstSeq) throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+        Path path = dir.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSeq, SEGMENT_SUFFIX));
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        // Новый файл должен пережить сбой вместе с записью о нём в каталоге
+        channel.force(true);
+    }
+
+    private static List<Segment> segments(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files
+                    .filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX)
+                            && path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .map(Segment::new)
+                    .sorted((first, second) -> Long.compare(first.firstSeq, second.firstSeq))
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+
+    private static final class Segment {
+
+        private final Path path;
+        private final long firstSeq;
+
+        private Segment(Path path) {
+            String name = path.getFileName().toString();
+            this.path = path;
+            this.firstSeq = Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                    name.length() - SEGMENT_SUFFIX.length()));
+        }
+    }
+
+    private static final class Buffer extends ByteArrayOutputStream {
+
+        private final CRC32 crc = new CRC32();
+        private final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+
+        Buffer() {
+            super(64 * 1024);
+        }
+
+        void writeRecord(long seq, byte[] data) {
+            header.clear();
+            header.putInt(data.length);
+            header.putInt(0);
+            header.putLong(seq);
+            crc.reset();
+            crc.update(header.array(), Integer.BYTES * 2, Long.BYTES);
+            crc.update(data);
+            header.putInt(Integer.BYTES, (int) crc.getValue());
+            write(header.array(), 0, HEADER_SIZE);
+            write(data, 0, data.length);
+        }
+
+        ByteBuffer asByteBuffer() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+}
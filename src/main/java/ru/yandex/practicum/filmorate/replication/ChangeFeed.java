@@ -0,0 +1,91 @@
+package ru.yandex.practicum.filmorate.replication;
+
+import ru.yandex.practicum.filmorate.persistence.MutationCodec;
+import ru.yandex.practicum.filmorate.storage.Mutation;
+import ru.yandex.practicum.filmorate.storage.MutationLog;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Упорядоченная лента изменений хранилищ в памяти для реплик чтения. Изменение получает следующий номер
+ * и кодируется при добавлении: append вызывается под замком фильма или пользователя, поэтому порядок номеров
+ * совпадает с порядком изменений каждого объекта, а закодированная копия не меняется вместе с ним.
+ * Хранятся последние capacity изменений; реплика, отставшая сильнее, загружает снимок заново.
+ * Лента не делает изменения надёжными, sync ничего не ждёт - это задача журнала на диске.
+ */
+public class ChangeFeed implements MutationLog {
+
+    private final byte[][] records;
+    private final long[] appendedAt;
+    private final int mask;
+    private volatile long lastSeq;
+
+    public ChangeFeed(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ёмкость ленты должна быть степенью двойки: " + capacity);
+        }
+        records = new byte[capacity][];
+        appendedAt = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    @Override
+    public void append(Mutation mutation) {
+        byte[] record = MutationCodec.encode(mutation);
+        long now = System.nanoTime();
+        synchronized (this) {
+            long seq = lastSeq + 1;
+            records[(int) seq & mask] = record;
+            appendedAt[(int) seq & mask] = now;
+            lastSeq = seq;
+        }
+    }
+
+    @Override
+    public void sync() {
+    }
+
+    public long getLastSeq() {
+        return lastSeq;
+    }
+
+    public int getCapacity() {
+        return records.length;
+    }
+
+    /**
+     * Не больше max изменений с номерами после afterSeq по порядку; null, если часть из них уже вытеснена.
+     */
+    public List<Mutation> read(long afterSeq, int max) {
+        byte[][] batch;
+        synchronized (this) {
+            if (afterSeq < lastSeq - records.length) {
+                return null;
+            }
+            batch = new byte[(int) Math.min(max, lastSeq - afterSeq)][];
+            for (int i = 0; i < batch.length; i++) {
+                batch[i] = records[(int) (afterSeq + 1 + i) & mask];
+            }
+        }
+        List<Mutation> mutations = new ArrayList<>(batch.length);
+        for (byte[] record : batch) {
+            mutations.add(MutationCodec.decode(ByteBuffer.wrap(record)));
+        }
+        return mutations;
+    }
+
+    /**
+     * Сколько миллисекунд назад добавлено первое изменение после afterSeq: столько отстаёт реплика,
+     * применившая изменения по afterSeq. 0, если новых изменений нет.
+     */
+    public synchronized long lagMillis(long afterSeq) {
+        if (afterSeq >= lastSeq) {
+            return 0;
+        }
+        long seq = Math.max(afterSeq + 1, lastSeq - records.length + 1);
+        return (System.nanoTime() - appendedAt[(int) seq & mask]) / 1_000_000;
+    }
+
+}
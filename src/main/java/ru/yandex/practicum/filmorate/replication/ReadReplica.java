@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate.replication;
+
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.Mutation;
+
+import java.util.List;
+
+/**
+ * Реплика чтения: свои хранилища в памяти, в которые по порядку применяются изменения ленты.
+ * Изменения применяются одним потоком, читать хранилища реплики можно одновременно с этим.
+ * appliedSeq растёт только после применения изменений, поэтому реплика с appliedSeq не меньше номера
+ * изменения уже содержит его результат.
+ */
+public class ReadReplica {
+
+    private final String name;
+    private final InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+    private final InMemoryUserStorage userStorage = new InMemoryUserStorage();
+    private volatile long appliedSeq;
+
+    public ReadReplica(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public InMemoryFilmStorage getFilmStorage() {
+        return filmStorage;
+    }
+
+    public InMemoryUserStorage getUserStorage() {
+        return userStorage;
+    }
+
+    public long getAppliedSeq() {
+        return appliedSeq;
+    }
+
+    /**
+     * Заменяет содержимое реплики снимком, снятым после изменения seq. Изменения ленты после seq,
+     * уже попавшие в снимок, при повторном применении результат не меняют.
+     */
+    public void load(long seq, List<Mutation> snapshot) {
+        filmStorage.apply(List.of(Mutation.clearFilms()));
+        userStorage.apply(List.of(Mutation.clearUsers()));
+        apply(snapshot);
+        appliedSeq = seq;
+    }
+
+    /**
+     * Применяет не больше max следующих изменений ленты и возвращает их число,
+     * -1 - если реплика отстала больше ёмкости ленты и нужен снимок.
+     */
+    public int catchUp(ChangeFeed feed, int max) {
+        List<Mutation> mutations = feed.read(appliedSeq, max);
+        if (mutations == null) {
+            return -1;
+        }
+        apply(mutations);
+        appliedSeq += mutations.size();
+        return mutations.size();
+    }
+
+    // Подряд идущие изменения фильмов и пользователей применяются пачками в своё хранилище
+    private void apply(List<Mutation> mutations) {
+        int start = 0;
+        for (int i = 1; i <= mutations.size(); i++) {
+            if (i == mutations.size()
+                    || mutations.get(i).isFilmMutation() != mutations.get(start).isFilmMutation()) {
+                List<Mutation> run = mutations.subList(start, i);
+                if (mutations.get(start).isFilmMutation()) {
+                    filmStorage.apply(run);
+                } else {
+                    userStorage.apply(run);
+                }
+                start = i;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,193 @@
+package ru.yandex.practicum.filmorate.replication;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.persistence.MutationCodec;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.Mutation;
+import ru.yandex.practicum.filmorate.storage.MutationLog;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Реплики чтения хранилищ в памяти (filmorate.replication.replicas > 0). Хранилища процесса остаются
+ * единственным местом записи, их изменения идут в ChangeFeed, а каждая реплика применяет ленту своим потоком
+ * read-replica-N и при старте или сильном отставании загружает снимок. Чтение уходит на реплику по кругу,
+ * если она отстаёт не больше чем на max-lag изменений от ленты на момент чтения, иначе - в основное хранилище.
+ * При max-lag=0 реплика уже содержит все изменения, завершённые до начала чтения, поэтому ответы и кэши
+ * не отстают от основного хранилища. Отставание реплик в изменениях и миллисекундах видно в метриках.
+ * Без реплик и для хранилищ не в памяти чтение всегда идёт в основное хранилище.
+ */
+@Slf4j
+@Component
+public class ReadReplicas implements SmartInitializingSingleton, DisposableBean {
+
+    private static final int BATCH = 4096;
+
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final long maxLag;
+    private final long pollIntervalNanos;
+    private final ChangeFeed feed;
+    private final List<ReadReplica> replicas;
+    private final List<Thread> followers = new ArrayList<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private volatile boolean running;
+
+    @Autowired
+    public ReadReplicas(FilmStorage filmStorage, UserStorage userStorage,
+                        @Value("${filmorate.replication.replicas:0}") int replicas,
+                        @Value("${filmorate.replication.feed-capacity:65536}") int feedCapacity,
+                        @Value("${filmorate.replication.max-lag:0}") long maxLag,
+                        @Value("${filmorate.replication.poll-interval-ms:1}") long pollIntervalMillis) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.maxLag = maxLag;
+        this.pollIntervalNanos = TimeUnit.MILLISECONDS.toNanos(pollIntervalMillis);
+        boolean inMemory = filmStorage instanceof InMemoryFilmStorage && userStorage instanceof InMemoryUserStorage;
+        if (replicas > 0 && !inMemory) {
+            log.warn("Реплики чтения поддерживаются только для хранилищ в памяти, чтение идёт в основное хранилище");
+        }
+        List<ReadReplica> created = new ArrayList<>();
+        if (inMemory) {
+            for (int i = 0; i < replicas; i++) {
+                created.add(new ReadReplica("read-replica-" + i));
+            }
+        }
+        this.replicas = List.copyOf(created);
+        this.feed = this.replicas.isEmpty() ? null : new ChangeFeed(feedCapacity);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (replicas.isEmpty()) {
+            return;
+        }
+        // Лента подключается после журнала на диске, если он есть: изменения пишутся в оба
+        InMemoryFilmStorage films = (InMemoryFilmStorage) filmStorage;
+        InMemoryUserStorage users = (InMemoryUserStorage) userStorage;
+        films.setMutationLog(MutationLog.both(films.getMutationLog(), feed));
+        users.setMutationLog(MutationLog.both(users.getMutationLog(), feed));
+        running = true;
+        for (ReadReplica replica : replicas) {
+            load(replica);
+            Thread follower = new Thread(() -> follow(replica), replica.getName());
+            follower.setDaemon(true);
+            follower.start();
+            followers.add(follower);
+        }
+        log.info("Реплики чтения запущены. Количество: {}; Лента: {}; Допустимое отставание: {}",
+                replicas.size(), feed.getCapacity(), maxLag);
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        for (Thread follower : followers) {
+            LockSupport.unpark(follower);
+            follower.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    /**
+     * Хранилище фильмов для чтения: реплика с допустимым отставанием или основное хранилище.
+     */
+    public FilmStorage films() {
+        ReadReplica replica = pick();
+        return replica == null ? filmStorage : replica.getFilmStorage();
+    }
+
+    /**
+     * Хранилище пользователей для чтения: реплика с допустимым отставанием или основное хранилище.
+     */
+    public UserStorage users() {
+        ReadReplica replica = pick();
+        return replica == null ? userStorage : replica.getUserStorage();
+    }
+
+    // Чтение может вернуть данные старше основного хранилища: репликам разрешено отставать
+    public boolean mayLag() {
+        return !replicas.isEmpty() && maxLag > 0;
+    }
+
+    public List<ReadReplica> getReplicas() {
+        return replicas;
+    }
+
+    // Отставание реплики от ленты в изменениях
+    public long lag(ReadReplica replica) {
+        return feed.getLastSeq() - replica.getAppliedSeq();
+    }
+
+    public long lagMillis(ReadReplica replica) {
+        return feed.lagMillis(replica.getAppliedSeq());
+    }
+
+    private ReadReplica pick() {
+        if (replicas.isEmpty()) {
+            return null;
+        }
+        long required = feed.getLastSeq() - maxLag;
+        int start = next.getAndIncrement();
+        for (int i = 0; i < replicas.size(); i++) {
+            ReadReplica replica = replicas.get(Math.floorMod(start + i, replicas.size()));
+            if (replica.getAppliedSeq() >= required) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    private void follow(ReadReplica replica) {
+        while (running) {
+            try {
+                int applied = replica.catchUp(feed, BATCH);
+                if (applied < 0) {
+                    log.warn("Реплика {} отстала больше ёмкости ленты, загрузка снимка", replica.getName());
+                    load(replica);
+                } else if (applied < BATCH) {
+                    LockSupport.parkNanos(pollIntervalNanos);
+                }
+            } catch (RuntimeException e) {
+                log.error("Ошибка применения ленты изменений репликой {}, загрузка снимка", replica.getName(), e);
+                load(replica);
+            }
+        }
+    }
+
+    // Номер ленты берётся до чтения хранилищ: всё, что попадёт в снимок позже, применится повторно без вреда
+    private void load(ReadReplica replica) {
+        long started = System.nanoTime();
+        long seq = feed.getLastSeq();
+        List<Mutation> snapshot = new ArrayList<>();
+        for (Film film : filmStorage.getAllFilms()) {
+            snapshot.add(copy(Mutation.createFilm(film)));
+        }
+        for (User user : userStorage.getAllUsers()) {
+            snapshot.add(copy(Mutation.createUser(user)));
+        }
+        replica.load(seq, snapshot);
+        log.info("Реплика {} загрузила снимок за {} мс. Изменение: {}; Объектов: {}", replica.getName(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), seq, snapshot.size());
+    }
+
+    // Реплика получает свои копии объектов в том же формате, что и лента
+    private static Mutation copy(Mutation mutation) {
+        return MutationCodec.decode(ByteBuffer.wrap(MutationCodec.encode(mutation)));
+    }
+
+}
@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.service;
+
+/**
+ * Имена кэшей сервисов. Размер и время жизни задаются в spring.cache.caffeine.spec,
+ * у популярных фильмов - в filmorate.cache.popular-films-spec.
+ */
+public final class CacheNames {
+
+    public static final String FILMS = "films";
+    public static final String POPULAR_FILMS = "popularFilms";
+    public static final String USERS = "users";
+    public static final String RECOMMENDATIONS = "recommendations";
+
+    private CacheNames() {
+    }
+}
@@ -0,0 +1,492 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.util.SortedIntSet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+/**
+ * Рекомендации фильмов по схожести фильмов: пользователи, лайкнувшие фильм, лайкали и его соседей.
+ * Схожесть двух фильмов - число общих лайкнувших, делённое на корень из произведения числа их лайков.
+ * Для каждого фильма хранится не больше neighbours самых похожих фильмов, а рекомендации пользователю -
+ * соседи лайкнутых им фильмов по сумме схожестей, без уже лайкнутых.
+ * <p>
+ * Фоновый поток film-recommendations при запуске и раз в rebuild-seconds строит всё заново: проходит
+ * хранилище страницами, строит разреженную матрицу пользователь-фильм в массивах int и считает соседей
+ * всех фильмов параллельно в общем ForkJoinPool. Раз в refresh-seconds пересчитываются соседи только тех
+ * фильмов, у которых менялись лайки. Лайки пользователя попадают в его рекомендации сразу: изменения после
+ * построения матрицы хранятся отдельно до следующего построения. Замена лайков при обновлении фильма
+ * учитывается при следующем построении. Фильмы больше чем с MAX_LIKERS лайками и пользователи больше чем
+ * с MAX_USER_LIKES лайками учитываются по равномерной выборке.
+ */
+@Slf4j
+@Component
+public class FilmRecommendations implements SmartInitializingSingleton, DisposableBean {
+
+    public static final int MAX_RECOMMENDATIONS = 100;
+    private static final int PAGE_SIZE = 10_000;
+    private static final int MAX_LIKERS = 2_000;
+    private static final int MAX_USER_LIKES = 500;
+    // При стольких изменившихся фильмах из каждых 10 дешевле построить всё заново
+    private static final int REBUILD_DIRTY_RATIO = 10;
+
+    private static final ThreadLocal<CoCounter> COUNTERS = ThreadLocal.withInitial(CoCounter::new);
+
+    private final FilmStorage filmStorage;
+    private final int neighbours;
+    private final long refreshSeconds;
+    private final long rebuildSeconds;
+    private final Set<Integer> dirtyFilms = ConcurrentHashMap.newKeySet();
+
+    private volatile LikesMatrix matrix = LikesMatrix.EMPTY;
+    private volatile Map<Integer, Neighbours> neighboursByFilm = new ConcurrentHashMap<>();
+    private volatile LikeChanges changes = new LikeChanges();
+    // Изменения, попавшие в строящуюся матрицу; нужны, пока она не заменила прежнюю
+    private volatile LikeChanges buildingChanges = new LikeChanges();
+    private ScheduledExecutorService scheduler;
+
+    @Autowired
+    public FilmRecommendations(FilmStorage filmStorage,
+                               @Value("${filmorate.recommendations.neighbours:20}") int neighbours,
+                               @Value("${filmorate.recommendations.refresh-seconds:10}") long refreshSeconds,
+                               @Value("${filmorate.recommendations.rebuild-seconds:3600}") long rebuildSeconds) {
+        this.filmStorage = filmStorage;
+        this.neighbours = neighbours;
+        this.refreshSeconds = refreshSeconds;
+        this.rebuildSeconds = rebuildSeconds;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (refreshSeconds <= 0) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "film-recommendations");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.execute(this::scheduledRebuild);
+        scheduler.scheduleWithFixedDelay(this::scheduledRefresh, refreshSeconds, refreshSeconds, TimeUnit.SECONDS);
+        if (rebuildSeconds > 0) {
+            scheduler.scheduleWithFixedDelay(this::scheduledRebuild,
+                    rebuildSeconds, rebuildSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Id не более count рекомендованных фильмов по убыванию суммы схожестей, при равенстве - по возрастанию id.
+     */
+    public List<Integer> recommend(int userId, int count) {
+        int[] liked = filmsOfUser(userId);
+        Map<Integer, Neighbours> current = neighboursByFilm;
+        Map<Integer, Float> scores = new HashMap<>();
+        int sampled = Math.min(liked.length, MAX_USER_LIKES);
+        for (int i = 0; i < sampled; i++) {
+            Neighbours filmNeighbours = current.get(liked[sample(i, liked.length, sampled)]);
+            if (filmNeighbours == null) {
+                continue;
+            }
+            for (int j = 0; j < filmNeighbours.ids.length; j++) {
+                if (Arrays.binarySearch(liked, filmNeighbours.ids[j]) < 0) {
+                    scores.merge(filmNeighbours.ids[j], filmNeighbours.scores[j], Float::sum);
+                }
+            }
+        }
+        TopScores top = new TopScores(count);
+        for (Map.Entry<Integer, Float> score : scores.entrySet()) {
+            top.offer(score.getKey(), score.getValue());
+        }
+        List<Integer> ids = new ArrayList<>(top.size);
+        for (int id : top.ids()) {
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    public void like(int filmId, int userId) {
+        changes.like(userId, filmId);
+        matrix.adjustLikes(filmId, 1);
+        dirtyFilms.add(filmId);
+    }
+
+    public void unlike(int filmId, int userId) {
+        changes.unlike(userId, filmId);
+        matrix.adjustLikes(filmId, -1);
+        dirtyFilms.add(filmId);
+    }
+
+    public synchronized void clear() {
+        matrix = LikesMatrix.EMPTY;
+        neighboursByFilm = new ConcurrentHashMap<>();
+        changes = new LikeChanges();
+        buildingChanges = new LikeChanges();
+        dirtyFilms.clear();
+    }
+
+    /**
+     * Строит матрицу лайков и соседей всех фильмов заново по хранилищу.
+     */
+    public synchronized void rebuild() {
+        long started = System.nanoTime();
+        dirtyFilms.clear();
+        buildingChanges = changes;
+        changes = new LikeChanges();
+        List<Integer> filmIds = new ArrayList<>();
+        List<int[]> filmLikers = new ArrayList<>();
+        int maxUserId = 0;
+        int afterId = 0;
+        List<Film> page;
+        do {
+            page = filmStorage.getFilmsPage(afterId, PAGE_SIZE);
+            for (Film film : page) {
+                int[] likers = SortedIntSet.of(film.getLikes()).toIntArray();
+                filmIds.add(film.getId());
+                filmLikers.add(likers);
+                if (likers.length > 0) {
+                    maxUserId = Math.max(maxUserId, likers[likers.length - 1]);
+                }
+                afterId = film.getId();
+            }
+        } while (page.size() == PAGE_SIZE);
+        LikesMatrix built = LikesMatrix.build(filmIds, filmLikers, maxUserId);
+        Map<Integer, Neighbours> builtNeighbours = new ConcurrentHashMap<>(filmIds.size() * 4 / 3 + 1);
+        IntStream.range(0, filmIds.size()).parallel().forEach(i -> {
+            Neighbours filmNeighbours = computeNeighbours(built, filmIds.get(i), filmLikers.get(i), false);
+            if (filmNeighbours != null) {
+                builtNeighbours.put(filmIds.get(i), filmNeighbours);
+            }
+        });
+        matrix = built;
+        neighboursByFilm = builtNeighbours;
+        buildingChanges = new LikeChanges();
+        log.info("Рекомендации фильмов построены за {} мс. Фильмов: {}; Лайков: {}",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), filmIds.size(), built.userFilms.length);
+    }
+
+    /**
+     * Пересчитывает соседей фильмов, у которых менялись лайки. Если таких слишком много, строит всё заново.
+     */
+    public synchronized void refresh() {
+        if (dirtyFilms.isEmpty()) {
+            return;
+        }
+        if (dirtyFilms.size() * REBUILD_DIRTY_RATIO > matrix.filmsCount) {
+            rebuild();
+            return;
+        }
+        List<Integer> ids = new ArrayList<>(dirtyFilms);
+        dirtyFilms.removeAll(ids);
+        LikesMatrix current = matrix;
+        Map<Integer, Neighbours> currentNeighbours = neighboursByFilm;
+        List<Film> films = filmStorage.getFilmsByIds(ids);
+        films.parallelStream().forEach(film -> {
+            Neighbours filmNeighbours = computeNeighbours(current, film.getId(),
+                    SortedIntSet.of(film.getLikes()).toIntArray(), true);
+            if (filmNeighbours == null) {
+                currentNeighbours.remove(film.getId());
+            } else {
+                currentNeighbours.put(film.getId(), filmNeighbours);
+            }
+        });
+        // Удалённые фильмы больше не рекомендуются
+        Set<Integer> missing = new HashSet<>(ids);
+        for (Film film : films) {
+            missing.remove(film.getId());
+        }
+        currentNeighbours.keySet().removeAll(missing);
+        log.debug("Пересчитаны соседи изменившихся фильмов. Фильмов: {}", ids.size());
+    }
+
+    // Соседи фильма по лайкам его likers; withChanges - учитывать лайки после построения матрицы
+    private Neighbours computeNeighbours(LikesMatrix likesMatrix, int filmId, int[] likers, boolean withChanges) {
+        CoCounter counter = COUNTERS.get();
+        int sampledLikers = Math.min(likers.length, MAX_LIKERS);
+        for (int i = 0; i < sampledLikers; i++) {
+            int userId = likers[sample(i, likers.length, sampledLikers)];
+            int[] films;
+            int from;
+            int to;
+            if (withChanges && hasChanges(userId)) {
+                films = filmsOfUser(userId);
+                from = 0;
+                to = films.length;
+            } else {
+                films = likesMatrix.userFilms;
+                from = likesMatrix.from(userId);
+                to = likesMatrix.to(userId);
+            }
+            int sampledFilms = Math.min(to - from, MAX_USER_LIKES);
+            for (int j = 0; j < sampledFilms; j++) {
+                int otherId = films[from + sample(j, to - from, sampledFilms)];
+                if (otherId != filmId) {
+                    counter.add(otherId);
+                }
+            }
+        }
+        TopScores top = new TopScores(neighbours);
+        for (int i = 0; i < counter.size; i++) {
+            int otherId = counter.touched[i];
+            int common = counter.counts[otherId];
+            counter.counts[otherId] = 0;
+            int otherLikes = Math.max(likesMatrix.likes(otherId), common);
+            top.offer(otherId, (float) (common / Math.sqrt((double) likers.length * otherLikes)));
+        }
+        counter.size = 0;
+        if (top.size == 0) {
+            return null;
+        }
+        return new Neighbours(top.ids(), top.scores());
+    }
+
+    // Отсортированные id фильмов, лайкнутых пользователем: матрица и изменения после её построения
+    private int[] filmsOfUser(int userId) {
+        LikesMatrix current = matrix;
+        int[] films = Arrays.copyOfRange(current.userFilms, current.from(userId), current.to(userId));
+        if (!hasChanges(userId)) {
+            return films;
+        }
+        SortedIntSet set = SortedIntSet.ofSorted(films);
+        buildingChanges.applyTo(userId, set);
+        changes.applyTo(userId, set);
+        return set.toIntArray();
+    }
+
+    private boolean hasChanges(int userId) {
+        return buildingChanges.has(userId) || changes.has(userId);
+    }
+
+    // Индекс i-го из sampled элементов равномерной выборки из size
+    private static int sample(int i, int size, int sampled) {
+        return (int) ((long) i * size / sampled);
+    }
+
+    private void scheduledRebuild() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.error("Ошибка построения рекомендаций фильмов", e);
+        }
+    }
+
+    private void scheduledRefresh() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            log.error("Ошибка пересчёта рекомендаций фильмов", e);
+        }
+    }
+
+    /**
+     * Матрица пользователь-фильм в формате CSR: фильмы пользователя u - userFilms[offsets[u]..offsets[u + 1]),
+     * по возрастанию id. Число лайков фильмов индексируется id фильма и меняется вместе с лайками.
+     */
+    private static final class LikesMatrix {
+
+        static final LikesMatrix EMPTY = new LikesMatrix(new int[1], new int[0], new AtomicIntegerArray(0), 0);
+
+        final int[] offsets;
+        final int[] userFilms;
+        final AtomicIntegerArray likes;
+        final int filmsCount;
+
+        LikesMatrix(int[] offsets, int[] userFilms, AtomicIntegerArray likes, int filmsCount) {
+            this.offsets = offsets;
+            this.userFilms = userFilms;
+            this.likes = likes;
+            this.filmsCount = filmsCount;
+        }
+
+        static LikesMatrix build(List<Integer> filmIds, List<int[]> filmLikers, int maxUserId) {
+            int[] offsets = new int[maxUserId + 2];
+            int maxFilmId = filmIds.isEmpty() ? 0 : filmIds.get(filmIds.size() - 1);
+            AtomicIntegerArray likes = new AtomicIntegerArray(maxFilmId + 1);
+            for (int i = 0; i < filmIds.size(); i++) {
+                likes.set(filmIds.get(i), filmLikers.get(i).length);
+                for (int userId : filmLikers.get(i)) {
+                    offsets[userId + 1]++;
+                }
+            }
+            for (int userId = 0; userId <= maxUserId; userId++) {
+                offsets[userId + 1] += offsets[userId];
+            }
+            int[] userFilms = new int[offsets[maxUserId + 1]];
+            int[] next = Arrays.copyOf(offsets, maxUserId + 1);
+            // Фильмы идут по возрастанию id, поэтому списки пользователей получаются отсортированными
+            for (int i = 0; i < filmIds.size(); i++) {
+                for (int userId : filmLikers.get(i)) {
+                    userFilms[next[userId]++] = filmIds.get(i);
+                }
+            }
+            return new LikesMatrix(offsets, userFilms, likes, filmIds.size());
+        }
+
+        int from(int userId) {
+            return userId >= 0 && userId < offsets.length - 1 ? offsets[userId] : 0;
+        }
+
+        int to(int userId) {
+            return userId >= 0 && userId < offsets.length - 1 ? offsets[userId + 1] : 0;
+        }
+
+        int likes(int filmId) {
+            return filmId < likes.length() ? likes.get(filmId) : 0;
+        }
+
+        void adjustLikes(int filmId, int delta) {
+            if (filmId < likes.length()) {
+                likes.addAndGet(filmId, delta);
+            }
+        }
+    }
+
+    // Лайки и их снятия по пользователям после построения матрицы; фильм не бывает в обоих множествах
+    private static final class LikeChanges {
+
+        private final Map<Integer, SortedIntSet> added = new ConcurrentHashMap<>();
+        private final Map<Integer, SortedIntSet> removed = new ConcurrentHashMap<>();
+
+        void like(int userId, int filmId) {
+            SortedIntSet removedFilms = removed.get(userId);
+            if (removedFilms != null) {
+                removedFilms.remove(filmId);
+            }
+            added.computeIfAbsent(userId, id -> new SortedIntSet()).add(filmId);
+        }
+
+        void unlike(int userId, int filmId) {
+            SortedIntSet addedFilms = added.get(userId);
+            if (addedFilms != null) {
+                addedFilms.remove(filmId);
+            }
+            removed.computeIfAbsent(userId, id -> new SortedIntSet()).add(filmId);
+        }
+
+        boolean has(int userId) {
+            return added.containsKey(userId) || removed.containsKey(userId);
+        }
+
+        void applyTo(int userId, SortedIntSet films) {
+            SortedIntSet removedFilms = removed.get(userId);
+            if (removedFilms != null) {
+                for (int filmId : removedFilms.toIntArray()) {
+                    films.remove(filmId);
+                }
+            }
+            SortedIntSet addedFilms = added.get(userId);
+            if (addedFilms != null) {
+                for (int filmId : addedFilms.toIntArray()) {
+                    films.add(filmId);
+                }
+            }
+        }
+    }
+
+    private static final class Neighbours {
+
+        final int[] ids;
+        final float[] scores;
+
+        Neighbours(int[] ids, float[] scores) {
+            this.ids = ids;
+            this.scores = scores;
+        }
+    }
+
+    // Счётчики общих лайкнувших по id фильма; обнуляются после каждого фильма по списку затронутых
+    private static final class CoCounter {
+
+        int[] counts = new int[0];
+        int[] touched = new int[1024];
+        int size;
+
+        void add(int filmId) {
+            if (filmId >= counts.length) {
+                counts = Arrays.copyOf(counts, Math.max(filmId + 1, counts.length * 2));
+            }
+            if (counts[filmId]++ == 0) {
+                if (size == touched.length) {
+                    touched = Arrays.copyOf(touched, size * 2);
+                }
+                touched[size++] = filmId;
+            }
+        }
+    }
+
+    /**
+     * Лучшие capacity фильмов по оценке. Оценка и инвертированный id упакованы в long так,
+     * что больший long - лучший фильм: биты неотрицательного float упорядочены как его значения.
+     */
+    private static final class TopScores {
+
+        // По возрастанию, best[0] - худший из отобранных
+        private final long[] best;
+        private int size;
+
+        TopScores(int capacity) {
+            this.best = new long[capacity];
+        }
+
+        void offer(int id, float score) {
+            long candidate = ((long) Float.floatToIntBits(score) << 32) | (Integer.MAX_VALUE - id);
+            int i;
+            if (size < best.length) {
+                i = size++;
+                for (; i > 0 && best[i - 1] > candidate; i--) {
+                    best[i] = best[i - 1];
+                }
+            } else if (size > 0 && candidate > best[0]) {
+                i = 0;
+                for (; i + 1 < size && best[i + 1] < candidate; i++) {
+                    best[i] = best[i + 1];
+                }
+            } else {
+                return;
+            }
+            best[i] = candidate;
+        }
+
+        // Id по убыванию оценки
+        int[] ids() {
+            int[] ids = new int[size];
+            for (int i = 0; i < size; i++) {
+                ids[i] = Integer.MAX_VALUE - (int) best[size - 1 - i];
+            }
+            return ids;
+        }
+
+        float[] scores() {
+            float[] scores = new float[size];
+            for (int i = 0; i < size; i++) {
+                scores[i] = Float.intBitsToFloat((int) (best[size - 1 - i] >>> 32));
+            }
+            return scores;
+        }
+    }
+}
@@ -1,23 +1,44 @@
 package ru.yandex.practicum.filmorate.service;
 
+import ru.yandex.practicum.filmorate.model.BatchResponse;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmQuery;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.storage.ModificationCounter;
 import java.util.List;
 
 public interface FilmService {
     List<Film> findAll();
 
+    List<Film> findPage(Integer afterId, Integer limit);
+
     Film findFilm(Integer id);
 
     List<Film> getPopFilms(Integer count);
 
+    List<Film> getTrendingFilms(String window, Integer count);
+
+    List<Film> searchFilms(FilmQuery query);
+
+    List<Film> getRecommendedFilms(Integer userId, Integer count);
+
     Film create(Film film);
 
     Film update(Film film);
 
+    BatchResponse createAll(List<Film> films);
+
     Film addLike(Integer id, Integer userId);
 
     Film delLike(Integer id, Integer userId);
 
+    BatchResponse addLikes(List<Like> likes);
+
     void clearAll();
 
+    ModificationCounter getModifications();
+
+    // Версия наброска популярных фильмов: входит в ETag популярных вместе с версией хранилища
+    long getPopularSketchVersion();
+
 }
\ No newline at end of file
@@ -2,85 +2,331 @@ package ru.yandex.practicum.filmorate.service;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exeption.NotFoundException;
 import ru.yandex.practicum.filmorate.exeption.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchResponse;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmQuery;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.replication.ReadReplicas;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.ModificationCounter;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Slf4j
 @Service
 public class FilmServiceImpl implements FilmService {
+    static final int MAX_PAGE_SIZE = 1000;
+
     private final FilmStorage filmStorage;
     private final UserStorage userStorage;
+    private final TrendingFilms trendingFilms;
+    private final PopularFilmsSketch popularFilmsSketch;
+    private final FilmRecommendations filmRecommendations;
+    private final LikeIngestion likeIngestion;
+    private final ReadReplicas readReplicas;
 
     @Autowired
-    public FilmServiceImpl(FilmStorage filmStorage, UserStorage userStorage) {
+    public FilmServiceImpl(FilmStorage filmStorage, UserStorage userStorage, TrendingFilms trendingFilms,
+                           PopularFilmsSketch popularFilmsSketch, FilmRecommendations filmRecommendations,
+                           LikeIngestion likeIngestion, ReadReplicas readReplicas) {
         this.filmStorage = filmStorage;
         this.userStorage = userStorage;
+        this.trendingFilms = trendingFilms;
+        this.popularFilmsSketch = popularFilmsSketch;
+        this.filmRecommendations = filmRecommendations;
+        this.likeIngestion = likeIngestion;
+        this.readReplicas = readReplicas;
+        likeIngestion.setHandler(this::applyQueuedLikes);
     }
 
     public List<Film> findAll() {
-        log.info("Обработка запроса на получение списка фильмов");
-        return filmStorage.getAllFilms();
+        log.debug("Обработка запроса на получение списка фильмов");
+        return readReplicas.films().getAllFilms();
+    }
+
+    public List<Film> findPage(Integer afterId, Integer limit) {
+        log.debug("Обработка запроса на получение страницы фильмов. После id: {}; Размер: {}", afterId, limit);
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new ValidationException("Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        return filmStorage.getFilmsPage(afterId, limit);
     }
 
+    // Ответ отстающей реплики в кэше прожил бы весь срок записи, поэтому такие чтения не кэшируются
+    @Cacheable(cacheNames = CacheNames.FILMS, key = "#id", condition = "!#root.target.readsMayLag()")
     public Film findFilm(Integer id) {
-        return filmStorage.getFilmById(id);
+        return readReplicas.films().getFilmById(id);
     }
 
+    /**
+     * В ключе кэша версия хранилища, прочитанная до списка. Хранилище увеличивает версию раньше, чем сервис
+     * сбрасывает кэш, и без версии в ключе запрос между ними получил бы под новым ETag список до изменения.
+     * Поэтому фильмы и лайки кэш популярных не сбрасывают: записи прежних версий больше не читаются
+     * и уходят по времени жизни (PopularFilmsCacheCustomizer). Набросок получает лайк уже после хранилища,
+     * поэтому в ключе и его версия. Списки с отстающих реплик не кэшируются, как и findFilm.
+     */
+    @Cacheable(cacheNames = CacheNames.POPULAR_FILMS, key = "#count + '-' + #root.target.getPopularVersion()",
+            condition = "!#root.target.readsMayLag()")
     public List<Film> getPopFilms(Integer count) {
-        log.info("Обработка запроса на получение {} наиболее популярных фильмов", count);
-        List<Film> allFilms = filmStorage.getAllFilms();
-        allFilms.sort((film1, film2) -> film2.getLikes().size() - film1.getLikes().size());
-        if (allFilms.size() > count) {
-            return allFilms.subList(0, count);
-        } else {
-            return allFilms;
+        log.debug("Обработка запроса на получение {} наиболее популярных фильмов", count);
+        if (popularFilmsSketch.serves(count)) {
+            return filmsInOrder(popularFilmsSketch.top(count));
+        }
+        return readReplicas.films().getPopFilms(count);
+    }
+
+    public List<Film> getTrendingFilms(String window, Integer count) {
+        log.debug("Обработка запроса на получение {} набирающих популярность фильмов за окно {}", count, window);
+        if (count <= 0 || count > MAX_PAGE_SIZE) {
+            throw new ValidationException("Количество фильмов должно быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        return filmsInOrder(trendingFilms.top(TrendingWindow.parse(window), count));
+    }
+
+    public List<Film> searchFilms(FilmQuery query) {
+        log.debug("Обработка запроса на поиск фильмов. Условия: {}", query);
+        if (query.getLimit() <= 0 || query.getLimit() > MAX_PAGE_SIZE) {
+            throw new ValidationException("Количество фильмов должно быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        if (query.getFrom() != null && query.getTo() != null && query.getFrom().isAfter(query.getTo())) {
+            throw new ValidationException("Начало диапазона дат выхода не может быть позже конца");
+        }
+        if (query.getMinDuration() != null && query.getMaxDuration() != null
+                && query.getMinDuration() > query.getMaxDuration()) {
+            throw new ValidationException("Минимальная продолжительность не может быть больше максимальной");
+        }
+        return filmStorage.searchFilms(query);
+    }
+
+    public List<Film> getRecommendedFilms(Integer userId, Integer count) {
+        log.debug("Обработка запроса на получение {} рекомендованных фильмов. Пользователь: {}", count, userId);
+        if (count <= 0 || count > FilmRecommendations.MAX_RECOMMENDATIONS) {
+            throw new ValidationException("Количество фильмов должно быть от 1 до "
+                    + FilmRecommendations.MAX_RECOMMENDATIONS);
         }
+        userStorage.getUserById(userId);
+        return filmsInOrder(filmRecommendations.recommend(userId, count));
     }
 
     public Film create(Film film) {
-        log.info("Попытка загрузки фильма. Фильм: {}",film);
+        log.debug("Попытка загрузки фильма. Название: {}", film.getName());
         if (beforeFirstFilm(film.getReleaseDate())) {
-            log.warn("Ошибка создания фильма. дата релиза фильма не может быть раньше 28 декабря 1895 года. Фильм: {}",film);
+            log.warn("Ошибка создания фильма. дата релиза фильма не может быть раньше 28 декабря 1895 года. Дата релиза: {}",
+                    film.getReleaseDate());
             throw new ValidationException("Дата релиза фильма не может быть раньше 28 декабря 1895 года");
         }
         return filmStorage.createFilm(film);
     }
 
+    @CacheEvict(cacheNames = CacheNames.FILMS, key = "#film.id")
     public Film update(Film film) {
-        log.info("Попытка обновления фильма. Фильм: {}",film);
+        log.debug("Попытка обновления фильма. id: {}", film.getId());
         if (beforeFirstFilm(film.getReleaseDate())) {
-            log.warn("Ошибка обновления фильма. дата релиза фильма не может быть раньше 28 декабря 1895 года. Фильм: {}",film);
+            log.warn("Ошибка обновления фильма. дата релиза фильма не может быть раньше 28 декабря 1895 года. id: {}; "
+                    + "Дата релиза: {}", film.getId(), film.getReleaseDate());
             throw new ValidationException("Дата релиза фильма не может быть раньше 28 декабря 1895 года");
         }
         return filmStorage.updateFilm(film);
     }
 
+    public BatchResponse createAll(List<Film> films) {
+        log.debug("Попытка пакетной загрузки фильмов. Количество: {}", films.size());
+        BatchResponse response = new BatchResponse();
+        List<Film> validFilms = new ArrayList<>(films.size());
+        for (int i = 0; i < films.size(); i++) {
+            if (films.get(i).getReleaseDate() == null) {
+                response.addError(i, "Не указана дата релиза фильма");
+            } else if (beforeFirstFilm(films.get(i).getReleaseDate())) {
+                response.addError(i, "Дата релиза фильма не может быть раньше 28 декабря 1895 года");
+            } else {
+                validFilms.add(films.get(i));
+            }
+        }
+        filmStorage.createFilms(validFilms);
+        response.addProcessed(validFilms.size());
+        return response;
+    }
+
+    @CacheEvict(cacheNames = CacheNames.FILMS, key = "#id")
     public Film addLike(Integer id, Integer userId) {
-        log.info("Попытка поставить лайк фильму. Фильм: {}; Пользователь:{}", id, userId);
+        log.debug("Попытка поставить лайк фильму. Фильм: {}; Пользователь: {}", id, userId);
         Film film = filmStorage.getFilmById(id);
         userStorage.getUserById(userId);
-        return filmStorage.addLike(film,userId);
+        if (likeIngestion.submit(id, userId, true)) {
+            return film;
+        }
+        // Хранилище сообщает о новом лайке под замком фильма: из одновременных одинаковых лайков учитывается один
+        if (filmStorage.addLike(film, userId)) {
+            trendingFilms.record(id, trendingFilms.now(), 1);
+            popularFilmsSketch.like(id);
+            filmRecommendations.like(id, userId);
+        }
+        return film;
     }
 
+    @CacheEvict(cacheNames = CacheNames.FILMS, key = "#id")
     public Film delLike(Integer id, Integer userId) {
-        log.info("Попытка удалить лайк фильму. Фильм: {}; Пользователь:{}", id, userId);
+        log.debug("Попытка удалить лайк фильму. Фильм: {}; Пользователь: {}", id, userId);
         Film film = filmStorage.getFilmById(id);
         userStorage.getUserById(userId);
-        if (!film.getLikes().contains(userId)) {
+        // В очереди лайк мог ещё не примениться, поэтому снятие отсутствующего лайка там ничего не делает
+        if (likeIngestion.submit(id, userId, false)) {
+            return film;
+        }
+        if (!filmStorage.delLike(film, userId)) {
             throw new NotFoundException("Лайка от пользователя с id " + userId + " для фильма с id " + id + "не найдено");
         }
-        return filmStorage.delLike(film,userId);
+        trendingFilms.record(id, trendingFilms.now(), -1);
+        popularFilmsSketch.unlike(id);
+        filmRecommendations.unlike(id, userId);
+        return film;
     }
 
+    @CacheEvict(cacheNames = CacheNames.FILMS, allEntries = true)
+    public BatchResponse addLikes(List<Like> likes) {
+        log.debug("Попытка пакетного добавления лайков. Количество: {}", likes.size());
+        BatchResponse response = new BatchResponse();
+        Set<Integer> filmIds = new HashSet<>();
+        Set<Integer> userIds = new HashSet<>();
+        for (Like like : likes) {
+            filmIds.add(like.getFilmId());
+            userIds.add(like.getUserId());
+        }
+        Set<Integer> existingFilmIds = new HashSet<>();
+        for (Film film : filmStorage.getFilmsByIds(filmIds)) {
+            existingFilmIds.add(film.getId());
+        }
+        Set<Integer> existingUserIds = new HashSet<>();
+        for (User user : userStorage.getUsersByIds(userIds)) {
+            existingUserIds.add(user.getId());
+        }
+        List<Like> validLikes = new ArrayList<>(likes.size());
+        for (int i = 0; i < likes.size(); i++) {
+            Like like = likes.get(i);
+            if (!existingFilmIds.contains(like.getFilmId())) {
+                response.addError(i, "Не найден фильм с id = " + like.getFilmId());
+            } else if (!existingUserIds.contains(like.getUserId())) {
+                response.addError(i, "Не найден пользователь с id = " + like.getUserId());
+            } else {
+                validLikes.add(like);
+            }
+        }
+        // В рейтинги попадают только новые лайки: повторы в пакете и уже поставленные лайки их не меняют
+        List<Like> addedLikes = filmStorage.addLikes(validLikes);
+        Instant now = trendingFilms.now();
+        for (Like like : addedLikes) {
+            trendingFilms.record(like.getFilmId(), like.getLikedAt() == null ? now : like.getLikedAt(), 1);
+            popularFilmsSketch.like(like.getFilmId());
+            filmRecommendations.like(like.getFilmId(), like.getUserId());
+        }
+        response.addProcessed(validLikes.size());
+        return response;
+    }
+
+    @CacheEvict(cacheNames = {CacheNames.FILMS, CacheNames.POPULAR_FILMS}, allEntries = true)
     public void clearAll() {
         log.info("Попытка удаления всех фильмов");
         filmStorage.clearFilms();
+        trendingFilms.clear();
+        popularFilmsSketch.clear();
+        filmRecommendations.clear();
+    }
+
+    // Версия основного хранилища; null, если ответ может прийти с отстающей реплики и быть старше версии
+    public ModificationCounter getModifications() {
+        return readReplicas.mayLag() ? null : filmStorage.getModifications();
+    }
+
+    // Чтения могут прийти с реплики, которой разрешено отставать от хранилища
+    public boolean readsMayLag() {
+        return readReplicas.mayLag();
+    }
+
+    public long getPopularSketchVersion() {
+        return popularFilmsSketch.getVersion();
+    }
+
+    // Версии наброска и хранилища фильмов для ключа кэша популярных фильмов
+    public String getPopularVersion() {
+        return popularFilmsSketch.getVersion() + "-" + filmStorage.getModifications().getVersion();
+    }
+
+    // Пачка асинхронного приёма лайков: в хранилище и индексы попадают только действительно изменившиеся лайки
+    private void applyQueuedLikes(List<Like> likes, List<Like> unlikes) {
+        Set<Integer> filmIds = new HashSet<>();
+        for (Like like : likes) {
+            filmIds.add(like.getFilmId());
+        }
+        for (Like like : unlikes) {
+            filmIds.add(like.getFilmId());
+        }
+        Map<Integer, Film> films = new HashMap<>();
+        for (Film film : filmStorage.getFilmsByIds(filmIds)) {
+            films.put(film.getId(), film);
+        }
+        List<Like> newLikes = new ArrayList<>(likes.size());
+        for (Like like : likes) {
+            Film film = films.get(like.getFilmId());
+            if (film != null && !film.getLikes().contains(like.getUserId())) {
+                newLikes.add(like);
+            }
+        }
+        List<Like> removedLikes = new ArrayList<>(unlikes.size());
+        for (Like like : unlikes) {
+            Film film = films.get(like.getFilmId());
+            if (film != null && film.getLikes().contains(like.getUserId())) {
+                removedLikes.add(like);
+            }
+        }
+        // Отбор выше дешёвый, но идёт без замков; окончательно изменившиеся лайки сообщает хранилище
+        newLikes = filmStorage.addLikes(newLikes);
+        removedLikes = filmStorage.delLikes(removedLikes);
+        Map<Integer, Integer> deltas = new HashMap<>();
+        for (Like like : newLikes) {
+            deltas.merge(like.getFilmId(), 1, Integer::sum);
+            popularFilmsSketch.like(like.getFilmId());
+            filmRecommendations.like(like.getFilmId(), like.getUserId());
+        }
+        for (Like like : removedLikes) {
+            deltas.merge(like.getFilmId(), -1, Integer::sum);
+            popularFilmsSketch.unlike(like.getFilmId());
+            filmRecommendations.unlike(like.getFilmId(), like.getUserId());
+        }
+        Instant now = trendingFilms.now();
+        for (Map.Entry<Integer, Integer> delta : deltas.entrySet()) {
+            if (delta.getValue() != 0) {
+                trendingFilms.record(delta.getKey(), now, delta.getValue());
+            }
+        }
+    }
+
+    // Фильмы в порядке ids, удалённые за это время пропускаются
+    private List<Film> filmsInOrder(List<Integer> ids) {
+        Map<Integer, Film> films = new HashMap<>();
+        for (Film film : filmStorage.getFilmsByIds(ids)) {
+            films.put(film.getId(), film);
+        }
+        List<Film> ordered = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            Film film = films.get(id);
+            if (film != null) {
+                ordered.add(film);
+            }
+        }
+        return ordered;
     }
 
     private boolean beforeFirstFilm(LocalDate date) {
@@ -0,0 +1,240 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.NoOpCache;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.util.SortedIntSet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Рекомендации друзей: друзья друзей, которые ещё не друзья пользователя, по убыванию числа общих друзей,
+ * при равенстве - по возрастанию id. Списки друзей каждого друга берутся один раз как отсортированные
+ * массивы int. Небольшое окружение считается в вызывающем потоке сортировкой всех id друзей друзей.
+ * Большое делится на диапазоны id не шире MAX_RANGE, которые считаются параллельно в общем ForkJoinPool:
+ * каждая часть находит начало своего диапазона в каждом списке двоичным поиском и считает совпадения
+ * в собственном плотном массиве счётчиков, переиспользуемом потоком, а сливаются только лучшие кандидаты частей.
+ * Результат кэшируется по id пользователя и сбрасывается при изменении друзей у него или у его друзей.
+ */
+@Component
+public class FriendRecommendations {
+
+    public static final int MAX_RECOMMENDATIONS = 100;
+    // С такого числа рёбер друзей друзей подсчёт идёт параллельно по диапазонам id
+    private static final int PARALLEL_THRESHOLD = 50_000;
+    private static final int MAX_RANGE = 1 << 16;
+
+    private static final ThreadLocal<int[]> COUNTERS = ThreadLocal.withInitial(() -> new int[MAX_RANGE]);
+
+    private final UserStorage userStorage;
+    private final Cache cache;
+
+    @Autowired
+    public FriendRecommendations(UserStorage userStorage, CacheManager cacheManager) {
+        this.userStorage = userStorage;
+        Cache managedCache = cacheManager.getCache(CacheNames.RECOMMENDATIONS);
+        this.cache = managedCache == null ? new NoOpCache(CacheNames.RECOMMENDATIONS) : managedCache;
+    }
+
+    /**
+     * Id не более MAX_RECOMMENDATIONS рекомендованных пользователей, из кэша или вычисленные заново.
+     */
+    public int[] recommend(int userId) {
+        return cache.get(userId, () -> computeRecommendations(userId));
+    }
+
+    public int[] computeRecommendations(int userId) {
+        User user = userStorage.getUserById(userId);
+        int[] friends = SortedIntSet.of(user.getFriends()).toIntArray();
+        List<User> friendUsers = userStorage.getUsersByIds(SortedIntSet.ofSorted(friends));
+        int[][] adjacency = new int[friendUsers.size()][];
+        long edges = 0;
+        int minId = Integer.MAX_VALUE;
+        int maxId = Integer.MIN_VALUE;
+        for (int i = 0; i < adjacency.length; i++) {
+            adjacency[i] = SortedIntSet.of(friendUsers.get(i).getFriends()).toIntArray();
+            edges += adjacency[i].length;
+            if (adjacency[i].length > 0) {
+                minId = Math.min(minId, adjacency[i][0]);
+                maxId = Math.max(maxId, adjacency[i][adjacency[i].length - 1]);
+            }
+        }
+        long[] best;
+        if (edges == 0) {
+            best = new long[0];
+        } else if (edges < PARALLEL_THRESHOLD) {
+            best = countSorted(userId, friends, adjacency, (int) edges);
+        } else {
+            best = countInRanges(userId, friends, adjacency, minId, maxId);
+        }
+        int[] ids = new int[best.length];
+        for (int i = 0; i < best.length; i++) {
+            ids[i] = Integer.MAX_VALUE - (int) best[i];
+        }
+        return ids;
+    }
+
+    /**
+     * Сбрасывает рекомендации пользователей, у которых изменились друзья или друзья друзей:
+     * самих пользователей и их друзей.
+     */
+    public void invalidate(User... users) {
+        for (User user : users) {
+            cache.evict(user.getId());
+            for (Integer friendId : user.getFriends()) {
+                cache.evict(friendId);
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        cache.clear();
+    }
+
+    private static long[] countSorted(int userId, int[] friends, int[][] adjacency, int edges) {
+        int[] all = new int[edges];
+        int size = 0;
+        for (int[] friendsOfFriend : adjacency) {
+            System.arraycopy(friendsOfFriend, 0, all, size, friendsOfFriend.length);
+            size += friendsOfFriend.length;
+        }
+        Arrays.sort(all);
+        TopCandidates top = new TopCandidates(userId, friends);
+        for (int i = 0; i < all.length; ) {
+            int next = i + 1;
+            while (next < all.length && all[next] == all[i]) {
+                next++;
+            }
+            top.offer(all[i], next - i);
+            i = next;
+        }
+        return top.result();
+    }
+
+    private static long[] countInRanges(int userId, int[] friends, int[][] adjacency, int minId, int maxId) {
+        long span = (long) maxId - minId + 1;
+        int parts = (int) Math.max(ForkJoinPool.getCommonPoolParallelism(), (span + MAX_RANGE - 1) / MAX_RANGE);
+        List<RangeCount> tasks = new ArrayList<>(parts);
+        for (int part = 0; part < parts; part++) {
+            int from = (int) (minId + span * part / parts);
+            int to = (int) (minId + span * (part + 1) / parts);
+            tasks.add(new RangeCount(userId, friends, adjacency, from, to));
+        }
+        long[] best = new long[0];
+        for (RangeCount task : ForkJoinTask.invokeAll(tasks)) {
+            best = merge(best, task.join());
+        }
+        return best;
+    }
+
+    private static long[] merge(long[] first, long[] second) {
+        long[] all = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, all, first.length, second.length);
+        Arrays.sort(all);
+        long[] best = new long[Math.min(all.length, MAX_RECOMMENDATIONS)];
+        for (int i = 0; i < best.length; i++) {
+            best[i] = all[all.length - 1 - i];
+        }
+        return best;
+    }
+
+    /**
+     * Лучшие MAX_RECOMMENDATIONS кандидатов. Кандидат упакован в long: число общих друзей в старших битах,
+     * инвертированный id в младших, так что больший long - лучший кандидат.
+     */
+    private static final class TopCandidates {
+
+        private final int userId;
+        private final int[] friends;
+        // По возрастанию, best[0] - худший из отобранных
+        private final long[] best = new long[MAX_RECOMMENDATIONS];
+        private int size;
+
+        TopCandidates(int userId, int[] friends) {
+            this.userId = userId;
+            this.friends = friends;
+        }
+
+        void offer(int id, int mutualFriends) {
+            long candidate = ((long) mutualFriends << 32) | (Integer.MAX_VALUE - id);
+            if (size == MAX_RECOMMENDATIONS && candidate <= best[0]) {
+                return;
+            }
+            if (id == userId || Arrays.binarySearch(friends, id) >= 0) {
+                return;
+            }
+            int i;
+            if (size < MAX_RECOMMENDATIONS) {
+                i = size++;
+                for (; i > 0 && best[i - 1] > candidate; i--) {
+                    best[i] = best[i - 1];
+                }
+            } else {
+                i = 0;
+                for (; i + 1 < size && best[i + 1] < candidate; i++) {
+                    best[i] = best[i + 1];
+                }
+            }
+            best[i] = candidate;
+        }
+
+        // Кандидаты по убыванию
+        long[] result() {
+            long[] result = new long[size];
+            for (int i = 0; i < size; i++) {
+                result[i] = best[size - 1 - i];
+            }
+            return result;
+        }
+    }
+
+    // Подсчёт общих друзей для кандидатов с id в [from, to)
+    private static final class RangeCount extends RecursiveTask<long[]> {
+
+        private final int userId;
+        private final int[] friends;
+        private final int[][] adjacency;
+        private final int from;
+        private final int to;
+
+        RangeCount(int userId, int[] friends, int[][] adjacency, int from, int to) {
+            this.userId = userId;
+            this.friends = friends;
+            this.adjacency = adjacency;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[] compute() {
+            int[] counters = COUNTERS.get();
+            for (int[] friendsOfFriend : adjacency) {
+                int index = Arrays.binarySearch(friendsOfFriend, from);
+                for (int i = index >= 0 ? index : -index - 1; i < friendsOfFriend.length; i++) {
+                    int id = friendsOfFriend[i];
+                    if (id >= to) {
+                        break;
+                    }
+                    counters[id - from]++;
+                }
+            }
+            TopCandidates top = new TopCandidates(userId, friends);
+            for (int offset = 0; offset < to - from; offset++) {
+                if (counters[offset] != 0) {
+                    top.offer(from + offset, counters[offset]);
+                    counters[offset] = 0;
+                }
+            }
+            return top.result();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.NoOpCache;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.util.LongRingBuffer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+
+/**
+ * Режим filmorate.likes.mode=async: лайки и их снятия из запросов кладутся в ограниченную очередь
+ * LongRingBuffer и применяются потоком like-ingestion пачками до batch-size. Из нескольких операций одного
+ * пользователя с одним фильмом в пачке применяется только последняя. Поток забирает пачку сразу, пока
+ * очередь полна хотя бы на пачку, и раз в flush-interval-ms, если нет. Когда очередь заполнена, запрос
+ * сам применяет накопленное, а потом ставит свою операцию: очередь не растёт, а запросы замедляются
+ * до скорости применения. После пачки сбрасываются кэши её фильмов; кэш популярных фильмов привязан
+ * к версии хранилища и сброса не требует.
+ * При остановке приложения очередь применяется до конца.
+ * В режиме sync очередь не создаётся и лайки применяются в запросе.
+ */
+@Slf4j
+@Component
+public class LikeIngestion implements SmartInitializingSingleton, DisposableBean {
+
+    private final boolean enabled;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final LongRingBuffer queue;
+    private final long[] batch;
+    private final Cache films;
+    private volatile BiConsumer<List<Like>, List<Like>> handler;
+    private volatile boolean running;
+    private Thread flusher;
+
+    @Autowired
+    public LikeIngestion(@Value("${filmorate.likes.mode:sync}") String mode,
+                         @Value("${filmorate.likes.queue-capacity:65536}") int queueCapacity,
+                         @Value("${filmorate.likes.batch-size:4096}") int batchSize,
+                         @Value("${filmorate.likes.flush-interval-ms:10}") long flushIntervalMillis,
+                         CacheManager cacheManager) {
+        this.enabled = "async".equals(mode);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.queue = enabled ? new LongRingBuffer(queueCapacity) : null;
+        this.batch = enabled ? new long[batchSize] : null;
+        this.films = cache(cacheManager, CacheNames.FILMS);
+    }
+
+    /**
+     * Обработчик пачки: лайки и снятия лайков после объединения повторов.
+     */
+    public void setHandler(BiConsumer<List<Like>, List<Like>> handler) {
+        this.handler = handler;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        flusher = new Thread(this::runFlusher, "like-ingestion");
+        flusher.setDaemon(true);
+        flusher.start();
+        log.info("Асинхронный приём лайков включён. Очередь: {}; Пачка: {}; Интервал: {} мс",
+                queue.getCapacity(), batchSize, TimeUnit.NANOSECONDS.toMillis(flushIntervalNanos));
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        if (flusher == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(flusher);
+        flusher.join(TimeUnit.SECONDS.toMillis(10));
+        while (flush() > 0) {
+            log.debug("Применение оставшихся в очереди лайков при остановке");
+        }
+    }
+
+    /**
+     * Ставит лайк или его снятие в очередь. Возвращает false в режиме sync: тогда операцию применяет вызывающий.
+     */
+    public boolean submit(int filmId, int userId, boolean like) {
+        if (!enabled) {
+            return false;
+        }
+        long operation = ((long) filmId << 32) | ((long) userId << 1) | (like ? 1 : 0);
+        while (!queue.offer(operation)) {
+            flush();
+        }
+        return true;
+    }
+
+    /**
+     * Применяет одну пачку из очереди и возвращает число забранных операций.
+     */
+    public synchronized int flush() {
+        int count = queue.drainTo(batch);
+        if (count == 0) {
+            return 0;
+        }
+        // Пара фильм-пользователь - операция без младшего бита; последняя операция пары побеждает
+        Map<Long, Boolean> lastOperations = new HashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            lastOperations.put(batch[i] >>> 1, (batch[i] & 1) == 1);
+        }
+        List<Like> likes = new ArrayList<>();
+        List<Like> unlikes = new ArrayList<>();
+        for (Map.Entry<Long, Boolean> operation : lastOperations.entrySet()) {
+            Like like = new Like((int) (operation.getKey() >>> 31), (int) (operation.getKey() & Integer.MAX_VALUE));
+            (operation.getValue() ? likes : unlikes).add(like);
+        }
+        try {
+            handler.accept(likes, unlikes);
+        } catch (RuntimeException e) {
+            log.error("Ошибка применения пачки лайков. Операций: {}", count, e);
+        }
+        for (Like like : likes) {
+            films.evict(like.getFilmId());
+        }
+        for (Like like : unlikes) {
+            films.evict(like.getFilmId());
+        }
+        log.debug("Применена пачка лайков. Операций: {}; После объединения: {}", count, lastOperations.size());
+        return count;
+    }
+
+    private static Cache cache(CacheManager cacheManager, String name) {
+        Cache cache = cacheManager.getCache(name);
+        return cache == null ? new NoOpCache(name) : cache;
+    }
+
+    private void runFlusher() {
+        while (running) {
+            if (flush() < batchSize) {
+                LockSupport.parkNanos(flushIntervalNanos);
+            }
+        }
+    }
+}
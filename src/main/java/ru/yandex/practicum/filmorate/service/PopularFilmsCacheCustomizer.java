@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.stereotype.Component;
+
+/**
+ * Кэш популярных фильмов со своими размером и временем жизни: записи в нём привязаны к версии хранилища,
+ * и после изменения записи прежних версий больше не читаются, поэтому держать их долго незачем.
+ */
+@Component
+public class PopularFilmsCacheCustomizer implements CacheManagerCustomizer<CaffeineCacheManager> {
+
+    private final String spec;
+
+    @Autowired
+    public PopularFilmsCacheCustomizer(@Value("${filmorate.cache.popular-films-spec:maximumSize=1000,"
+            + "expireAfterWrite=10s,recordStats}") String spec) {
+        this.spec = spec;
+    }
+
+    @Override
+    public void customize(CaffeineCacheManager cacheManager) {
+        cacheManager.registerCustomCache(CacheNames.POPULAR_FILMS, Caffeine.from(spec).build());
+    }
+}
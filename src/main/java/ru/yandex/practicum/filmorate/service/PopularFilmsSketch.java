@@ -0,0 +1,92 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.util.SpaceSavingSketch;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Режим filmorate.popularity.mode=sketch: популярные фильмы для каталогов больше sketch-capacity фильмов
+ * выдаются по наброску SpaceSavingSketch с фиксированной памятью вместо точных счётчиков всех фильмов.
+ * Оценка числа лайков завышена не более чем на N / sketch-capacity, где N - число лайков с момента запуска
+ * плюс лайки фильмов, не попавших в набросок при запуске. Пока фильмов не больше sketch-capacity,
+ * популярные фильмы берутся из хранилища точно. В режиме exact набросок не ведётся.
+ * Набросок заполняется точными данными первых sketch-capacity популярных фильмов после создания всех бинов,
+ * то есть после восстановления хранилищ и до приёма запросов. Замена лайков при обновлении фильма
+ * в наброске не учитывается.
+ */
+@Slf4j
+@Component
+public class PopularFilmsSketch implements SmartInitializingSingleton {
+
+    private final FilmStorage filmStorage;
+    private final boolean enabled;
+    private final SpaceSavingSketch sketch;
+    // Лайк доходит до наброска позже, чем до хранилища, поэтому у наброска своя версия для кэша и ETag
+    private final AtomicLong version = new AtomicLong();
+
+    @Autowired
+    public PopularFilmsSketch(FilmStorage filmStorage,
+                              @Value("${filmorate.popularity.mode:exact}") String mode,
+                              @Value("${filmorate.popularity.sketch-capacity:10000}") int capacity) {
+        this.filmStorage = filmStorage;
+        this.enabled = "sketch".equals(mode);
+        this.sketch = new SpaceSavingSketch(capacity);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!enabled) {
+            return;
+        }
+        for (Film film : filmStorage.getPopFilms(sketch.getCapacity())) {
+            sketch.seed(film.getId(), film.getLikes().size());
+        }
+        version.incrementAndGet();
+        log.info("Набросок популярных фильмов заполнен. Фильмов: {}; Счётчиков: {}",
+                sketch.size(), sketch.getCapacity());
+    }
+
+    /**
+     * Выдавать ли популярные фильмы по наброску: режим sketch, каталог больше наброска
+     * и запрошено не больше фильмов, чем в нём счётчиков.
+     */
+    public boolean serves(int count) {
+        return enabled && count <= sketch.getCapacity() && filmStorage.getFilmsCount() > sketch.getCapacity();
+    }
+
+    // Число изменений наброска; увеличивается после изменения, поэтому список, прочитанный после версии, не старше её
+    public long getVersion() {
+        return version.get();
+    }
+
+    public List<Integer> top(int count) {
+        return sketch.top(count);
+    }
+
+    public void like(int filmId) {
+        if (enabled) {
+            sketch.add(filmId);
+            version.incrementAndGet();
+        }
+    }
+
+    public void unlike(int filmId) {
+        if (enabled) {
+            sketch.remove(filmId);
+            version.incrementAndGet();
+        }
+    }
+
+    public void clear() {
+        sketch.clear();
+        version.incrementAndGet();
+    }
+}
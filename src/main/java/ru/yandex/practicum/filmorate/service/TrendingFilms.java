@@ -0,0 +1,178 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Рейтинг фильмов по недавним лайкам для окон из TrendingWindow, обновляемый при каждом лайке.
+ * Для каждого окна у фильма есть счётчик с затуханием (forward decay): лайк в момент t весит
+ * exp((t - L) / окно) относительно опорного момента L, а текущее значение счётчика - сумма весов,
+ * умноженная на exp(-(now - L) / окно). Множитель общий для всех фильмов, поэтому их порядок меняется
+ * только при новых лайках: индекс обновляется за O(log n) на лайк, а первые count фильмов читаются
+ * за O(count). Память - по записи на фильм в окне, независимо от числа лайков.
+ * Снятый лайк вычитается с весом момента снятия, то есть рейтинг отражает чистый прирост лайков.
+ * Рейтинг хранится только в памяти процесса и после перезапуска набирается заново.
+ */
+@Component
+public class TrendingFilms {
+
+    // Опорный момент сдвигается, когда веса доходят до exp(REBASE_EXPONENT), чтобы не переполнить double
+    private static final double REBASE_EXPONENT = 50;
+    // Фильмы, чей счётчик затух ниже этого значения, не попадают в рейтинг и забываются при сдвиге
+    private static final double FORGET_SCORE = 1e-3;
+
+    private final Clock clock;
+    private final Map<TrendingWindow, Ranking> rankings = new EnumMap<>(TrendingWindow.class);
+
+    @Autowired
+    public TrendingFilms() {
+        this(Clock.systemUTC());
+    }
+
+    public TrendingFilms(Clock clock) {
+        this.clock = clock;
+        for (TrendingWindow window : TrendingWindow.values()) {
+            rankings.put(window, new Ranking(window, clock.millis()));
+        }
+    }
+
+    public Instant now() {
+        return clock.instant();
+    }
+
+    /**
+     * Учитывает лайк (delta = 1) или его снятие (delta = -1) в момент time во всех окнах.
+     */
+    public void record(int filmId, Instant time, int delta) {
+        long millis = Math.min(time.toEpochMilli(), clock.millis());
+        for (Ranking ranking : rankings.values()) {
+            ranking.record(filmId, millis, delta);
+        }
+    }
+
+    /**
+     * Id не более count фильмов с наибольшим счётчиком в окне, по убыванию счётчика. Фильмы, чей счётчик
+     * затух до FORGET_SCORE, не возвращаются.
+     */
+    public List<Integer> top(TrendingWindow window, int count) {
+        return rankings.get(window).top(count, clock.millis());
+    }
+
+    public void clear() {
+        for (Ranking ranking : rankings.values()) {
+            ranking.clear(clock.millis());
+        }
+    }
+
+    private static final class Ranking {
+
+        private final double lambdaPerMilli;
+        // Запись и чтение берут блокировку на чтение, сдвиг опорного момента - на запись
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Map<Integer, Double> scores = new ConcurrentHashMap<>();
+        private final ConcurrentSkipListSet<Entry> order = new ConcurrentSkipListSet<>();
+        private volatile long landmark;
+
+        Ranking(TrendingWindow window, long landmark) {
+            this.lambdaPerMilli = 1.0 / window.getDuration().toMillis();
+            this.landmark = landmark;
+        }
+
+        void record(int filmId, long millis, int delta) {
+            if ((millis - landmark) * lambdaPerMilli > REBASE_EXPONENT) {
+                rebase(millis);
+            }
+            lock.readLock().lock();
+            try {
+                double weight = delta * Math.exp((millis - landmark) * lambdaPerMilli);
+                scores.compute(filmId, (id, oldScore) -> {
+                    double score = weight;
+                    if (oldScore != null) {
+                        order.remove(new Entry(id, oldScore));
+                        score += oldScore;
+                    }
+                    order.add(new Entry(id, score));
+                    return score;
+                });
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        List<Integer> top(int count, long millis) {
+            List<Integer> ids = new ArrayList<>(Math.min(count, scores.size()));
+            lock.readLock().lock();
+            try {
+                double minScore = FORGET_SCORE * Math.exp((millis - landmark) * lambdaPerMilli);
+                Iterator<Entry> entries = order.iterator();
+                while (ids.size() < count && entries.hasNext()) {
+                    Entry entry = entries.next();
+                    if (entry.score < minScore) {
+                        break;
+                    }
+                    ids.add(entry.filmId);
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            return ids;
+        }
+
+        void clear(long millis) {
+            lock.writeLock().lock();
+            try {
+                scores.clear();
+                order.clear();
+                landmark = millis;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void rebase(long millis) {
+            lock.writeLock().lock();
+            try {
+                if ((millis - landmark) * lambdaPerMilli <= REBASE_EXPONENT) {
+                    return;
+                }
+                double factor = Math.exp(-(millis - landmark) * lambdaPerMilli);
+                order.clear();
+                scores.replaceAll((id, score) -> score * factor);
+                scores.values().removeIf(score -> Math.abs(score) < FORGET_SCORE);
+                scores.forEach((id, score) -> order.add(new Entry(id, score)));
+                landmark = millis;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private static final class Entry implements Comparable<Entry> {
+
+        private final int filmId;
+        private final double score;
+
+        Entry(int filmId, double score) {
+            this.filmId = filmId;
+            this.score = score;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int byScore = Double.compare(other.score, score);
+            return byScore != 0 ? byScore : Integer.compare(filmId, other.filmId);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.service;
+
+import ru.yandex.practicum.filmorate.exeption.ValidationException;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Окна рейтинга набирающих популярность фильмов.
+ */
+public enum TrendingWindow {
+    HOUR(Duration.ofHours(1)),
+    DAY(Duration.ofDays(1)),
+    WEEK(Duration.ofDays(7));
+
+    private final Duration duration;
+
+    TrendingWindow(Duration duration) {
+        this.duration = duration;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    public static TrendingWindow parse(String window) {
+        try {
+            return valueOf(window.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Окно должно быть одним из: hour, day, week");
+        }
+    }
+}
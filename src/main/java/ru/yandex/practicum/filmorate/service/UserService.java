@@ -1,25 +1,38 @@
 package ru.yandex.practicum.filmorate.service;
 
+import ru.yandex.practicum.filmorate.model.BatchResponse;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.ModificationCounter;
 import java.util.List;
 
 public interface UserService {
     List<User> findAll();
 
+    List<User> findPage(Integer afterId, Integer limit);
+
     User findUser(Integer id);
 
     List<User> getFriends(Integer id);
 
     List<User> getCommonFriends(Integer id, Integer friendId);
 
+    List<User> getRecommendations(Integer id, Integer count);
+
     User create(User user);
 
     User update(User user);
 
+    BatchResponse createAll(List<User> users);
+
     User addFriend(Integer id, Integer friendId);
 
     User delFriend(Integer id, Integer friendId);
 
+    BatchResponse addFriends(List<Friendship> friendships);
+
     void clearAll();
 
+    ModificationCounter getModifications();
+
 }
\ No newline at end of file
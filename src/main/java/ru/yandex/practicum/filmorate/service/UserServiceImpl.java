@@ -2,91 +2,203 @@ package ru.yandex.practicum.filmorate.service;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exeption.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchResponse;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.replication.ReadReplicas;
+import ru.yandex.practicum.filmorate.storage.ModificationCounter;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.util.SortedIntSet;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 @Slf4j
 @Service
 public class UserServiceImpl implements UserService {
+    static final int MAX_PAGE_SIZE = 1000;
 
     private final UserStorage userStorage;
+    private final FriendRecommendations friendRecommendations;
+    private final ReadReplicas readReplicas;
 
     @Autowired
-    public UserServiceImpl(UserStorage userStorage) {
+    public UserServiceImpl(UserStorage userStorage, FriendRecommendations friendRecommendations,
+                           ReadReplicas readReplicas) {
         this.userStorage = userStorage;
+        this.friendRecommendations = friendRecommendations;
+        this.readReplicas = readReplicas;
     }
 
     public List<User> findAll() {
-        log.info("Обработка запроса на получение списка пользователей");
-        return userStorage.getAllUsers();
+        log.debug("Обработка запроса на получение списка пользователей");
+        return readReplicas.users().getAllUsers();
     }
 
+    public List<User> findPage(Integer afterId, Integer limit) {
+        log.debug("Обработка запроса на получение страницы пользователей. После id: {}; Размер: {}", afterId, limit);
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new ValidationException("Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        return userStorage.getUsersPage(afterId, limit);
+    }
+
+    @Cacheable(cacheNames = CacheNames.USERS, key = "#id")
     public User findUser(Integer id) {
         return userStorage.getUserById(id);
     }
 
     public List<User> getFriends(Integer id) {
-        User user = userStorage.getUserById(id);
-        log.info("Обработка запроса на получение друзей пользователя. Пользователь {}",user);
-        List<User> friends = new ArrayList<>();
-        for (int friendId: user.getFriends()) {
-            friends.add(userStorage.getUserById(friendId));
-        }
-        return friends;
+        log.debug("Обработка запроса на получение друзей пользователя. Пользователь: {}", id);
+        UserStorage readStorage = readReplicas.users();
+        User user = readStorage.getUserById(id);
+        return readStorage.getUsersByIds(user.getFriends());
     }
 
     public List<User> getCommonFriends(Integer id, Integer friendId) {
-        log.info("Обработка запроса на получение списка общих друзей пользователей. Пользователь 1 {}; " +
+        log.debug("Обработка запроса на получение списка общих друзей пользователей. Пользователь 1 {}; " +
                 "Пользователь 2 {}", id, friendId);
-        User user = userStorage.getUserById(id);
-        User friend = userStorage.getUserById(friendId);
+        UserStorage readStorage = readReplicas.users();
+        User user = readStorage.getUserById(id);
+        User friend = readStorage.getUserById(friendId);
 
-        Set<Integer> friends = new HashSet<>(user.getFriends());
-        friends.retainAll(friend.getFriends());
+        int[] commonIds = SortedIntSet.of(user.getFriends()).intersect(SortedIntSet.of(friend.getFriends()));
+        return readStorage.getUsersByIds(SortedIntSet.ofSorted(commonIds));
+    }
 
-        ArrayList<User> commonUserFriends = new ArrayList<>();
-        for (Integer userId : friends) {
-            commonUserFriends.add(userStorage.getUserById(userId));
+    public List<User> getRecommendations(Integer id, Integer count) {
+        log.debug("Обработка запроса на получение рекомендаций друзей. Пользователь: {}; Количество: {}", id, count);
+        if (count <= 0 || count > FriendRecommendations.MAX_RECOMMENDATIONS) {
+            throw new ValidationException("Количество рекомендаций должно быть от 1 до "
+                    + FriendRecommendations.MAX_RECOMMENDATIONS);
+        }
+        int[] ids = friendRecommendations.recommend(id);
+        int[] top = Arrays.copyOf(ids, Math.min(count, ids.length));
+        int[] sortedIds = top.clone();
+        Arrays.sort(sortedIds);
+        Map<Integer, User> usersById = new HashMap<>();
+        for (User user : userStorage.getUsersByIds(SortedIntSet.ofSorted(sortedIds))) {
+            usersById.put(user.getId(), user);
+        }
+        List<User> users = new ArrayList<>(top.length);
+        for (int recommendedId : top) {
+            User user = usersById.get(recommendedId);
+            if (user != null) {
+                users.add(user);
+            }
         }
-        return commonUserFriends;
+        return users;
     }
 
     public User create(User user) {
         copyLoginToBlankName(user);
-        log.info("Попытка создания пользователя. Пользователь: {}",user);
-        return userStorage.createUser(user);
+        log.debug("Попытка создания пользователя. Логин: {}", user.getLogin());
+        User created = userStorage.createUser(user);
+        friendRecommendations.invalidate(created);
+        return created;
     }
 
+    @CacheEvict(cacheNames = CacheNames.USERS, key = "#user.id")
     public User update(User user) {
         copyLoginToBlankName(user);
-        log.info("Попытка обновление пользователя. Пользователь: {}",user);
-        return userStorage.updateUser(user);
+        log.debug("Попытка обновление пользователя. id: {}", user.getId());
+        User updated = userStorage.updateUser(user);
+        // Прежние друзья пользователя уже неизвестны, поэтому рекомендации сбрасываются целиком
+        friendRecommendations.invalidateAll();
+        return updated;
     }
 
+    public BatchResponse createAll(List<User> users) {
+        log.debug("Попытка пакетного создания пользователей. Количество: {}", users.size());
+        for (User user : users) {
+            copyLoginToBlankName(user);
+        }
+        userStorage.createUsers(users);
+        friendRecommendations.invalidate(users.toArray(new User[0]));
+        BatchResponse response = new BatchResponse();
+        response.addProcessed(users.size());
+        return response;
+    }
+
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheNames.USERS, key = "#id"),
+            @CacheEvict(cacheNames = CacheNames.USERS, key = "#friendId")
+    })
     public User addFriend(Integer id, Integer friendId) {
-        log.info("Попытка добавления друга пользователю. Пользователь: {}; Друг: {}",id,friendId);
+        log.debug("Попытка добавления друга пользователю. Пользователь: {}; Друг: {}", id, friendId);
         User user = userStorage.getUserById(id);
         User friend = userStorage.getUserById(friendId);
         userStorage.addFriend(friend, id);
-        return userStorage.addFriend(user, friendId);
+        userStorage.addFriend(user, friendId);
+        friendRecommendations.invalidate(user, friend);
+        return user;
     }
 
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheNames.USERS, key = "#id"),
+            @CacheEvict(cacheNames = CacheNames.USERS, key = "#friendId")
+    })
     public User delFriend(Integer id, Integer friendId) {
-        log.info("Попытка удаления друга пользователю. Пользователь: {}; Друг: {}",id,friendId);
+        log.debug("Попытка удаления друга пользователю. Пользователь: {}; Друг: {}", id, friendId);
         User user = userStorage.getUserById(id);
         User friend = userStorage.getUserById(friendId);
         userStorage.delFriend(friend,id);
-        return userStorage.delFriend(user,friendId);
+        userStorage.delFriend(user,friendId);
+        friendRecommendations.invalidate(user, friend);
+        return user;
+    }
+
+    @CacheEvict(cacheNames = CacheNames.USERS, allEntries = true)
+    public BatchResponse addFriends(List<Friendship> friendships) {
+        log.debug("Попытка пакетного добавления друзей. Количество: {}", friendships.size());
+        BatchResponse response = new BatchResponse();
+        Set<Integer> userIds = new HashSet<>();
+        for (Friendship friendship : friendships) {
+            userIds.add(friendship.getUserId());
+            userIds.add(friendship.getFriendId());
+        }
+        Set<Integer> existingIds = new HashSet<>();
+        for (User user : userStorage.getUsersByIds(userIds)) {
+            existingIds.add(user.getId());
+        }
+        List<Friendship> validFriendships = new ArrayList<>(friendships.size() * 2);
+        for (int i = 0; i < friendships.size(); i++) {
+            Friendship friendship = friendships.get(i);
+            if (!existingIds.contains(friendship.getUserId())) {
+                response.addError(i, "Не найден пользователь с id = " + friendship.getUserId());
+            } else if (!existingIds.contains(friendship.getFriendId())) {
+                response.addError(i, "Не найден пользователь с id = " + friendship.getFriendId());
+            } else {
+                validFriendships.add(friendship);
+                validFriendships.add(new Friendship(friendship.getFriendId(), friendship.getUserId()));
+            }
+        }
+        userStorage.addFriends(validFriendships);
+        friendRecommendations.invalidateAll();
+        response.addProcessed(validFriendships.size() / 2);
+        return response;
     }
 
+    // Хранилище в базе данных вместе с пользователями удаляет их лайки, поэтому сбрасываются и кэши фильмов
+    @CacheEvict(cacheNames = {CacheNames.USERS, CacheNames.FILMS, CacheNames.POPULAR_FILMS}, allEntries = true)
     public void clearAll() {
         log.info("Обработка запроса на удаление всех пользователей");
         userStorage.clearUsers();
+        friendRecommendations.invalidateAll();
+    }
+
+    // Версия основного хранилища; null, если ответ может прийти с отстающей реплики и быть старше версии
+    public ModificationCounter getModifications() {
+        return readReplicas.mayLag() ? null : userStorage.getModifications();
     }
 
     private void copyLoginToBlankName(User user) {
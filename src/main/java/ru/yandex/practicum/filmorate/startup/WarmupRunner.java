@@ -0,0 +1,112 @@
+package ru.yandex.practicum.filmorate.startup;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exeption.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Прогрев перед приёмом трафика: чтения популярных фильмов, фильмов, пользователей, друзей и общих друзей
+ * на уже загруженных данных с сериализацией ответа в JSON, чтобы JIT скомпилировал эти пути. Популярные фильмы,
+ * фильмы и пользователи читаются из хранилищ мимо кэшей сервисов: иначе после первой итерации прогревался бы
+ * только поиск в кэше. Кэши наполняются одним проходом через сервисы в конце. Spring Boot переводит готовность (readiness) в ACCEPTING_TRAFFIC только после выполнения
+ * ApplicationRunner, поэтому /actuator/health/readiness сообщает UP уже после прогрева.
+ */
+@Slf4j
+@Component
+public class WarmupRunner implements ApplicationRunner {
+
+    private static final int SAMPLE_SIZE = 100;
+    private static final int POPULAR_COUNT = 10;
+
+    private final FilmService filmService;
+    private final UserService userService;
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final ObjectMapper objectMapper;
+    private final int iterations;
+    private final long timeoutNanos;
+
+    @Autowired
+    public WarmupRunner(FilmService filmService, UserService userService, FilmStorage filmStorage,
+                        UserStorage userStorage, ObjectMapper objectMapper,
+                        @Value("${filmorate.warmup.iterations:10000}") int iterations,
+                        @Value("${filmorate.warmup.timeout-seconds:5}") long timeoutSeconds) {
+        this.filmService = filmService;
+        this.userService = userService;
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.objectMapper = objectMapper;
+        this.iterations = iterations;
+        this.timeoutNanos = TimeUnit.SECONDS.toNanos(timeoutSeconds);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws JsonProcessingException {
+        if (iterations <= 0) {
+            return;
+        }
+        long started = System.nanoTime();
+        List<Film> films = filmService.getPopFilms(SAMPLE_SIZE);
+        List<User> users = userService.findPage(0, SAMPLE_SIZE);
+        int done = 0;
+        while (done < iterations && System.nanoTime() - started < timeoutNanos) {
+            objectMapper.writeValueAsBytes(filmStorage.getPopFilms(POPULAR_COUNT));
+            try {
+                if (!films.isEmpty()) {
+                    objectMapper.writeValueAsBytes(filmStorage.getFilmById(films.get(done % films.size()).getId()));
+                }
+                if (!users.isEmpty()) {
+                    int id = users.get(done % users.size()).getId();
+                    int otherId = users.get((done + 1) % users.size()).getId();
+                    objectMapper.writeValueAsBytes(userStorage.getUserById(id));
+                    objectMapper.writeValueAsBytes(userService.getFriends(id));
+                    objectMapper.writeValueAsBytes(userService.getCommonFriends(id, otherId));
+                }
+            } catch (NotFoundException e) {
+                // Данные могли удалить во время прогрева, на него это не влияет
+            }
+            done++;
+        }
+        fillCaches(films, users);
+        log.info("Прогрев завершён за {} мс. Итераций: {}",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), done);
+    }
+
+    private void fillCaches(List<Film> films, List<User> users) {
+        filmService.getPopFilms(POPULAR_COUNT);
+        try {
+            for (Film film : films) {
+                filmService.findFilm(film.getId());
+            }
+            for (User user : users) {
+                userService.findUser(user.getId());
+            }
+        } catch (NotFoundException e) {
+            // Данные могли удалить во время прогрева, на него это не влияет
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        log.info("Приложение готово к приёму запросов через {} мс после запуска JVM",
+                ManagementFactory.getRuntimeMXBean().getUptime());
+    }
+}
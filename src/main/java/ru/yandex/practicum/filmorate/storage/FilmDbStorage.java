@@ -0,0 +1,455 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import ru.yandex.practicum.filmorate.exeption.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmQuery;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.util.SortedIntSet;
+import ru.yandex.practicum.filmorate.util.TextTokens;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Slf4j
+@Component
+@Transactional
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "jdbc")
+public class FilmDbStorage implements FilmStorage {
+
+    private static final String SELECT_FILMS = "SELECT id, name, description, release_date, duration FROM films";
+    private static final String INSERT_FILM = "INSERT INTO films "
+            + "(name, description, release_date, duration, likes_count) VALUES (?, ?, ?, ?, ?)";
+    // Лайк удалённому фильму не вставляется: иначе внешний ключ оборвал бы весь пакет
+    private static final String INSERT_LIKE = "INSERT INTO likes (film_id, user_id) SELECT ?, ? "
+            + "WHERE NOT EXISTS (SELECT 1 FROM likes WHERE film_id = ? AND user_id = ?) "
+            + "AND EXISTS (SELECT 1 FROM films WHERE id = ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final ModificationCounter modifications = new ModificationCounter();
+
+    @Autowired
+    public FilmDbStorage(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    @Override
+    public List<Film> getAllFilms() {
+        log.debug("Получение списка фильмов из базы данных");
+        List<Film> films = jdbcTemplate.query(SELECT_FILMS + " ORDER BY id", (rs, rowNum) -> mapFilm(rs));
+        Map<Integer, Film> filmsById = new HashMap<>();
+        for (Film film : films) {
+            filmsById.put(film.getId(), film);
+        }
+        jdbcTemplate.query("SELECT film_id, user_id FROM likes", rs -> {
+            filmsById.get(rs.getInt("film_id")).addLike(rs.getInt("user_id"));
+        });
+        return films;
+    }
+
+    @Override
+    public List<Film> getFilmsPage(Integer afterId, Integer limit) {
+        log.debug("Получение страницы фильмов из базы данных. После id: {}; Размер: {}", afterId, limit);
+        List<Film> films = jdbcTemplate.query(SELECT_FILMS + " WHERE id > ? ORDER BY id LIMIT ?",
+                (rs, rowNum) -> mapFilm(rs), afterId, limit);
+        loadLikes(films);
+        return films;
+    }
+
+    @Override
+    public List<Film> getPopFilms(Integer count) {
+        log.debug("Получение {} популярных фильмов из базы данных", count);
+        List<Film> films = jdbcTemplate.query(SELECT_FILMS + " ORDER BY likes_count DESC, id LIMIT ?",
+                (rs, rowNum) -> mapFilm(rs), count);
+        loadLikes(films);
+        return films;
+    }
+
+    @Override
+    public List<Film> searchFilms(FilmQuery query) {
+        log.debug("Поиск фильмов в базе данных. Условия: {}", query);
+        List<String> conditions = new ArrayList<>();
+        MapSqlParameterSource params = new MapSqlParameterSource("limit", query.getLimit());
+        String order = "id";
+        int word = 0;
+        for (String token : TextTokens.of(query.getText())) {
+            conditions.add("id IN (SELECT film_id FROM film_words WHERE word = :word" + word + ")");
+            params.addValue("word" + word++, token);
+        }
+        if (query.getMinDuration() != null || query.getMaxDuration() != null) {
+            addRange(conditions, params, "duration", query.getMinDuration(), query.getMaxDuration());
+            order = word > 0 ? order : "duration, id";
+        }
+        if (query.getFrom() != null || query.getTo() != null) {
+            addRange(conditions, params, "release_date", query.getFrom(), query.getTo());
+            order = word > 0 ? order : "release_date, id";
+        }
+        String where = conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+        List<Film> films = namedJdbcTemplate.query(SELECT_FILMS + where + " ORDER BY " + order + " LIMIT :limit",
+                params, (rs, rowNum) -> mapFilm(rs));
+        loadLikes(films);
+        return films;
+    }
+
+    @Override
+    public Film getFilmById(Integer id) {
+        List<Film> films = jdbcTemplate.query(SELECT_FILMS + " WHERE id = ?", (rs, rowNum) -> mapFilm(rs), id);
+        if (films.isEmpty()) {
+            log.warn("Ошибка получения фильма по id. id: {}", id);
+            throw new NotFoundException("Не найден фильм с id = " + id);
+        }
+        loadLikes(films);
+        return films.get(0);
+    }
+
+    @Override
+    public List<Film> getFilmsByIds(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Film> films = namedJdbcTemplate.query(SELECT_FILMS + " WHERE id IN (:ids) ORDER BY id",
+                new MapSqlParameterSource("ids", ids), (rs, rowNum) -> mapFilm(rs));
+        loadLikes(films);
+        return films;
+    }
+
+    @Override
+    public Film createFilm(Film film) {
+        SortedIntSet likes = new SortedIntSet(film.getLikes());
+        film.setLikes(likes);
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(INSERT_FILM, new String[]{"id"});
+            setFilmFields(statement, film);
+            statement.setInt(5, likes.size());
+            return statement;
+        }, keyHolder);
+        film.setId(keyHolder.getKey().intValue());
+        insertLikes(film.getId(), likes.toIntArray());
+        insertWords(List.of(film));
+        modifications.incrementAfterCommit();
+        log.debug("Фильм успешно сохранён в базе данных. id: {}", film.getId());
+        return film;
+    }
+
+    @Override
+    public List<Film> createFilms(List<Film> films) {
+        if (films.isEmpty()) {
+            return films;
+        }
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_FILM, new String[]{"id"})) {
+                for (Film film : films) {
+                    film.setLikes(new SortedIntSet(film.getLikes()));
+                    setFilmFields(statement, film);
+                    statement.setInt(5, film.getLikes().size());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    for (int i = 0; keys.next(); i++) {
+                        films.get(i).setId(keys.getInt(1));
+                    }
+                }
+            }
+            return null;
+        });
+        for (Film film : films) {
+            insertLikes(film.getId(), ((SortedIntSet) film.getLikes()).toIntArray());
+        }
+        insertWords(films);
+        modifications.incrementAfterCommit();
+        log.debug("Пакет фильмов сохранён в базе данных. Количество: {}", films.size());
+        return films;
+    }
+
+    @Override
+    public Film updateFilm(Film film) {
+        if (film.getId() == null) {
+            log.warn("Ошибка обновления фильма. Не указан идентификатор");
+            throw new NotFoundException("Не найден фильм с id = null");
+        }
+        SortedIntSet likes = new SortedIntSet(film.getLikes());
+        film.setLikes(likes);
+        int updated = jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement("UPDATE films "
+                    + "SET name = ?, description = ?, release_date = ?, duration = ?, likes_count = ? WHERE id = ?");
+            setFilmFields(statement, film);
+            statement.setInt(5, likes.size());
+            statement.setInt(6, film.getId());
+            return statement;
+        });
+        if (updated == 0) {
+            log.warn("Ошибка обновления фильма. Идентификатор не найден. id: {}", film.getId());
+            throw new NotFoundException("Не найден фильм с id = " + film.getId());
+        }
+        jdbcTemplate.update("DELETE FROM likes WHERE film_id = ?", film.getId());
+        insertLikes(film.getId(), likes.toIntArray());
+        jdbcTemplate.update("DELETE FROM film_words WHERE film_id = ?", film.getId());
+        insertWords(List.of(film));
+        modifications.incrementAfterCommit();
+        log.debug("Обновление фильма в базе данных прошло успешно. id: {}", film.getId());
+        return film;
+    }
+
+    @Override
+    public boolean addLike(Film film, Integer userId) {
+        int inserted = insertLike(film.getId(), userId);
+        if (inserted > 0) {
+            jdbcTemplate.update("UPDATE films SET likes_count = likes_count + 1 WHERE id = ?", film.getId());
+            modifications.incrementAfterCommit();
+        }
+        film.addLike(userId);
+        log.debug("Поставлен лайк фильму. Фильм: {}; Пользователь: {}; Новый: {}", film.getId(), userId, inserted > 0);
+        return inserted > 0;
+    }
+
+    @Override
+    public List<Like> addLikes(List<Like> likes) {
+        if (likes.isEmpty()) {
+            return List.of();
+        }
+        TransactionStatus transaction = TransactionAspectSupport.currentTransactionStatus();
+        Object savepoint = transaction.createSavepoint();
+        int[] inserted;
+        try {
+            inserted = jdbcTemplate.batchUpdate(INSERT_LIKE, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement statement, int i) throws SQLException {
+                    Like like = likes.get(i);
+                    statement.setInt(1, like.getFilmId());
+                    statement.setInt(2, like.getUserId());
+                    statement.setInt(3, like.getFilmId());
+                    statement.setInt(4, like.getUserId());
+                    statement.setInt(5, like.getFilmId());
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return likes.size();
+                }
+            });
+        } catch (DuplicateKeyException e) {
+            // Тот же лайк одновременно вставил другой запрос: пакет повторяется по одному лайку
+            log.debug("Пакет лайков пересёкся с одновременной вставкой. Количество: {}", likes.size());
+            transaction.rollbackToSavepoint(savepoint);
+            inserted = new int[likes.size()];
+            for (int i = 0; i < likes.size(); i++) {
+                inserted[i] = insertLike(likes.get(i).getFilmId(), likes.get(i).getUserId());
+            }
+        }
+        transaction.releaseSavepoint(savepoint);
+        List<Like> added = changed(likes, inserted);
+        if (!added.isEmpty()) {
+            updateLikesCount(added);
+            modifications.incrementAfterCommit();
+        }
+        log.debug("Пакет лайков сохранён в базе данных. Количество: {}; Новых: {}", likes.size(), added.size());
+        return added;
+    }
+
+    @Override
+    public List<Like> delLikes(List<Like> likes) {
+        if (likes.isEmpty()) {
+            return List.of();
+        }
+        int[] deleted = jdbcTemplate.batchUpdate("DELETE FROM likes WHERE film_id = ? AND user_id = ?",
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement statement, int i) throws SQLException {
+                        statement.setInt(1, likes.get(i).getFilmId());
+                        statement.setInt(2, likes.get(i).getUserId());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return likes.size();
+                    }
+                });
+        List<Like> removed = changed(likes, deleted);
+        if (!removed.isEmpty()) {
+            updateLikesCount(removed);
+            modifications.incrementAfterCommit();
+        }
+        log.debug("Пакет лайков удалён из базы данных. Количество: {}; Снято: {}", likes.size(), removed.size());
+        return removed;
+    }
+
+    @Override
+    public boolean delLike(Film film, Integer userId) {
+        int deleted = jdbcTemplate.update("DELETE FROM likes WHERE film_id = ? AND user_id = ?", film.getId(), userId);
+        if (deleted > 0) {
+            jdbcTemplate.update("UPDATE films SET likes_count = likes_count - 1 WHERE id = ?", film.getId());
+            modifications.incrementAfterCommit();
+        }
+        film.delLike(userId);
+        log.debug("Удален лайк фильму. Фильм: {}; Пользователь: {}; Был: {}", film.getId(), userId, deleted > 0);
+        return deleted > 0;
+    }
+
+    @Override
+    public void clearFilms() {
+        log.info("Удаление всех фильмов из базы данных");
+        jdbcTemplate.update("DELETE FROM likes");
+        jdbcTemplate.update("DELETE FROM films");
+        modifications.incrementAfterCommit();
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public ModificationCounter getModifications() {
+        return modifications;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public int getFilmsCount() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM films", Integer.class);
+    }
+
+    /**
+     * Вставляет лайк, если его нет, и возвращает число вставленных строк. NOT EXISTS не видит лайк,
+     * который одновременно вставляет незафиксированная транзакция, и тогда вставка упирается в первичный ключ:
+     * такой лайк уже поставлен.
+     */
+    private int insertLike(int filmId, int userId) {
+        try {
+            return jdbcTemplate.update(INSERT_LIKE, filmId, userId, filmId, userId, filmId);
+        } catch (DuplicateKeyException e) {
+            log.debug("Лайк уже поставлен одновременным запросом. Фильм: {}; Пользователь: {}", filmId, userId);
+            return 0;
+        }
+    }
+
+    // Лайки, строки которых вставлены или удалены: повторы в пакете и уже стоящие лайки дают 0
+    private static List<Like> changed(List<Like> likes, int[] counts) {
+        List<Like> changed = new ArrayList<>(likes.size());
+        for (int i = 0; i < likes.size(); i++) {
+            if (counts[i] > 0) {
+                changed.add(likes.get(i));
+            }
+        }
+        return changed;
+    }
+
+    private void updateLikesCount(List<Like> likes) {
+        Set<Integer> filmIds = new HashSet<>();
+        for (Like like : likes) {
+            filmIds.add(like.getFilmId());
+        }
+        namedJdbcTemplate.update("UPDATE films SET likes_count = "
+                + "(SELECT COUNT(*) FROM likes WHERE likes.film_id = films.id) WHERE id IN (:ids)",
+                new MapSqlParameterSource("ids", filmIds));
+    }
+
+    private void loadLikes(List<Film> films) {
+        if (films.isEmpty()) {
+            return;
+        }
+        Map<Integer, Film> filmsById = new LinkedHashMap<>();
+        for (Film film : films) {
+            filmsById.put(film.getId(), film);
+        }
+        namedJdbcTemplate.query("SELECT film_id, user_id FROM likes WHERE film_id IN (:ids)",
+                new MapSqlParameterSource("ids", filmsById.keySet()), rs -> {
+                    filmsById.get(rs.getInt("film_id")).addLike(rs.getInt("user_id"));
+                });
+    }
+
+    private void insertLikes(int filmId, int[] userIds) {
+        if (userIds.length == 0) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO likes (film_id, user_id) VALUES (?, ?)",
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement statement, int i) throws SQLException {
+                        statement.setInt(1, filmId);
+                        statement.setInt(2, userIds[i]);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return userIds.length;
+                    }
+                });
+    }
+
+    private void insertWords(List<Film> films) {
+        List<Object[]> words = new ArrayList<>();
+        for (Film film : films) {
+            for (String word : TextTokens.of(film.getName(), film.getDescription())) {
+                words.add(new Object[]{word, film.getId()});
+            }
+        }
+        if (!words.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO film_words (word, film_id) VALUES (?, ?)", words);
+        }
+    }
+
+    // Диапазон значений столбца включительно, граница null не ограничивает
+    private static void addRange(List<String> conditions, MapSqlParameterSource params, String column,
+                                 Object from, Object to) {
+        if (from != null) {
+            conditions.add(column + " >= :" + column + "From");
+            params.addValue(column + "From", from);
+        }
+        if (to != null) {
+            conditions.add(column + " <= :" + column + "To");
+            params.addValue(column + "To", to);
+        }
+    }
+
+    private static void setFilmFields(PreparedStatement statement, Film film) throws SQLException {
+        statement.setString(1, film.getName());
+        statement.setString(2, film.getDescription());
+        statement.setDate(3, film.getReleaseDate() == null ? null : Date.valueOf(film.getReleaseDate()));
+        if (film.getDuration() == null) {
+            statement.setNull(4, Types.BIGINT);
+        } else {
+            statement.setLong(4, film.getDuration());
+        }
+    }
+
+    private static Film mapFilm(ResultSet rs) throws SQLException {
+        Date releaseDate = rs.getDate("release_date");
+        Long duration = rs.getObject("duration", Long.class);
+        return Film.builder()
+                .id(rs.getInt("id"))
+                .name(rs.getString("name"))
+                .description(rs.getString("description"))
+                .releaseDate(releaseDate == null ? null : releaseDate.toLocalDate())
+                .duration(duration)
+                .likes(new SortedIntSet())
+                .build();
+    }
+
+}
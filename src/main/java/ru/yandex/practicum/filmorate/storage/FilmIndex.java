@@ -0,0 +1,169 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmQuery;
+import ru.yandex.practicum.filmorate.util.SortedIntSet;
+import ru.yandex.practicum.filmorate.util.TextTokens;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Вторичные индексы фильмов в памяти: упорядоченные индексы дат выхода и продолжительности и обратный
+ * индекс слов названия и описания. Ключ упорядоченного индекса - значение в старших 32 битах и id фильма
+ * в младших, так что диапазон значений - непрерывный диапазон ключей. Изменения фильма вносятся под замком
+ * его полосы в хранилище; найденные по индексу фильмы перепроверяются по их текущим полям.
+ */
+class FilmIndex {
+
+    private final NavigableSet<Long> releaseDates = new ConcurrentSkipListSet<>();
+    private final NavigableSet<Long> durations = new ConcurrentSkipListSet<>();
+    private final Map<String, SortedIntSet> words = new ConcurrentHashMap<>();
+
+    void add(Film film) {
+        if (film.getReleaseDate() != null) {
+            releaseDates.add(key(film.getReleaseDate().toEpochDay(), film.getId()));
+        }
+        if (film.getDuration() != null) {
+            durations.add(key(clamp(film.getDuration()), film.getId()));
+        }
+        for (String word : TextTokens.of(film.getName(), film.getDescription())) {
+            words.computeIfAbsent(word, key -> new SortedIntSet()).add(film.getId());
+        }
+    }
+
+    void remove(Film film) {
+        if (film.getReleaseDate() != null) {
+            releaseDates.remove(key(film.getReleaseDate().toEpochDay(), film.getId()));
+        }
+        if (film.getDuration() != null) {
+            durations.remove(key(clamp(film.getDuration()), film.getId()));
+        }
+        for (String word : TextTokens.of(film.getName(), film.getDescription())) {
+            SortedIntSet filmIds = words.get(word);
+            if (filmIds != null) {
+                filmIds.remove(film.getId());
+            }
+        }
+    }
+
+    void clear() {
+        releaseDates.clear();
+        durations.clear();
+        words.clear();
+    }
+
+    /**
+     * Не более limit подходящих фильмов. Кандидаты берутся из самого узкого доступного индекса:
+     * по словам - в порядке id, по датам - в порядке даты выхода, по продолжительности - в её порядке,
+     * без условий - в порядке id.
+     */
+    List<Film> search(FilmQuery query, NavigableMap<Integer, Film> films) {
+        Set<String> tokens = TextTokens.of(query.getText());
+        Iterator<Integer> candidates;
+        if (!tokens.isEmpty()) {
+            candidates = SortedIntSet.ofSorted(filmsWithWords(tokens)).iterator();
+        } else if (query.getFrom() != null || query.getTo() != null) {
+            candidates = ids(releaseDates,
+                    query.getFrom() == null ? Integer.MIN_VALUE : query.getFrom().toEpochDay(),
+                    query.getTo() == null ? Integer.MAX_VALUE : query.getTo().toEpochDay());
+        } else if (query.getMinDuration() != null || query.getMaxDuration() != null) {
+            candidates = ids(durations,
+                    query.getMinDuration() == null ? Integer.MIN_VALUE : clamp(query.getMinDuration()),
+                    query.getMaxDuration() == null ? Integer.MAX_VALUE : clamp(query.getMaxDuration()));
+        } else {
+            candidates = films.keySet().iterator();
+        }
+        List<Film> result = new ArrayList<>();
+        while (result.size() < query.getLimit() && candidates.hasNext()) {
+            Film film = films.get(candidates.next());
+            if (film != null && matches(film, query, tokens)) {
+                result.add(film);
+            }
+        }
+        return result;
+    }
+
+    // Порядок результата search для запроса: по нему сливаются результаты шардов
+    static Comparator<Film> order(FilmQuery query) {
+        Comparator<Film> byId = Comparator.comparingInt(Film::getId);
+        if (!TextTokens.of(query.getText()).isEmpty()) {
+            return byId;
+        } else if (query.getFrom() != null || query.getTo() != null) {
+            return Comparator.comparingLong((Film film) -> film.getReleaseDate().toEpochDay()).thenComparing(byId);
+        } else if (query.getMinDuration() != null || query.getMaxDuration() != null) {
+            return Comparator.comparingInt((Film film) -> clamp(film.getDuration())).thenComparing(byId);
+        }
+        return byId;
+    }
+
+    // Пересечение списков фильмов по словам, начиная с самого короткого
+    private int[] filmsWithWords(Set<String> tokens) {
+        List<SortedIntSet> postings = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            SortedIntSet filmIds = words.get(token);
+            if (filmIds == null) {
+                return new int[0];
+            }
+            postings.add(filmIds);
+        }
+        postings.sort(Comparator.comparingInt(SortedIntSet::size));
+        int[] result = postings.get(0).toIntArray();
+        for (int i = 1; i < postings.size() && result.length > 0; i++) {
+            result = SortedIntSet.ofSorted(result).intersect(postings.get(i));
+        }
+        return result;
+    }
+
+    private static boolean matches(Film film, FilmQuery query, Set<String> tokens) {
+        LocalDate releaseDate = film.getReleaseDate();
+        if ((query.getFrom() != null || query.getTo() != null) && releaseDate == null) {
+            return false;
+        }
+        if (query.getFrom() != null && releaseDate.isBefore(query.getFrom())
+                || query.getTo() != null && releaseDate.isAfter(query.getTo())) {
+            return false;
+        }
+        Long duration = film.getDuration();
+        if ((query.getMinDuration() != null || query.getMaxDuration() != null) && duration == null) {
+            return false;
+        }
+        if (query.getMinDuration() != null && duration < query.getMinDuration()
+                || query.getMaxDuration() != null && duration > query.getMaxDuration()) {
+            return false;
+        }
+        return tokens.isEmpty() || TextTokens.of(film.getName(), film.getDescription()).containsAll(tokens);
+    }
+
+    private static Iterator<Integer> ids(NavigableSet<Long> index, long from, long to) {
+        Iterator<Long> keys = index.subSet(key(from, 0), true, key(to, -1), true).iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return keys.hasNext();
+            }
+
+            @Override
+            public Integer next() {
+                return (int) (long) keys.next();
+            }
+        };
+    }
+
+    private static long key(long value, int filmId) {
+        return (value << 32) | (filmId & 0xFFFFFFFFL);
+    }
+
+    private static int clamp(long value) {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, value));
+    }
+}
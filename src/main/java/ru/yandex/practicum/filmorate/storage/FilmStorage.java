@@ -1,23 +1,51 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmQuery;
+import ru.yandex.practicum.filmorate.model.Like;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface FilmStorage {
 
     List<Film> getAllFilms();
 
+    List<Film> getFilmsPage(Integer afterId, Integer limit);
+
+    List<Film> getPopFilms(Integer count);
+
+    List<Film> searchFilms(FilmQuery query);
+
     Film createFilm(Film film);
 
+    List<Film> createFilms(List<Film> films);
+
     Film updateFilm(Film film);
 
-    Film addLike(Film film, Integer userId);
+    /**
+     * Ставит лайк и возвращает true, если его ещё не было. Проверка и изменение атомарны,
+     * поэтому из одновременных одинаковых лайков true получает только один.
+     */
+    boolean addLike(Film film, Integer userId);
+
+    // Снимает лайк и возвращает true, если он был
+    boolean delLike(Film film, Integer userId);
 
-    Film delLike(Film film, Integer userId);
+    // Возвращает лайки, которых не было: повторы и уже поставленные лайки не входят
+    List<Like> addLikes(List<Like> likes);
+
+    // Возвращает снятые лайки: лайки, которых не было, не входят
+    List<Like> delLikes(List<Like> likes);
 
     void clearFilms();
 
+    int getFilmsCount();
+
     Film getFilmById(Integer id);
 
-}
\ No newline at end of file
+    List<Film> getFilmsByIds(Collection<Integer> ids);
+
+    ModificationCounter getModifications();
+
+}
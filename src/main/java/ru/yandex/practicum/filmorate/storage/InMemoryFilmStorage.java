@@ -1,81 +1,398 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exeption.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmQuery;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.util.SortedIntSet;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Slf4j
 @Component
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "memory", matchIfMissing = true)
 public class InMemoryFilmStorage implements FilmStorage {
 
-    private final Map<Integer, Film> films = new HashMap<>();
-    private Integer id = 0;
+    private static final int LOCK_STRIPES = 64;
+
+    // Упорядочены по id, чтобы постраничный обход шёл по ключу без копирования всего хранилища
+    private final NavigableMap<Integer, Film> films = new ConcurrentSkipListMap<>();
+    // Индекс популярности: ключ содержит число лайков и id фильма, см. popularityKey
+    private final NavigableSet<Long> popularity = new ConcurrentSkipListSet<>();
+    // Индексы дат выхода, продолжительности и слов для поиска
+    private final FilmIndex index = new FilmIndex();
+    // Изменения одного фильма (лайки, обновление) выполняются под замком его полосы
+    private final StripedLock locks = new StripedLock(LOCK_STRIPES);
+    private final AtomicInteger id = new AtomicInteger();
+    private volatile MutationLog mutationLog = MutationLog.NONE;
+    private final ModificationCounter modifications = new ModificationCounter();
 
     @Override
     public List<Film> getAllFilms() {
-        log.info("Получение списка фильмов из памяти");
+        log.debug("Получение списка фильмов из памяти");
         return new ArrayList<>(films.values());
     }
 
+    @Override
+    public List<Film> getFilmsPage(Integer afterId, Integer limit) {
+        log.debug("Получение страницы фильмов из памяти. После id: {}; Размер: {}", afterId, limit);
+        List<Film> page = new ArrayList<>(limit);
+        for (Film film : films.tailMap(afterId, false).values()) {
+            if (page.size() == limit) {
+                break;
+            }
+            page.add(film);
+        }
+        return page;
+    }
+
+    @Override
+    public List<Film> getPopFilms(Integer count) {
+        log.debug("Получение {} популярных фильмов из индекса", count);
+        List<Film> popFilms = new ArrayList<>();
+        Iterator<Long> keys = popularity.iterator();
+        while (popFilms.size() < count && keys.hasNext()) {
+            Film film = films.get(filmIdFromKey(keys.next()));
+            if (film != null) {
+                popFilms.add(film);
+            }
+        }
+        return popFilms;
+    }
+
+    @Override
+    public List<Film> searchFilms(FilmQuery query) {
+        log.debug("Поиск фильмов в индексах. Условия: {}", query);
+        return index.search(query, films);
+    }
+
     @Override
     public Film getFilmById(Integer id) {
-        if (!films.containsKey(id)) {
+        Film film = films.get(id);
+        if (film == null) {
             log.warn("Ошибка получения фильма по id. id: {}", id);
             throw new NotFoundException("Не найден фильм с id = " + id);
         }
-        return films.get(id);
+        return film;
+    }
+
+    @Override
+    public List<Film> getFilmsByIds(Collection<Integer> ids) {
+        List<Film> result = new ArrayList<>(ids.size());
+        for (Integer filmId : ids) {
+            Film film = films.get(filmId);
+            if (film != null) {
+                result.add(film);
+            }
+        }
+        return result;
     }
 
     @Override
     public Film createFilm(Film film) {
-        film.setId(nextId());
-        films.put(film.getId(),film);
-        log.info("Фильм успешно загружен в память. Фильм: {}", film);
+        insertFilm(film);
+        mutationLog.sync();
+        modifications.increment();
+        log.debug("Фильм успешно загружен в память. id: {}", film.getId());
         return film;
     }
 
     @Override
-    public Film updateFilm(Film film) {
-        if (!films.containsKey(film.getId())) {
-            log.warn("Ошибка обновления фильма. Идентификатор не найден. Фильм: {}", film);
-            throw new NotFoundException("Не найден фильм с id = " + film.getId());
+    public List<Film> createFilms(List<Film> films) {
+        for (Film film : films) {
+            insertFilm(film);
         }
+        mutationLog.sync();
+        modifications.increment();
+        log.debug("Пакет фильмов загружен в память. Количество: {}", films.size());
+        return films;
+    }
 
-        films.replace(film.getId(),film);
-        log.info("Обновление фильма в памяти прошло успешно. Фильм: {}", film);
-        return film;
+    /**
+     * Сохраняет фильмы с уже назначенными id: так узел шардированного хранилища принимает фильмы,
+     * id которым выдал маршрутизатор.
+     */
+    public List<Film> createFilmsWithIds(List<Film> films) {
+        for (Film film : films) {
+            restoreLastId(film.getId());
+            storeFilm(film);
+        }
+        mutationLog.sync();
+        modifications.increment();
+        log.debug("Фильмы с заданными id загружены в память. Количество: {}", films.size());
+        return films;
     }
 
     @Override
-    public Film addLike(Film film, Integer userId) {
-        film.addLike(userId);
-        log.info("Поставлен лайк фильму. Фильм: {}; Пользователь:{}", film, userId);
+    public Film updateFilm(Film film) {
+        if (film.getId() == null) {
+            log.warn("Ошибка обновления фильма. Не указан идентификатор");
+            throw new NotFoundException("Не найден фильм с id = null");
+        }
+        film.setLikes(new SortedIntSet(film.getLikes()));
+        synchronized (locks.forId(film.getId())) {
+            Film oldFilm = films.replace(film.getId(), film);
+            if (oldFilm == null) {
+                log.warn("Ошибка обновления фильма. Идентификатор не найден. id: {}", film.getId());
+                throw new NotFoundException("Не найден фильм с id = " + film.getId());
+            }
+            movePopularity(film.getId(), oldFilm.getLikes().size(), film.getLikes().size());
+            index.remove(oldFilm);
+            index.add(film);
+            mutationLog.append(Mutation.updateFilm(film));
+        }
+        mutationLog.sync();
+        modifications.increment();
+        log.debug("Обновление фильма в памяти прошло успешно. id: {}", film.getId());
         return film;
     }
 
     @Override
-    public Film delLike(Film film, Integer userId) {
-        film.delLike(userId);
-        log.info("Удален лайк фильму. Фильм: {}; Пользователь:{}", film, userId);
-        return film;
+    public boolean addLike(Film film, Integer userId) {
+        boolean added = insertLike(film.getId(), userId, false);
+        // Ожидание журнала и без изменения: одинаковый лайк из другого запроса мог ещё не попасть на диск
+        mutationLog.sync();
+        if (added) {
+            modifications.increment();
+        }
+        log.debug("Поставлен лайк фильму. Фильм: {}; Пользователь: {}; Новый: {}", film.getId(), userId, added);
+        return added;
+    }
+
+    @Override
+    public List<Like> addLikes(List<Like> likes) {
+        List<Like> added = new ArrayList<>(likes.size());
+        for (Like like : likes) {
+            if (insertLike(like.getFilmId(), like.getUserId(), true)) {
+                added.add(like);
+            }
+        }
+        mutationLog.sync();
+        if (!added.isEmpty()) {
+            modifications.increment();
+        }
+        log.debug("Пакет лайков сохранён в памяти. Количество: {}; Новых: {}", likes.size(), added.size());
+        return added;
+    }
+
+    @Override
+    public boolean delLike(Film film, Integer userId) {
+        boolean removed = removeLike(film.getId(), userId, false);
+        mutationLog.sync();
+        if (removed) {
+            modifications.increment();
+        }
+        log.debug("Удален лайк фильму. Фильм: {}; Пользователь: {}; Был: {}", film.getId(), userId, removed);
+        return removed;
+    }
+
+    @Override
+    public List<Like> delLikes(List<Like> likes) {
+        List<Like> removed = new ArrayList<>(likes.size());
+        for (Like like : likes) {
+            if (removeLike(like.getFilmId(), like.getUserId(), true)) {
+                removed.add(like);
+            }
+        }
+        mutationLog.sync();
+        if (!removed.isEmpty()) {
+            modifications.increment();
+        }
+        log.debug("Пакет лайков удалён из памяти. Количество: {}; Снято: {}", likes.size(), removed.size());
+        return removed;
     }
 
     @Override
     public void clearFilms() {
         log.info("Удаление всех фильмов из памяти");
         films.clear();
+        popularity.clear();
+        index.clear();
+        mutationLog.append(Mutation.clearFilms());
+        mutationLog.sync();
+        modifications.increment();
+    }
+
+    @Override
+    public int getFilmsCount() {
+        return films.size();
+    }
+
+    @Override
+    public ModificationCounter getModifications() {
+        return modifications;
+    }
+
+    public MutationLog getMutationLog() {
+        return mutationLog;
+    }
+
+    public void setMutationLog(MutationLog mutationLog) {
+        this.mutationLog = mutationLog;
+    }
+
+    public int getLastId() {
+        return id.get();
+    }
+
+    public void restoreLastId(int lastId) {
+        id.accumulateAndGet(lastId, Math::max);
+    }
+
+    /**
+     * Применяет изменения из снимка или журнала при восстановлении, в журнал они повторно не пишутся.
+     * Лайки фильмов, которых уже нет, пропускаются.
+     */
+    public void apply(List<Mutation> mutations) {
+        for (Mutation mutation : mutations) {
+            switch (mutation.getType()) {
+                case CREATE_FILM:
+                case UPDATE_FILM:
+                    putFilm(mutation.getFilm());
+                    break;
+                case ADD_LIKE:
+                    replayLike(mutation.getId(), mutation.getOtherId(), true);
+                    break;
+                case DEL_LIKE:
+                    replayLike(mutation.getId(), mutation.getOtherId(), false);
+                    break;
+                case CLEAR_FILMS:
+                    films.clear();
+                    popularity.clear();
+                    index.clear();
+                    break;
+                default:
+                    throw new IllegalArgumentException("Изменение не относится к фильмам: " + mutation.getType());
+            }
+        }
+        modifications.increment();
+    }
+
+    private void insertFilm(Film film) {
+        film.setId(nextId());
+        storeFilm(film);
+    }
+
+    private void storeFilm(Film film) {
+        film.setLikes(new SortedIntSet(film.getLikes()));
+        synchronized (locks.forId(film.getId())) {
+            films.put(film.getId(), film);
+            popularity.add(popularityKey(film.getLikes().size(), film.getId()));
+            index.add(film);
+            mutationLog.append(Mutation.createFilm(film));
+        }
+    }
+
+    private void putFilm(Film film) {
+        film.setLikes(SortedIntSet.of(film.getLikes()));
+        restoreLastId(film.getId());
+        synchronized (locks.forId(film.getId())) {
+            Film oldFilm = films.put(film.getId(), film);
+            if (oldFilm == null) {
+                popularity.add(popularityKey(film.getLikes().size(), film.getId()));
+            } else {
+                movePopularity(film.getId(), oldFilm.getLikes().size(), film.getLikes().size());
+                index.remove(oldFilm);
+            }
+            index.add(film);
+        }
+    }
+
+    private void replayLike(int filmId, int userId, boolean add) {
+        synchronized (locks.forId(filmId)) {
+            Film storedFilm = films.get(filmId);
+            if (storedFilm == null) {
+                return;
+            }
+            int likes = storedFilm.getLikes().size();
+            if (add) {
+                storedFilm.addLike(userId);
+            } else {
+                storedFilm.delLike(userId);
+            }
+            movePopularity(filmId, likes, storedFilm.getLikes().size());
+        }
+    }
+
+    // Лайк, который уже стоит, ничего не меняет и в журнал не пишется
+    private boolean insertLike(int filmId, int userId, boolean skipMissing) {
+        synchronized (locks.forId(filmId)) {
+            Film storedFilm = storedFilm(filmId, skipMissing);
+            if (storedFilm == null) {
+                return false;
+            }
+            int likes = storedFilm.getLikes().size();
+            if (!storedFilm.addLike(userId)) {
+                return false;
+            }
+            movePopularity(filmId, likes, storedFilm.getLikes().size());
+            mutationLog.append(Mutation.addLike(filmId, userId));
+            return true;
+        }
+    }
+
+    private boolean removeLike(int filmId, int userId, boolean skipMissing) {
+        synchronized (locks.forId(filmId)) {
+            Film storedFilm = storedFilm(filmId, skipMissing);
+            if (storedFilm == null) {
+                return false;
+            }
+            int likes = storedFilm.getLikes().size();
+            if (!storedFilm.delLike(userId)) {
+                return false;
+            }
+            movePopularity(filmId, likes, storedFilm.getLikes().size());
+            mutationLog.append(Mutation.delLike(filmId, userId));
+            return true;
+        }
+    }
+
+    /**
+     * Пакет лайков проверяется в сервисе до записи, и фильм могут удалить между проверкой и записью:
+     * тогда лайки этого фильма пропускаются, а не обрывают весь пакет.
+     */
+    private Film storedFilm(int filmId, boolean skipMissing) {
+        Film storedFilm = films.get(filmId);
+        if (storedFilm == null && skipMissing) {
+            log.debug("Лайк пакета пропущен: фильм удалён. Фильм: {}", filmId);
+            return null;
+        }
+        return storedFilm == null ? getFilmById(filmId) : storedFilm;
+    }
+
+    private void movePopularity(int filmId, int oldLikes, int newLikes) {
+        if (oldLikes == newLikes) {
+            return;
+        }
+        popularity.remove(popularityKey(oldLikes, filmId));
+        popularity.add(popularityKey(newLikes, filmId));
+    }
+
+    // Старшие 32 бита - инвертированное число лайков, младшие - id фильма.
+    // Обход индекса по возрастанию даёт фильмы по убыванию лайков, при равенстве - по возрастанию id.
+    static long popularityKey(int likes, int filmId) {
+        return ((long) (Integer.MAX_VALUE - likes) << 32) | (filmId & 0xFFFFFFFFL);
+    }
+
+    static int filmIdFromKey(long key) {
+        return (int) key;
     }
 
     private Integer nextId() {
-        id++;
-        log.debug("Изменение id фильмов: {}",id);
-        return id;
+        int nextId = id.incrementAndGet();
+        log.trace("Изменение id фильмов: {}", nextId);
+        return nextId;
     }
 
 
-}
\ No newline at end of file
+}
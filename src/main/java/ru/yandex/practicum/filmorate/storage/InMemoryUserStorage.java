@@ -1,86 +1,278 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exeption.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.SortedIntSet;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.NavigableMap;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Slf4j
 @Component
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "memory", matchIfMissing = true)
 public class InMemoryUserStorage  implements UserStorage {
 
-    private final Map<Integer, User> users = new HashMap<>();
-    private Integer id = 0;
+    private static final int LOCK_STRIPES = 64;
+
+    // Упорядочены по id, чтобы постраничный обход шёл по ключу без копирования всего хранилища
+    private final NavigableMap<Integer, User> users = new ConcurrentSkipListMap<>();
+    // Изменения одного пользователя (друзья, обновление) выполняются под замком его полосы
+    private final StripedLock locks = new StripedLock(LOCK_STRIPES);
+    private final AtomicInteger id = new AtomicInteger();
+    private volatile MutationLog mutationLog = MutationLog.NONE;
+    private final ModificationCounter modifications = new ModificationCounter();
 
     @Override
     public List<User> getAllUsers() {
-        log.info("Получение списка пользователей из памяти");
+        log.debug("Получение списка пользователей из памяти");
         return new ArrayList<>(users.values());
     }
 
+    @Override
+    public List<User> getUsersPage(Integer afterId, Integer limit) {
+        log.debug("Получение страницы пользователей из памяти. После id: {}; Размер: {}", afterId, limit);
+        List<User> page = new ArrayList<>(limit);
+        for (User user : users.tailMap(afterId, false).values()) {
+            if (page.size() == limit) {
+                break;
+            }
+            page.add(user);
+        }
+        return page;
+    }
+
     public User getUserById(Integer id) {
-        if (!users.containsKey(id)) {
+        User user = users.get(id);
+        if (user == null) {
             log.warn("Ошибка получения пользователя по id. id: {}",id);
             throw new NotFoundException("Не найден пользователь с id = " + id);
         }
-        return users.get(id);
+        return user;
+    }
+
+    @Override
+    public List<User> getUsersByIds(Collection<Integer> ids) {
+        List<User> result = new ArrayList<>(ids.size());
+        for (Integer userId : ids) {
+            User user = users.get(userId);
+            if (user != null) {
+                result.add(user);
+            }
+        }
+        return result;
     }
 
     @Override
     public User createUser(User user) {
-        user.setId(nextId());
-        users.put(user.getId(),user);
-        log.info("Добавление пользователя в память. Пользователь: {}",user);
+        insertUser(user);
+        mutationLog.sync();
+        modifications.increment();
+        log.debug("Добавление пользователя в память. id: {}", user.getId());
         return user;
     }
 
+    @Override
+    public List<User> createUsers(List<User> users) {
+        for (User user : users) {
+            insertUser(user);
+        }
+        mutationLog.sync();
+        modifications.increment();
+        log.debug("Пакет пользователей добавлен в память. Количество: {}", users.size());
+        return users;
+    }
+
+    /**
+     * Сохраняет пользователей с уже назначенными id: так узел шардированного хранилища принимает пользователей,
+     * id которым выдал маршрутизатор.
+     */
+    public List<User> createUsersWithIds(List<User> users) {
+        for (User user : users) {
+            restoreLastId(user.getId());
+            storeUser(user);
+        }
+        mutationLog.sync();
+        modifications.increment();
+        log.debug("Пользователи с заданными id добавлены в память. Количество: {}", users.size());
+        return users;
+    }
+
     @Override
     public User updateUser(User user) {
-        if (!users.containsKey(user.getId())) {
-            log.warn("Ошибка обновления пользователя Пользователь: {}",user);
-            throw new NotFoundException("Не найден пользователь с id = " + user.getId());
+        if (user.getId() == null) {
+            log.warn("Ошибка обновления пользователя. Не указан идентификатор");
+            throw new NotFoundException("Не найден пользователь с id = null");
         }
-        users.replace(user.getId(),user);
-        log.info("Обновление пользователя в памяти прошло успешно. Пользователь: {}",user);
+        user.setFriends(new SortedIntSet(user.getFriends()));
+        synchronized (locks.forId(user.getId())) {
+            if (users.replace(user.getId(), user) == null) {
+                log.warn("Ошибка обновления пользователя. Идентификатор не найден. id: {}", user.getId());
+                throw new NotFoundException("Не найден пользователь с id = " + user.getId());
+            }
+            mutationLog.append(Mutation.updateUser(user));
+        }
+        mutationLog.sync();
+        modifications.increment();
+        log.debug("Обновление пользователя в памяти прошло успешно. id: {}", user.getId());
         return user;
     }
 
     @Override
     public User addFriend(User user, Integer friendId) {
-        user.addFriend(friendId);
-        log.info("Друг пользователю добавлен. Пользователь: {}", user);
-        return user;
+        User storedUser = insertFriend(user.getId(), friendId);
+        mutationLog.sync();
+        modifications.increment();
+        log.debug("Друг пользователю добавлен. Пользователь: {}; Друг: {}", storedUser.getId(), friendId);
+        return storedUser;
+    }
+
+    @Override
+    public void addFriends(List<Friendship> friendships) {
+        for (Friendship friendship : friendships) {
+            insertFriend(friendship.getUserId(), friendship.getFriendId());
+        }
+        mutationLog.sync();
+        modifications.increment();
+        log.debug("Пакет друзей сохранён в памяти. Количество: {}", friendships.size());
     }
 
     @Override
     public User delFriend(User user, Integer friendId) {
-        log.info("Попытка удаления друга пользователю. Пользователь: {}",user);
-        if (!user.getFriends().contains(friendId)) {
-            log.info("У пользователя не было такого друга. Пользователь: {}",user);
-            throw new NotFoundException("У пользователя " + user.getName() + " не было такого друга с id = "
-                    + user.getId());
+        log.debug("Попытка удаления друга пользователю. Пользователь: {}; Друг: {}", user.getId(), friendId);
+        User storedUser;
+        synchronized (locks.forId(user.getId())) {
+            storedUser = getUserById(user.getId());
+            if (!storedUser.getFriends().contains(friendId)) {
+                log.debug("У пользователя не было такого друга. Пользователь: {}; Друг: {}", storedUser.getId(), friendId);
+                throw new NotFoundException("У пользователя " + storedUser.getName() + " не было такого друга с id = "
+                        + storedUser.getId());
+            }
+            storedUser.delFriend(friendId);
+            mutationLog.append(Mutation.delFriend(storedUser.getId(), friendId));
         }
-        user.delFriend(friendId);
-        log.info("Удаления друга у пользователя прошло успешно. Пользователь: {}; Друг: {}",id,friendId);
-        return user;
+        mutationLog.sync();
+        modifications.increment();
+        log.debug("Удаления друга у пользователя прошло успешно. Пользователь: {}; Друг: {}", storedUser.getId(), friendId);
+        return storedUser;
     }
 
     @Override
     public void clearUsers() {
         log.info("Удаление всех пользователей из памяти");
         users.clear();
+        mutationLog.append(Mutation.clearUsers());
+        mutationLog.sync();
+        modifications.increment();
+    }
+
+    @Override
+    public int getUsersCount() {
+        return users.size();
+    }
+
+    @Override
+    public ModificationCounter getModifications() {
+        return modifications;
+    }
+
+    public MutationLog getMutationLog() {
+        return mutationLog;
+    }
+
+    public void setMutationLog(MutationLog mutationLog) {
+        this.mutationLog = mutationLog;
+    }
+
+    public int getLastId() {
+        return id.get();
+    }
+
+    public void restoreLastId(int lastId) {
+        id.accumulateAndGet(lastId, Math::max);
+    }
+
+    /**
+     * Применяет изменения из снимка или журнала при восстановлении, в журнал они повторно не пишутся.
+     * Друзья пользователей, которых уже нет, пропускаются.
+     */
+    public void apply(List<Mutation> mutations) {
+        for (Mutation mutation : mutations) {
+            switch (mutation.getType()) {
+                case CREATE_USER:
+                case UPDATE_USER:
+                    putUser(mutation.getUser());
+                    break;
+                case ADD_FRIEND:
+                    replayFriend(mutation.getId(), mutation.getOtherId(), true);
+                    break;
+                case DEL_FRIEND:
+                    replayFriend(mutation.getId(), mutation.getOtherId(), false);
+                    break;
+                case CLEAR_USERS:
+                    users.clear();
+                    break;
+                default:
+                    throw new IllegalArgumentException("Изменение не относится к пользователям: " + mutation.getType());
+            }
+        }
+        modifications.increment();
+    }
+
+    private void insertUser(User user) {
+        user.setId(nextId());
+        storeUser(user);
+    }
+
+    private void storeUser(User user) {
+        user.setFriends(new SortedIntSet(user.getFriends()));
+        synchronized (locks.forId(user.getId())) {
+            users.put(user.getId(),user);
+            mutationLog.append(Mutation.createUser(user));
+        }
+    }
+
+    private User insertFriend(int userId, int friendId) {
+        synchronized (locks.forId(userId)) {
+            User storedUser = getUserById(userId);
+            storedUser.addFriend(friendId);
+            mutationLog.append(Mutation.addFriend(userId, friendId));
+            return storedUser;
+        }
+    }
+
+    private void putUser(User user) {
+        user.setFriends(SortedIntSet.of(user.getFriends()));
+        restoreLastId(user.getId());
+        users.put(user.getId(), user);
+    }
+
+    private void replayFriend(int userId, int friendId, boolean add) {
+        synchronized (locks.forId(userId)) {
+            User storedUser = users.get(userId);
+            if (storedUser == null) {
+                return;
+            }
+            if (add) {
+                storedUser.addFriend(friendId);
+            } else {
+                storedUser.delFriend(friendId);
+            }
+        }
     }
 
     private Integer nextId() {
-        id++;
-        log.debug("Изменение id пользователей: {}",id);
-        return id;
+        int nextId = id.incrementAndGet();
+        log.trace("Изменение id пользователей: {}", nextId);
+        return nextId;
     }
 
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,32 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.jdbc.init.DataSourceScriptDatabaseInitializer;
+import org.springframework.boot.sql.init.DatabaseInitializationMode;
+import org.springframework.boot.sql.init.DatabaseInitializationSettings;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * Создаёт таблицы schema.sql только для хранения в базе данных: хранилищам в памяти схема не нужна.
+ * Выполняется до первого использования JdbcTemplate.
+ */
+@Component
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "jdbc")
+public class JdbcSchemaInitializer extends DataSourceScriptDatabaseInitializer {
+
+    @Autowired
+    public JdbcSchemaInitializer(DataSource dataSource) {
+        super(dataSource, settings());
+    }
+
+    private static DatabaseInitializationSettings settings() {
+        DatabaseInitializationSettings settings = new DatabaseInitializationSettings();
+        settings.setSchemaLocations(List.of("classpath:schema.sql"));
+        settings.setMode(DatabaseInitializationMode.ALWAYS);
+        return settings;
+    }
+}
@@ -0,0 +1,55 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Счётчик изменений хранилища для условных запросов. Версия увеличивается после того, как изменение стало
+ * видно при чтении, поэтому ответ, прочитанный после версии, не старше её. Эпоха - время создания счётчика:
+ * после перезапуска версии считаются заново, и эпоха отличает их от выданных раньше.
+ * Учитываются изменения, сделанные через этот процесс.
+ */
+public class ModificationCounter {
+
+    private final long epoch = System.currentTimeMillis();
+    private final AtomicLong version = new AtomicLong();
+    private volatile long lastModified = epoch;
+
+    public void increment() {
+        lastModified = System.currentTimeMillis();
+        version.incrementAndGet();
+    }
+
+    /**
+     * Увеличивает версию после фиксации текущей транзакции: до фиксации изменение не видно другим соединениям.
+     * Без транзакции - сразу.
+     */
+    public void incrementAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            increment();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                increment();
+            }
+        });
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    // Время последнего изменения в миллисекундах, до первого изменения - время создания хранилища
+    public long getLastModified() {
+        return lastModified;
+    }
+
+}
@@ -0,0 +1,75 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+/**
+ * Одно изменение хранилища в памяти. Изменения пишутся в журнал и применяются при восстановлении,
+ * повторное применение изменения не меняет результат.
+ */
+@Getter
+@ToString
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class Mutation {
+
+    public enum Type {
+        CREATE_FILM, UPDATE_FILM, ADD_LIKE, DEL_LIKE, CLEAR_FILMS,
+        CREATE_USER, UPDATE_USER, ADD_FRIEND, DEL_FRIEND, CLEAR_USERS
+    }
+
+    private final Type type;
+    // Фильм или пользователь целиком для CREATE_* и UPDATE_*
+    private final Film film;
+    private final User user;
+    // id фильма или пользователя и id второй стороны лайка или дружбы
+    private final int id;
+    private final int otherId;
+
+    public static Mutation createFilm(Film film) {
+        return new Mutation(Type.CREATE_FILM, film, null, film.getId(), 0);
+    }
+
+    public static Mutation updateFilm(Film film) {
+        return new Mutation(Type.UPDATE_FILM, film, null, film.getId(), 0);
+    }
+
+    public static Mutation addLike(int filmId, int userId) {
+        return new Mutation(Type.ADD_LIKE, null, null, filmId, userId);
+    }
+
+    public static Mutation delLike(int filmId, int userId) {
+        return new Mutation(Type.DEL_LIKE, null, null, filmId, userId);
+    }
+
+    public static Mutation clearFilms() {
+        return new Mutation(Type.CLEAR_FILMS, null, null, 0, 0);
+    }
+
+    public static Mutation createUser(User user) {
+        return new Mutation(Type.CREATE_USER, null, user, user.getId(), 0);
+    }
+
+    public static Mutation updateUser(User user) {
+        return new Mutation(Type.UPDATE_USER, null, user, user.getId(), 0);
+    }
+
+    public static Mutation addFriend(int userId, int friendId) {
+        return new Mutation(Type.ADD_FRIEND, null, null, userId, friendId);
+    }
+
+    public static Mutation delFriend(int userId, int friendId) {
+        return new Mutation(Type.DEL_FRIEND, null, null, userId, friendId);
+    }
+
+    public static Mutation clearUsers() {
+        return new Mutation(Type.CLEAR_USERS, null, null, 0, 0);
+    }
+
+    public boolean isFilmMutation() {
+        return type.compareTo(Type.CLEAR_FILMS) <= 0;
+    }
+}
@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate.storage;
+
+/**
+ * Журнал изменений хранилища в памяти.
+ * append вызывается под замком изменяемого фильма или пользователя, поэтому изменения одного объекта
+ * попадают в журнал в том же порядке, в каком применялись. Фильм или пользователь в изменении
+ * продолжает меняться после вызова, журнал должен сохранить его состояние сразу.
+ * sync вызывается уже без замка и ждёт, пока все изменения, добавленные до вызова, станут надёжными.
+ */
+public interface MutationLog {
+
+    MutationLog NONE = new MutationLog() {
+        @Override
+        public void append(Mutation mutation) {
+        }
+
+        @Override
+        public void sync() {
+        }
+    };
+
+    void append(Mutation mutation);
+
+    void sync();
+
+    // Пишет каждое изменение в оба журнала по очереди, например в журнал на диске и в ленту реплик
+    static MutationLog both(MutationLog first, MutationLog second) {
+        return new MutationLog() {
+            @Override
+            public void append(Mutation mutation) {
+                first.append(mutation);
+                second.append(mutation);
+            }
+
+            @Override
+            public void sync() {
+                first.sync();
+                second.sync();
+            }
+        };
+    }
+}
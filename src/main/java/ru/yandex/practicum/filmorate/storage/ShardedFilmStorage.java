@@ -0,0 +1,296 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exeption.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmQuery;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.util.ConsistentHashRing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Фильмы, распределённые по узлам-шардам кольцом согласованного хеширования id. Id выдаёт маршрутизатор,
+ * операции с одним фильмом уходят на его шард, пакеты делятся по шардам, а списки (страницы, популярные,
+ * поиск) собираются со всех шардов: каждый отдаёт не больше limit первых в нужном порядке, из них
+ * выбираются limit первых общих.
+ * Узлы - хранилища в памяти этого процесса; сетевой узел подключается реализацией тех же вызовов.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "sharded")
+public class ShardedFilmStorage implements FilmStorage {
+
+    private static final Comparator<Film> BY_ID = Comparator.comparingInt(Film::getId);
+
+    private final List<InMemoryFilmStorage> nodes;
+    private final ConsistentHashRing ring;
+    private final AtomicInteger id = new AtomicInteger();
+    private final ModificationCounter modifications = new ModificationCounter();
+
+    @Autowired
+    public ShardedFilmStorage(@Value("${filmorate.sharding.shards:4}") int shards,
+                              @Value("${filmorate.sharding.virtual-nodes:128}") int virtualNodes) {
+        this(createNodes(shards), new ConsistentHashRing(shards, virtualNodes));
+    }
+
+    public ShardedFilmStorage(List<InMemoryFilmStorage> nodes, ConsistentHashRing ring) {
+        if (nodes.size() != ring.getShards()) {
+            throw new IllegalArgumentException("Число узлов не совпадает с числом шардов кольца: "
+                    + nodes.size() + ", " + ring.getShards());
+        }
+        this.nodes = List.copyOf(nodes);
+        this.ring = ring;
+        log.info("Хранилище фильмов разделено на шарды. Количество: {}", nodes.size());
+    }
+
+    @Override
+    public List<Film> getAllFilms() {
+        log.debug("Получение списка фильмов со всех шардов");
+        List<Film> films = new ArrayList<>();
+        for (InMemoryFilmStorage node : nodes) {
+            films.addAll(node.getAllFilms());
+        }
+        films.sort(BY_ID);
+        return films;
+    }
+
+    @Override
+    public List<Film> getFilmsPage(Integer afterId, Integer limit) {
+        log.debug("Получение страницы фильмов со всех шардов. После id: {}; Размер: {}", afterId, limit);
+        List<Film> films = new ArrayList<>();
+        for (InMemoryFilmStorage node : nodes) {
+            films.addAll(node.getFilmsPage(afterId, limit));
+        }
+        return first(films, BY_ID, limit);
+    }
+
+    @Override
+    public List<Film> getPopFilms(Integer count) {
+        log.debug("Получение {} популярных фильмов со всех шардов", count);
+        List<Film> films = new ArrayList<>();
+        for (InMemoryFilmStorage node : nodes) {
+            films.addAll(node.getPopFilms(count));
+        }
+        return mostPopular(films, count);
+    }
+
+    @Override
+    public List<Film> searchFilms(FilmQuery query) {
+        log.debug("Поиск фильмов на всех шардах. Условия: {}", query);
+        List<Film> films = new ArrayList<>();
+        for (InMemoryFilmStorage node : nodes) {
+            films.addAll(node.searchFilms(query));
+        }
+        return first(films, FilmIndex.order(query), query.getLimit());
+    }
+
+    @Override
+    public Film createFilm(Film film) {
+        film.setId(id.incrementAndGet());
+        nodeFor(film.getId()).createFilmsWithIds(List.of(film));
+        modifications.increment();
+        log.debug("Фильм сохранён на шарде. id: {}", film.getId());
+        return film;
+    }
+
+    @Override
+    public List<Film> createFilms(List<Film> films) {
+        for (Film film : films) {
+            film.setId(id.incrementAndGet());
+        }
+        List<List<Film>> filmsByShard = byShard(films.size());
+        for (Film film : films) {
+            filmsByShard.get(ring.shardFor(film.getId())).add(film);
+        }
+        for (int shard = 0; shard < nodes.size(); shard++) {
+            if (!filmsByShard.get(shard).isEmpty()) {
+                nodes.get(shard).createFilmsWithIds(filmsByShard.get(shard));
+            }
+        }
+        modifications.increment();
+        log.debug("Пакет фильмов распределён по шардам. Количество: {}", films.size());
+        return films;
+    }
+
+    @Override
+    public Film updateFilm(Film film) {
+        if (film.getId() == null) {
+            log.warn("Ошибка обновления фильма. Не указан идентификатор");
+            throw new NotFoundException("Не найден фильм с id = null");
+        }
+        Film stored = nodeFor(film.getId()).updateFilm(film);
+        modifications.increment();
+        return stored;
+    }
+
+    @Override
+    public boolean addLike(Film film, Integer userId) {
+        boolean added = nodeFor(film.getId()).addLike(film, userId);
+        if (added) {
+            modifications.increment();
+        }
+        return added;
+    }
+
+    @Override
+    public boolean delLike(Film film, Integer userId) {
+        boolean removed = nodeFor(film.getId()).delLike(film, userId);
+        if (removed) {
+            modifications.increment();
+        }
+        return removed;
+    }
+
+    @Override
+    public List<Like> addLikes(List<Like> likes) {
+        List<List<Like>> likesByShard = likesByShard(likes);
+        List<Like> added = new ArrayList<>(likes.size());
+        for (int shard = 0; shard < nodes.size(); shard++) {
+            if (!likesByShard.get(shard).isEmpty()) {
+                added.addAll(nodes.get(shard).addLikes(likesByShard.get(shard)));
+            }
+        }
+        if (!added.isEmpty()) {
+            modifications.increment();
+        }
+        return added;
+    }
+
+    @Override
+    public List<Like> delLikes(List<Like> likes) {
+        List<List<Like>> likesByShard = likesByShard(likes);
+        List<Like> removed = new ArrayList<>(likes.size());
+        for (int shard = 0; shard < nodes.size(); shard++) {
+            if (!likesByShard.get(shard).isEmpty()) {
+                removed.addAll(nodes.get(shard).delLikes(likesByShard.get(shard)));
+            }
+        }
+        if (!removed.isEmpty()) {
+            modifications.increment();
+        }
+        return removed;
+    }
+
+    @Override
+    public void clearFilms() {
+        log.info("Удаление всех фильмов со всех шардов");
+        for (InMemoryFilmStorage node : nodes) {
+            node.clearFilms();
+        }
+        modifications.increment();
+    }
+
+    @Override
+    public int getFilmsCount() {
+        int count = 0;
+        for (InMemoryFilmStorage node : nodes) {
+            count += node.getFilmsCount();
+        }
+        return count;
+    }
+
+    @Override
+    public Film getFilmById(Integer id) {
+        return nodeFor(id).getFilmById(id);
+    }
+
+    @Override
+    public List<Film> getFilmsByIds(Collection<Integer> ids) {
+        List<List<Integer>> idsByShard = byShard(ids.size());
+        for (Integer filmId : ids) {
+            idsByShard.get(ring.shardFor(filmId)).add(filmId);
+        }
+        Map<Integer, Film> filmsById = new HashMap<>();
+        for (int shard = 0; shard < nodes.size(); shard++) {
+            if (!idsByShard.get(shard).isEmpty()) {
+                for (Film film : nodes.get(shard).getFilmsByIds(idsByShard.get(shard))) {
+                    filmsById.put(film.getId(), film);
+                }
+            }
+        }
+        // Порядок запрошенных id сохраняется, как у хранилища в памяти
+        List<Film> result = new ArrayList<>(filmsById.size());
+        for (Integer filmId : ids) {
+            Film film = filmsById.get(filmId);
+            if (film != null) {
+                result.add(film);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public ModificationCounter getModifications() {
+        return modifications;
+    }
+
+    public int getShards() {
+        return nodes.size();
+    }
+
+    private InMemoryFilmStorage nodeFor(int filmId) {
+        return nodes.get(ring.shardFor(filmId));
+    }
+
+    private List<List<Like>> likesByShard(List<Like> likes) {
+        List<List<Like>> likesByShard = byShard(likes.size());
+        for (Like like : likes) {
+            likesByShard.get(ring.shardFor(like.getFilmId())).add(like);
+        }
+        return likesByShard;
+    }
+
+    private <T> List<List<T>> byShard(int size) {
+        List<List<T>> parts = new ArrayList<>(nodes.size());
+        for (int shard = 0; shard < nodes.size(); shard++) {
+            parts.add(new ArrayList<>(size / nodes.size() + 1));
+        }
+        return parts;
+    }
+
+    private static List<Film> first(List<Film> films, Comparator<Film> order, int limit) {
+        films.sort(order);
+        return films.size() > limit ? new ArrayList<>(films.subList(0, limit)) : films;
+    }
+
+    /**
+     * Первые count фильмов в порядке индекса популярности. Лайки меняются и во время слияния, поэтому
+     * число лайков каждого фильма снимается один раз в ключ индекса, и сортируются ключи, а не фильмы.
+     */
+    private static List<Film> mostPopular(List<Film> films, int count) {
+        Map<Integer, Film> filmsById = new HashMap<>();
+        long[] keys = new long[films.size()];
+        for (int i = 0; i < keys.length; i++) {
+            Film film = films.get(i);
+            filmsById.put(film.getId(), film);
+            keys[i] = InMemoryFilmStorage.popularityKey(film.getLikes().size(), film.getId());
+        }
+        Arrays.sort(keys);
+        List<Film> popFilms = new ArrayList<>(Math.min(count, keys.length));
+        for (int i = 0; i < keys.length && popFilms.size() < count; i++) {
+            popFilms.add(filmsById.get(InMemoryFilmStorage.filmIdFromKey(keys[i])));
+        }
+        return popFilms;
+    }
+
+    private static List<InMemoryFilmStorage> createNodes(int shards) {
+        List<InMemoryFilmStorage> nodes = new ArrayList<>(shards);
+        for (int shard = 0; shard < shards; shard++) {
+            nodes.add(new InMemoryFilmStorage());
+        }
+        return nodes;
+    }
+
+}
@@ -0,0 +1,221 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exeption.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.ConsistentHashRing;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Пользователи, распределённые по узлам-шардам кольцом согласованного хеширования id. Друзья пользователя
+ * хранятся на его шарде, поэтому взаимная дружба - две записи, каждая на шарде своего пользователя,
+ * а общие друзья считаются пересечением списков, прочитанных с двух шардов.
+ * Узлы - хранилища в памяти этого процесса; сетевой узел подключается реализацией тех же вызовов.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "sharded")
+public class ShardedUserStorage implements UserStorage {
+
+    private static final Comparator<User> BY_ID = Comparator.comparingInt(User::getId);
+
+    private final List<InMemoryUserStorage> nodes;
+    private final ConsistentHashRing ring;
+    private final AtomicInteger id = new AtomicInteger();
+    private final ModificationCounter modifications = new ModificationCounter();
+
+    @Autowired
+    public ShardedUserStorage(@Value("${filmorate.sharding.shards:4}") int shards,
+                              @Value("${filmorate.sharding.virtual-nodes:128}") int virtualNodes) {
+        this(createNodes(shards), new ConsistentHashRing(shards, virtualNodes));
+    }
+
+    public ShardedUserStorage(List<InMemoryUserStorage> nodes, ConsistentHashRing ring) {
+        if (nodes.size() != ring.getShards()) {
+            throw new IllegalArgumentException("Число узлов не совпадает с числом шардов кольца: "
+                    + nodes.size() + ", " + ring.getShards());
+        }
+        this.nodes = List.copyOf(nodes);
+        this.ring = ring;
+        log.info("Хранилище пользователей разделено на шарды. Количество: {}", nodes.size());
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        log.debug("Получение списка пользователей со всех шардов");
+        List<User> users = new ArrayList<>();
+        for (InMemoryUserStorage node : nodes) {
+            users.addAll(node.getAllUsers());
+        }
+        users.sort(BY_ID);
+        return users;
+    }
+
+    @Override
+    public List<User> getUsersPage(Integer afterId, Integer limit) {
+        log.debug("Получение страницы пользователей со всех шардов. После id: {}; Размер: {}", afterId, limit);
+        List<User> users = new ArrayList<>();
+        for (InMemoryUserStorage node : nodes) {
+            users.addAll(node.getUsersPage(afterId, limit));
+        }
+        users.sort(BY_ID);
+        return users.size() > limit ? new ArrayList<>(users.subList(0, limit)) : users;
+    }
+
+    @Override
+    public User getUserById(Integer id) {
+        return nodeFor(id).getUserById(id);
+    }
+
+    @Override
+    public List<User> getUsersByIds(Collection<Integer> ids) {
+        List<List<Integer>> idsByShard = byShard(ids.size());
+        for (Integer userId : ids) {
+            idsByShard.get(ring.shardFor(userId)).add(userId);
+        }
+        Map<Integer, User> usersById = new HashMap<>();
+        for (int shard = 0; shard < nodes.size(); shard++) {
+            if (!idsByShard.get(shard).isEmpty()) {
+                for (User user : nodes.get(shard).getUsersByIds(idsByShard.get(shard))) {
+                    usersById.put(user.getId(), user);
+                }
+            }
+        }
+        // Порядок запрошенных id сохраняется, как у хранилища в памяти
+        List<User> result = new ArrayList<>(usersById.size());
+        for (Integer userId : ids) {
+            User user = usersById.get(userId);
+            if (user != null) {
+                result.add(user);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public User createUser(User user) {
+        user.setId(id.incrementAndGet());
+        nodeFor(user.getId()).createUsersWithIds(List.of(user));
+        modifications.increment();
+        log.debug("Пользователь сохранён на шарде. id: {}", user.getId());
+        return user;
+    }
+
+    @Override
+    public List<User> createUsers(List<User> users) {
+        for (User user : users) {
+            user.setId(id.incrementAndGet());
+        }
+        List<List<User>> usersByShard = byShard(users.size());
+        for (User user : users) {
+            usersByShard.get(ring.shardFor(user.getId())).add(user);
+        }
+        for (int shard = 0; shard < nodes.size(); shard++) {
+            if (!usersByShard.get(shard).isEmpty()) {
+                nodes.get(shard).createUsersWithIds(usersByShard.get(shard));
+            }
+        }
+        modifications.increment();
+        log.debug("Пакет пользователей распределён по шардам. Количество: {}", users.size());
+        return users;
+    }
+
+    @Override
+    public User updateUser(User user) {
+        if (user.getId() == null) {
+            log.warn("Ошибка обновления пользователя. Не указан идентификатор");
+            throw new NotFoundException("Не найден пользователь с id = null");
+        }
+        User stored = nodeFor(user.getId()).updateUser(user);
+        modifications.increment();
+        return stored;
+    }
+
+    @Override
+    public User addFriend(User user, Integer friendId) {
+        User stored = nodeFor(user.getId()).addFriend(user, friendId);
+        modifications.increment();
+        return stored;
+    }
+
+    @Override
+    public User delFriend(User user, Integer friendId) {
+        User stored = nodeFor(user.getId()).delFriend(user, friendId);
+        modifications.increment();
+        return stored;
+    }
+
+    @Override
+    public void addFriends(List<Friendship> friendships) {
+        List<List<Friendship>> friendshipsByShard = byShard(friendships.size());
+        for (Friendship friendship : friendships) {
+            friendshipsByShard.get(ring.shardFor(friendship.getUserId())).add(friendship);
+        }
+        for (int shard = 0; shard < nodes.size(); shard++) {
+            if (!friendshipsByShard.get(shard).isEmpty()) {
+                nodes.get(shard).addFriends(friendshipsByShard.get(shard));
+            }
+        }
+        modifications.increment();
+    }
+
+    @Override
+    public void clearUsers() {
+        log.info("Удаление всех пользователей со всех шардов");
+        for (InMemoryUserStorage node : nodes) {
+            node.clearUsers();
+        }
+        modifications.increment();
+    }
+
+    @Override
+    public int getUsersCount() {
+        int count = 0;
+        for (InMemoryUserStorage node : nodes) {
+            count += node.getUsersCount();
+        }
+        return count;
+    }
+
+    @Override
+    public ModificationCounter getModifications() {
+        return modifications;
+    }
+
+    public int getShards() {
+        return nodes.size();
+    }
+
+    private InMemoryUserStorage nodeFor(int userId) {
+        return nodes.get(ring.shardFor(userId));
+    }
+
+    private <T> List<List<T>> byShard(int size) {
+        List<List<T>> parts = new ArrayList<>(nodes.size());
+        for (int shard = 0; shard < nodes.size(); shard++) {
+            parts.add(new ArrayList<>(size / nodes.size() + 1));
+        }
+        return parts;
+    }
+
+    private static List<InMemoryUserStorage> createNodes(int shards) {
+        List<InMemoryUserStorage> nodes = new ArrayList<>(shards);
+        for (int shard = 0; shard < shards; shard++) {
+            nodes.add(new InMemoryUserStorage());
+        }
+        return nodes;
+    }
+
+}
@@ -0,0 +1,18 @@
+package ru.yandex.practicum.filmorate.storage;
+
+class StripedLock {
+
+    private final Object[] stripes;
+
+    StripedLock(int size) {
+        stripes = new Object[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new Object();
+        }
+    }
+
+    Object forId(int id) {
+        return stripes[Math.floorMod(id, stripes.length)];
+    }
+
+}
@@ -0,0 +1,300 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exeption.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.SortedIntSet;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@Component
+@Transactional
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "jdbc")
+public class UserDbStorage implements UserStorage {
+
+    private static final String SELECT_USERS = "SELECT id, login, name, email, birthday FROM users";
+    private static final String INSERT_USER = "INSERT INTO users (login, name, email, birthday) VALUES (?, ?, ?, ?)";
+    private static final String INSERT_FRIEND = "INSERT INTO friendships (user_id, friend_id) SELECT ?, ? "
+            + "WHERE NOT EXISTS (SELECT 1 FROM friendships WHERE user_id = ? AND friend_id = ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final FilmStorage filmStorage;
+    private final ModificationCounter modifications = new ModificationCounter();
+
+    @Autowired
+    public UserDbStorage(JdbcTemplate jdbcTemplate, FilmStorage filmStorage) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.filmStorage = filmStorage;
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        log.debug("Получение списка пользователей из базы данных");
+        List<User> users = jdbcTemplate.query(SELECT_USERS + " ORDER BY id", (rs, rowNum) -> mapUser(rs));
+        Map<Integer, User> usersById = new HashMap<>();
+        for (User user : users) {
+            usersById.put(user.getId(), user);
+        }
+        jdbcTemplate.query("SELECT user_id, friend_id FROM friendships", rs -> {
+            usersById.get(rs.getInt("user_id")).addFriend(rs.getInt("friend_id"));
+        });
+        return users;
+    }
+
+    @Override
+    public List<User> getUsersPage(Integer afterId, Integer limit) {
+        log.debug("Получение страницы пользователей из базы данных. После id: {}; Размер: {}", afterId, limit);
+        List<User> users = jdbcTemplate.query(SELECT_USERS + " WHERE id > ? ORDER BY id LIMIT ?",
+                (rs, rowNum) -> mapUser(rs), afterId, limit);
+        loadFriends(users);
+        return users;
+    }
+
+    @Override
+    public User getUserById(Integer id) {
+        List<User> users = jdbcTemplate.query(SELECT_USERS + " WHERE id = ?", (rs, rowNum) -> mapUser(rs), id);
+        if (users.isEmpty()) {
+            log.warn("Ошибка получения пользователя по id. id: {}",id);
+            throw new NotFoundException("Не найден пользователь с id = " + id);
+        }
+        User user = users.get(0);
+        jdbcTemplate.query("SELECT friend_id FROM friendships WHERE user_id = ?", rs -> {
+            user.addFriend(rs.getInt("friend_id"));
+        }, id);
+        return user;
+    }
+
+    @Override
+    public List<User> getUsersByIds(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<User> users = namedJdbcTemplate.query(SELECT_USERS + " WHERE id IN (:ids) ORDER BY id",
+                new MapSqlParameterSource("ids", ids), (rs, rowNum) -> mapUser(rs));
+        loadFriends(users);
+        return users;
+    }
+
+    @Override
+    public User createUser(User user) {
+        SortedIntSet friends = new SortedIntSet(user.getFriends());
+        user.setFriends(friends);
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(INSERT_USER, new String[]{"id"});
+            setUserFields(statement, user);
+            return statement;
+        }, keyHolder);
+        user.setId(keyHolder.getKey().intValue());
+        insertFriends(user.getId(), friends.toIntArray());
+        modifications.incrementAfterCommit();
+        log.debug("Добавление пользователя в базу данных. id: {}", user.getId());
+        return user;
+    }
+
+    @Override
+    public List<User> createUsers(List<User> users) {
+        if (users.isEmpty()) {
+            return users;
+        }
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_USER, new String[]{"id"})) {
+                for (User user : users) {
+                    user.setFriends(new SortedIntSet(user.getFriends()));
+                    setUserFields(statement, user);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    for (int i = 0; keys.next(); i++) {
+                        users.get(i).setId(keys.getInt(1));
+                    }
+                }
+            }
+            return null;
+        });
+        for (User user : users) {
+            insertFriends(user.getId(), ((SortedIntSet) user.getFriends()).toIntArray());
+        }
+        modifications.incrementAfterCommit();
+        log.debug("Пакет пользователей сохранён в базе данных. Количество: {}", users.size());
+        return users;
+    }
+
+    @Override
+    public User updateUser(User user) {
+        if (user.getId() == null) {
+            log.warn("Ошибка обновления пользователя. Не указан идентификатор");
+            throw new NotFoundException("Не найден пользователь с id = null");
+        }
+        SortedIntSet friends = new SortedIntSet(user.getFriends());
+        user.setFriends(friends);
+        int updated = jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement("UPDATE users "
+                    + "SET login = ?, name = ?, email = ?, birthday = ? WHERE id = ?");
+            setUserFields(statement, user);
+            statement.setInt(5, user.getId());
+            return statement;
+        });
+        if (updated == 0) {
+            log.warn("Ошибка обновления пользователя. Идентификатор не найден. id: {}", user.getId());
+            throw new NotFoundException("Не найден пользователь с id = " + user.getId());
+        }
+        jdbcTemplate.update("DELETE FROM friendships WHERE user_id = ?", user.getId());
+        insertFriends(user.getId(), friends.toIntArray());
+        modifications.incrementAfterCommit();
+        log.debug("Обновление пользователя в базе данных прошло успешно. id: {}", user.getId());
+        return user;
+    }
+
+    @Override
+    public User addFriend(User user, Integer friendId) {
+        jdbcTemplate.update(INSERT_FRIEND, user.getId(), friendId, user.getId(), friendId);
+        user.addFriend(friendId);
+        modifications.incrementAfterCommit();
+        log.debug("Друг пользователю добавлен. Пользователь: {}; Друг: {}", user.getId(), friendId);
+        return user;
+    }
+
+    @Override
+    public void addFriends(List<Friendship> friendships) {
+        if (friendships.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_FRIEND, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement statement, int i) throws SQLException {
+                Friendship friendship = friendships.get(i);
+                statement.setInt(1, friendship.getUserId());
+                statement.setInt(2, friendship.getFriendId());
+                statement.setInt(3, friendship.getUserId());
+                statement.setInt(4, friendship.getFriendId());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return friendships.size();
+            }
+        });
+        modifications.incrementAfterCommit();
+        log.debug("Пакет друзей сохранён в базе данных. Количество: {}", friendships.size());
+    }
+
+    @Override
+    public User delFriend(User user, Integer friendId) {
+        log.debug("Попытка удаления друга пользователю. Пользователь: {}; Друг: {}", user.getId(), friendId);
+        int deleted = jdbcTemplate.update("DELETE FROM friendships WHERE user_id = ? AND friend_id = ?",
+                user.getId(), friendId);
+        if (deleted == 0) {
+            log.debug("У пользователя не было такого друга. Пользователь: {}; Друг: {}", user.getId(), friendId);
+            throw new NotFoundException("У пользователя " + user.getName() + " не было такого друга с id = "
+                    + user.getId());
+        }
+        user.delFriend(friendId);
+        modifications.incrementAfterCommit();
+        log.debug("Удаления друга у пользователя прошло успешно. Пользователь: {}; Друг: {}", user.getId(), friendId);
+        return user;
+    }
+
+    @Override
+    public void clearUsers() {
+        log.info("Удаление всех пользователей из базы данных");
+        jdbcTemplate.update("DELETE FROM friendships");
+        jdbcTemplate.update("DELETE FROM likes");
+        jdbcTemplate.update("UPDATE films SET likes_count = 0");
+        jdbcTemplate.update("DELETE FROM users");
+        modifications.incrementAfterCommit();
+        // Вместе с пользователями удалены их лайки, поэтому меняется и версия фильмов
+        filmStorage.getModifications().incrementAfterCommit();
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public ModificationCounter getModifications() {
+        return modifications;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public int getUsersCount() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Integer.class);
+    }
+
+    private void loadFriends(List<User> users) {
+        if (users.isEmpty()) {
+            return;
+        }
+        Map<Integer, User> usersById = new LinkedHashMap<>();
+        for (User user : users) {
+            usersById.put(user.getId(), user);
+        }
+        namedJdbcTemplate.query("SELECT user_id, friend_id FROM friendships WHERE user_id IN (:ids)",
+                new MapSqlParameterSource("ids", usersById.keySet()), rs -> {
+                    usersById.get(rs.getInt("user_id")).addFriend(rs.getInt("friend_id"));
+                });
+    }
+
+    private void insertFriends(int userId, int[] friendIds) {
+        if (friendIds.length == 0) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO friendships (user_id, friend_id) VALUES (?, ?)",
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement statement, int i) throws SQLException {
+                        statement.setInt(1, userId);
+                        statement.setInt(2, friendIds[i]);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return friendIds.length;
+                    }
+                });
+    }
+
+    private static void setUserFields(PreparedStatement statement, User user) throws SQLException {
+        statement.setString(1, user.getLogin());
+        statement.setString(2, user.getName());
+        statement.setString(3, user.getEmail());
+        statement.setDate(4, user.getBirthday() == null ? null : Date.valueOf(user.getBirthday()));
+    }
+
+    private static User mapUser(ResultSet rs) throws SQLException {
+        Date birthday = rs.getDate("birthday");
+        return User.builder()
+                .id(rs.getInt("id"))
+                .login(rs.getString("login"))
+                .name(rs.getString("name"))
+                .email(rs.getString("email"))
+                .birthday(birthday == null ? null : birthday.toLocalDate())
+                .friends(new SortedIntSet())
+                .build();
+    }
+
+}
@@ -1,23 +1,37 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface UserStorage {
 
     List<User> getAllUsers();
 
+    List<User> getUsersPage(Integer afterId, Integer limit);
+
     User getUserById(Integer id);
 
+    List<User> getUsersByIds(Collection<Integer> ids);
+
     User createUser(User user);
 
+    List<User> createUsers(List<User> users);
+
     User updateUser(User user);
 
     User addFriend(User user, Integer friendId);
 
     User delFriend(User user, Integer friendId);
 
+    void addFriends(List<Friendship> friendships);
+
     void clearUsers();
 
-}
\ No newline at end of file
+    int getUsersCount();
+
+    ModificationCounter getModifications();
+
+}
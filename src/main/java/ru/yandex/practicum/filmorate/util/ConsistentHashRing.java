@@ -0,0 +1,57 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Arrays;
+
+/**
+ * Кольцо согласованного хеширования: у каждого из shards шардов virtualNodes точек на кольце, ключ принадлежит
+ * шарду первой точки не меньше хеша ключа. Виртуальные точки выравнивают нагрузку, а при добавлении шарда
+ * переезжает только около 1 / (shards + 1) ключей - тех, чьи точки забрал новый шард.
+ * Кольцо неизменяемо, поиск шарда - двоичный поиск по отсортированному массиву точек.
+ */
+public class ConsistentHashRing {
+
+    private final int shards;
+    private final long[] points;
+
+    public ConsistentHashRing(int shards, int virtualNodes) {
+        if (shards <= 0 || virtualNodes <= 0) {
+            throw new IllegalArgumentException("Число шардов и виртуальных точек должно быть положительным: "
+                    + shards + ", " + virtualNodes);
+        }
+        this.shards = shards;
+        // Старшие 32 бита - хеш точки, младшие - номер шарда: сортировка массива сортирует кольцо
+        points = new long[shards * virtualNodes];
+        for (int shard = 0; shard < shards; shard++) {
+            for (int node = 0; node < virtualNodes; node++) {
+                int hash = mix(shard * 0x9E3779B9 + mix(node + 1));
+                points[shard * virtualNodes + node] = ((long) hash << 32) | shard;
+            }
+        }
+        Arrays.sort(points);
+    }
+
+    public int getShards() {
+        return shards;
+    }
+
+    public int shardFor(int key) {
+        long hash = (long) mix(key) << 32;
+        int index = Arrays.binarySearch(points, hash);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return (int) points[index == points.length ? 0 : index];
+    }
+
+    // Финальное перемешивание MurmurHash3: соседние id расходятся по всему кольцу
+    private static int mix(int value) {
+        int hash = value;
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+}
@@ -0,0 +1,78 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Ограниченная очередь значений long на кольцевом массиве для многих производителей и одного потребителя,
+ * без блокировок и упаковки в объекты. У каждой ячейки свой номер последовательности: производитель занимает
+ * ячейку сдвигом хвоста через CAS и публикует её записью номера, потребитель забирает опубликованные ячейки
+ * по порядку и освобождает их для следующего круга. drainTo вызывается одним потоком за раз.
+ */
+public class LongRingBuffer {
+
+    private final long[] values;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    public LongRingBuffer(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ёмкость должна быть положительной степенью двойки: " + capacity);
+        }
+        this.values = new long[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Добавляет значение, если в очереди есть место.
+     */
+    public boolean offer(long value) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) position & mask;
+            long diff = sequences.get(index) - position;
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    values[index] = value;
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+            } else if (diff < 0) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Забирает до batch.length значений в порядке добавления и возвращает их число.
+     */
+    public int drainTo(long[] batch) {
+        long position = head;
+        int count = 0;
+        while (count < batch.length) {
+            int index = (int) position & mask;
+            if (sequences.get(index) != position + 1) {
+                break;
+            }
+            batch[count++] = values[index];
+            sequences.set(index, position + values.length);
+            position++;
+        }
+        head = position;
+        return count;
+    }
+
+    public int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    public int getCapacity() {
+        return values.length;
+    }
+}
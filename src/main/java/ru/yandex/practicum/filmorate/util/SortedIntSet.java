@@ -0,0 +1,216 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Множество id, хранящееся как отсортированный массив int без упаковки в Integer.
+ * Все операции синхронизированы на самом множестве, итератор обходит снимок содержимого.
+ */
+public class SortedIntSet extends AbstractSet<Integer> {
+
+    private static final int[] EMPTY = new int[0];
+    private static final int MIN_CAPACITY = 4;
+    // При таком перекосе размеров дешевле искать элементы меньшего множества галопом, чем сливать массивы
+    private static final int GALLOP_RATIO = 16;
+
+    private int[] values = EMPTY;
+    private int size;
+
+    public SortedIntSet() {
+    }
+
+    public SortedIntSet(Collection<Integer> source) {
+        if (source == null || source.isEmpty()) {
+            return;
+        }
+        int[] sorted = new int[source.size()];
+        int count = 0;
+        for (Integer value : source) {
+            sorted[count++] = value;
+        }
+        Arrays.sort(sorted);
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || sorted[unique - 1] != sorted[i]) {
+                sorted[unique++] = sorted[i];
+            }
+        }
+        values = sorted;
+        size = unique;
+    }
+
+    public synchronized boolean add(int value) {
+        int index = Arrays.binarySearch(values, 0, size, value);
+        if (index >= 0) {
+            return false;
+        }
+        int insertAt = -index - 1;
+        if (size == values.length) {
+            int[] grown = new int[Math.max(MIN_CAPACITY, size + (size >> 1))];
+            System.arraycopy(values, 0, grown, 0, insertAt);
+            System.arraycopy(values, insertAt, grown, insertAt + 1, size - insertAt);
+            values = grown;
+        } else {
+            System.arraycopy(values, insertAt, values, insertAt + 1, size - insertAt);
+        }
+        values[insertAt] = value;
+        size++;
+        return true;
+    }
+
+    public synchronized boolean remove(int value) {
+        int index = Arrays.binarySearch(values, 0, size, value);
+        if (index < 0) {
+            return false;
+        }
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+        if (values.length > MIN_CAPACITY && size < values.length / 4) {
+            values = Arrays.copyOf(values, Math.max(MIN_CAPACITY, size * 2));
+        }
+        return true;
+    }
+
+    public synchronized boolean contains(int value) {
+        return Arrays.binarySearch(values, 0, size, value) >= 0;
+    }
+
+    public synchronized int[] toIntArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    /**
+     * Пересечение с другим множеством за время, пропорциональное меньшему из них.
+     * Копируется только меньшее множество, по большему идёт поиск под его собственной блокировкой.
+     */
+    public int[] intersect(SortedIntSet other) {
+        SortedIntSet small = size() <= other.size() ? this : other;
+        SortedIntSet large = small == this ? other : this;
+        int[] smallValues = small.toIntArray();
+        synchronized (large) {
+            return intersect(smallValues, smallValues.length, large.values, large.size);
+        }
+    }
+
+    /**
+     * Оборачивает уже отсортированный массив без повторов, например результат intersect, без копирования.
+     */
+    public static SortedIntSet ofSorted(int[] sortedValues) {
+        SortedIntSet set = new SortedIntSet();
+        set.values = sortedValues;
+        set.size = sortedValues.length;
+        return set;
+    }
+
+    public static SortedIntSet of(Collection<Integer> source) {
+        return source instanceof SortedIntSet ? (SortedIntSet) source : new SortedIntSet(source);
+    }
+
+    static int[] intersect(int[] small, int smallSize, int[] large, int largeSize) {
+        int[] result = new int[Math.min(smallSize, largeSize)];
+        int count = 0;
+        if (smallSize == 0 || largeSize == 0) {
+            return result;
+        }
+        if (largeSize / smallSize < GALLOP_RATIO) {
+            int i = 0;
+            int j = 0;
+            while (i < smallSize && j < largeSize) {
+                if (small[i] < large[j]) {
+                    i++;
+                } else if (small[i] > large[j]) {
+                    j++;
+                } else {
+                    result[count++] = small[i];
+                    i++;
+                    j++;
+                }
+            }
+        } else {
+            int from = 0;
+            for (int i = 0; i < smallSize && from < largeSize; i++) {
+                int index = gallop(large, from, largeSize, small[i]);
+                if (index >= 0) {
+                    result[count++] = small[i];
+                    from = index + 1;
+                } else {
+                    from = -index - 1;
+                }
+            }
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    // Экспоненциальный поиск от позиции from: шагом 1, 2, 4... до перехода через value, затем бинарный поиск
+    private static int gallop(int[] values, int from, int to, int value) {
+        int step = 1;
+        int low = from;
+        int high = from;
+        while (high < to && values[high] < value) {
+            low = high + 1;
+            high = from + step;
+            step <<= 1;
+        }
+        return Arrays.binarySearch(values, low, Math.min(high + 1, to), value);
+    }
+
+    @Override
+    public boolean add(Integer value) {
+        return add(value.intValue());
+    }
+
+    @Override
+    public boolean remove(Object value) {
+        return value instanceof Integer && remove(((Integer) value).intValue());
+    }
+
+    @Override
+    public boolean contains(Object value) {
+        return value instanceof Integer && contains(((Integer) value).intValue());
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized void clear() {
+        values = EMPTY;
+        size = 0;
+    }
+
+    @Override
+    public Iterator<Integer> iterator() {
+        int[] snapshot = toIntArray();
+        return new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < snapshot.length;
+            }
+
+            @Override
+            public Integer next() {
+                if (next >= snapshot.length) {
+                    throw new NoSuchElementException();
+                }
+                return snapshot[next++];
+            }
+
+            @Override
+            public void remove() {
+                if (next == 0) {
+                    throw new IllegalStateException();
+                }
+                SortedIntSet.this.remove(snapshot[next - 1]);
+            }
+        };
+    }
+
+}
@@ -0,0 +1,220 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Приближённые частоты самых частых id по алгоритму Space-Saving (Metwally, Agrawal, El Abbadi) на структуре
+ * Stream-Summary: не больше capacity счётчиков, сгруппированных в корзины с одинаковым значением, которые
+ * связаны в список по возрастанию. Увеличение и уменьшение счётчика - O(1), первые count id читаются за O(count),
+ * память не зависит от числа разных id.
+ * Когда счётчики заняты, новый id вытесняет счётчик с минимальным значением min и получает min + 1 с ошибкой min.
+ * Оценка не меньше истинной частоты и больше неё не более чем на ошибку счётчика, а ошибка не больше N / capacity,
+ * где N - число вызовов add. Любой id с частотой больше N / capacity гарантированно есть среди счётчиков.
+ * Пока разных id не больше capacity, оценки точные. Уменьшение учитывается только для отслеживаемых id,
+ * для остальных оценки и так остаются оценками сверху.
+ * Все операции синхронизированы на самом объекте.
+ */
+public class SpaceSavingSketch {
+
+    private final int capacity;
+    private final Map<Integer, Counter> counters;
+    // Корзины связаны от минимального значения к максимальному
+    private Bucket min;
+    private Bucket max;
+
+    public SpaceSavingSketch(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Число счётчиков должно быть положительным: " + capacity);
+        }
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 4 / 3 + 1);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public synchronized void add(int id) {
+        Counter counter = counters.get(id);
+        if (counter != null) {
+            move(counter, counter.bucket.count + 1);
+        } else if (counters.size() < capacity) {
+            counter = new Counter(id, 0);
+            counters.put(id, counter);
+            attach(counter, 1, null, min);
+        } else {
+            counter = min.head;
+            counters.remove(counter.id);
+            counter.id = id;
+            counter.error = min.count;
+            counters.put(id, counter);
+            move(counter, min.count + 1);
+        }
+    }
+
+    public synchronized void remove(int id) {
+        Counter counter = counters.get(id);
+        if (counter == null) {
+            return;
+        }
+        long count = counter.bucket.count - 1;
+        if (count > 0) {
+            move(counter, count);
+            counter.error = Math.min(counter.error, count);
+        } else {
+            detach(counter);
+            counters.remove(id);
+        }
+    }
+
+    /**
+     * Заполняет пустой или частично заполненный набросок точными частотами в порядке невозрастания,
+     * например первыми capacity фильмами из точного индекса популярности.
+     */
+    public synchronized void seed(int id, long count) {
+        if (count <= 0 || counters.size() == capacity || counters.containsKey(id)) {
+            return;
+        }
+        if (min != null && count > min.count) {
+            throw new IllegalArgumentException("Частоты для заполнения должны идти по невозрастанию");
+        }
+        Counter counter = new Counter(id, 0);
+        counters.put(id, counter);
+        attach(counter, count, null, min);
+    }
+
+    /**
+     * Не больше count id с наибольшими оценками, по убыванию оценки.
+     */
+    public synchronized List<Integer> top(int count) {
+        List<Integer> ids = new ArrayList<>(Math.min(count, counters.size()));
+        for (Bucket bucket = max; bucket != null && ids.size() < count; bucket = bucket.lower) {
+            for (Counter counter = bucket.head; counter != null && ids.size() < count; counter = counter.next) {
+                ids.add(counter.id);
+            }
+        }
+        return ids;
+    }
+
+    public synchronized long estimate(int id) {
+        Counter counter = counters.get(id);
+        return counter == null ? 0 : counter.bucket.count;
+    }
+
+    public synchronized long error(int id) {
+        Counter counter = counters.get(id);
+        return counter == null ? (min == null || counters.size() < capacity ? 0 : min.count) : counter.error;
+    }
+
+    public synchronized int size() {
+        return counters.size();
+    }
+
+    public synchronized void clear() {
+        counters.clear();
+        min = null;
+        max = null;
+    }
+
+    // Переносит счётчик в соседнюю корзину со значением count, создавая её при необходимости
+    private void move(Counter counter, long count) {
+        Bucket bucket = counter.bucket;
+        Bucket lower = count > bucket.count ? bucket : bucket.lower;
+        Bucket higher = count > bucket.count ? bucket.higher : bucket;
+        detach(counter);
+        if (lower != null && lower.head == null) {
+            lower = lower.lower;
+        }
+        if (higher != null && higher.head == null) {
+            higher = higher.higher;
+        }
+        attach(counter, count, lower, higher);
+    }
+
+    // Кладёт счётчик в корзину со значением count между корзинами lower и higher
+    private void attach(Counter counter, long count, Bucket lower, Bucket higher) {
+        Bucket bucket;
+        if (lower != null && lower.count == count) {
+            bucket = lower;
+        } else if (higher != null && higher.count == count) {
+            bucket = higher;
+        } else {
+            bucket = new Bucket(count);
+            bucket.lower = lower;
+            bucket.higher = higher;
+            if (lower == null) {
+                min = bucket;
+            } else {
+                lower.higher = bucket;
+            }
+            if (higher == null) {
+                max = bucket;
+            } else {
+                higher.lower = bucket;
+            }
+        }
+        counter.bucket = bucket;
+        counter.prev = null;
+        counter.next = bucket.head;
+        if (bucket.head != null) {
+            bucket.head.prev = counter;
+        }
+        bucket.head = counter;
+    }
+
+    // Убирает счётчик из корзины и пустую корзину из списка
+    private void detach(Counter counter) {
+        Bucket bucket = counter.bucket;
+        if (counter.prev == null) {
+            bucket.head = counter.next;
+        } else {
+            counter.prev.next = counter.next;
+        }
+        if (counter.next != null) {
+            counter.next.prev = counter.prev;
+        }
+        counter.prev = null;
+        counter.next = null;
+        if (bucket.head == null) {
+            if (bucket.lower == null) {
+                min = bucket.higher;
+            } else {
+                bucket.lower.higher = bucket.higher;
+            }
+            if (bucket.higher == null) {
+                max = bucket.lower;
+            } else {
+                bucket.higher.lower = bucket.lower;
+            }
+        }
+    }
+
+    private static final class Counter {
+
+        private int id;
+        private long error;
+        private Bucket bucket;
+        private Counter prev;
+        private Counter next;
+
+        Counter(int id, long error) {
+            this.id = id;
+            this.error = error;
+        }
+    }
+
+    private static final class Bucket {
+
+        private final long count;
+        private Counter head;
+        private Bucket lower;
+        private Bucket higher;
+
+        Bucket(long count) {
+            this.count = count;
+        }
+    }
+}
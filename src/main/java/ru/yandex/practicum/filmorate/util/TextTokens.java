@@ -0,0 +1,32 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Слова текста для поиска: последовательности букв и цифр в нижнем регистре, остальное - разделители.
+ */
+public final class TextTokens {
+
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private TextTokens() {
+    }
+
+    public static Set<String> of(String... texts) {
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String text : texts) {
+            if (text == null) {
+                continue;
+            }
+            for (String token : SEPARATORS.split(text.toLowerCase(Locale.ROOT))) {
+                if (!token.isEmpty()) {
+                    tokens.add(token);
+                }
+            }
+        }
+        return tokens;
+    }
+}
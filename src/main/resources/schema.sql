@@ -0,0 +1,49 @@
+CREATE TABLE IF NOT EXISTS users (
+    id       INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    login    VARCHAR(255) NOT NULL,
+    name     VARCHAR(255),
+    email    VARCHAR(255) NOT NULL,
+    birthday DATE
+);
+
+CREATE TABLE IF NOT EXISTS films (
+    id           INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name         VARCHAR(255) NOT NULL,
+    description  VARCHAR(200) NOT NULL,
+    release_date DATE,
+    duration     BIGINT,
+    likes_count  INTEGER NOT NULL DEFAULT 0
+);
+
+-- /films/popular: первые count строк индекса без сортировки всей таблицы
+CREATE INDEX IF NOT EXISTS films_popularity_idx ON films (likes_count DESC, id);
+
+-- /films/search: диапазоны дат выхода и продолжительности
+CREATE INDEX IF NOT EXISTS films_release_date_idx ON films (release_date, id);
+CREATE INDEX IF NOT EXISTS films_duration_idx ON films (duration, id);
+
+-- Обратный индекс слов названия и описания для /films/search?q=
+CREATE TABLE IF NOT EXISTS film_words (
+    word    VARCHAR(255) NOT NULL,
+    film_id INTEGER NOT NULL REFERENCES films (id) ON DELETE CASCADE,
+    PRIMARY KEY (word, film_id)
+);
+
+CREATE INDEX IF NOT EXISTS film_words_film_idx ON film_words (film_id);
+
+CREATE TABLE IF NOT EXISTS likes (
+    film_id INTEGER NOT NULL REFERENCES films (id) ON DELETE CASCADE,
+    user_id INTEGER NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    PRIMARY KEY (film_id, user_id)
+);
+
+CREATE INDEX IF NOT EXISTS likes_user_idx ON likes (user_id);
+
+-- Дружба хранится в обе стороны; общие друзья - соединение двух диапазонов первичного ключа
+CREATE TABLE IF NOT EXISTS friendships (
+    user_id   INTEGER NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    friend_id INTEGER NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    PRIMARY KEY (user_id, friend_id)
+);
+
+CREATE INDEX IF NOT EXISTS friendships_friend_idx ON friendships (friend_id);
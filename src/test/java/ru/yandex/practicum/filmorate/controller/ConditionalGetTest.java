@@ -0,0 +1,65 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import ru.yandex.practicum.filmorate.storage.ModificationCounter;
+
+import java.time.Clock;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConditionalGetTest {
+
+    private final ModificationCounter modifications = new ModificationCounter();
+
+    @Test
+    public void shouldNotAnswerIfModifiedSinceWithinSecondOfLastChange() {
+        modifications.increment();
+        ConditionalGet conditionalGet = new ConditionalGet(Clock.systemUTC());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertFalse(conditionalGet.notModified(request(response, "If-Modified-Since", seconds()), "films",
+                modifications));
+        // Следующее изменение в ту же секунду получило бы ту же дату
+        assertNull(response.getHeader("Last-Modified"));
+        assertNotNull(response.getHeader("ETag"));
+
+        MockHttpServletResponse notModified = new MockHttpServletResponse();
+        assertTrue(conditionalGet.notModified(request(notModified, "If-None-Match", response.getHeader("ETag")),
+                "films", modifications));
+        assertEquals(304, notModified.getStatus());
+    }
+
+    @Test
+    public void shouldAnswerIfModifiedSinceAfterSecondOfLastChange() {
+        modifications.increment();
+        ConditionalGet conditionalGet = new ConditionalGet(Clock.offset(Clock.systemUTC(), Duration.ofSeconds(2)));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertFalse(conditionalGet.notModified(request(response, "Accept", "application/json"), "films",
+                modifications));
+        String lastModified = response.getHeader("Last-Modified");
+        assertNotNull(lastModified);
+
+        MockHttpServletResponse notModified = new MockHttpServletResponse();
+        assertTrue(conditionalGet.notModified(request(notModified, "If-Modified-Since", lastModified), "films",
+                modifications));
+        assertEquals(304, notModified.getStatus());
+    }
+
+    private static ServletWebRequest request(MockHttpServletResponse response, String header, Object value) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/films");
+        request.addHeader(header, value);
+        return new ServletWebRequest(request, response);
+    }
+
+    // Дата последнего изменения, какой её видит клиент: с точностью до секунды
+    private long seconds() {
+        return modifications.getLastModified() / 1000 * 1000;
+    }
+}
@@ -2,15 +2,27 @@ package ru.yandex.practicum.filmorate.controller;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.zip.GZIPInputStream;
 import static org.junit.jupiter.api.Assertions.*;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.DEFINED_PORT)
@@ -19,6 +31,8 @@ class FilmControllerTest {
     static String serverUrl = "http://localhost:8080";
     private static Gson gson;
     static HttpMethods httpMethods;
+    @Autowired
+    private FilmStorage filmStorage;
 
     @BeforeAll
     public static void beforeAll() {
@@ -161,6 +175,8 @@ class FilmControllerTest {
                 .build();
         HttpResponse<String> response = httpMethods.put("/films", gson.toJson(film2));
         assertEquals(404,response.statusCode());
+        film2.setId(null);
+        assertEquals(404, httpMethods.put("/films", gson.toJson(film2)).statusCode());
         films = gson.fromJson(httpMethods.get("/films").body(), Film[].class);
         assertEquals(1,films.length);
 
@@ -223,6 +239,408 @@ class FilmControllerTest {
         assertTrue(popularFilms[0].getLikes().size() >= popularFilms[1].getLikes().size());
     }
 
+    @Test
+    public void shouldOrderPopFilmsByLikes() throws IOException, InterruptedException {
+        httpMethods.del("/users");
+        Film[] films = new Film[3];
+        for (int i = 0; i < films.length; i++) {
+            Film film = Film.builder()
+                    .name("Film " + i)
+                    .description("Description " + i)
+                    .duration(100L)
+                    .releaseDate(LocalDate.of(2023, 7, 1))
+                    .likes(new HashSet<>())
+                    .build();
+            films[i] = gson.fromJson(httpMethods.post("/films", gson.toJson(film)).body(), Film.class);
+        }
+        User[] users = new User[2];
+        for (int i = 0; i < users.length; i++) {
+            User user = User.builder()
+                    .login("UserLogin" + i)
+                    .name("UserName" + i)
+                    .email("user" + i + "@mail.ru")
+                    .birthday(LocalDate.of(1990, 1, 1))
+                    .friends(new HashSet<>())
+                    .build();
+            users[i] = gson.fromJson(httpMethods.post("/users", gson.toJson(user)).body(), User.class);
+        }
+
+        assertEquals(200, httpMethods.put("/films/" + films[2].getId() + "/like/" + users[0].getId(), "").statusCode());
+        assertEquals(200, httpMethods.put("/films/" + films[2].getId() + "/like/" + users[1].getId(), "").statusCode());
+        assertEquals(200, httpMethods.put("/films/" + films[1].getId() + "/like/" + users[0].getId(), "").statusCode());
+
+        Film[] popularFilms = gson.fromJson(httpMethods.get("/films/popular?count=3").body(), Film[].class);
+        assertEquals(3, popularFilms.length);
+        assertEquals(films[2].getId(), popularFilms[0].getId());
+        assertEquals(films[1].getId(), popularFilms[1].getId());
+        assertEquals(films[0].getId(), popularFilms[2].getId());
+
+        assertEquals(200, httpMethods.del("/films/" + films[2].getId() + "/like/" + users[0].getId()).statusCode());
+        assertEquals(200, httpMethods.del("/films/" + films[2].getId() + "/like/" + users[1].getId()).statusCode());
+
+        popularFilms = gson.fromJson(httpMethods.get("/films/popular?count=1").body(), Film[].class);
+        assertEquals(1, popularFilms.length);
+        assertEquals(films[1].getId(), popularFilms[0].getId());
+    }
+
+    @Test
+    public void shouldCreateFilmsInBatch() throws IOException, InterruptedException {
+        String films = "["
+                + "{\"name\":\"Film 1\",\"description\":\"d\",\"releaseDate\":\"2000-01-01\",\"duration\":90},"
+                + "{\"name\":\"Film 2\",\"description\":\"d\",\"releaseDate\":\"1890-01-01\",\"duration\":90},"
+                + "{\"name\":\"\",\"description\":\"d\",\"releaseDate\":\"2000-01-01\",\"duration\":90},"
+                + "{\"description\":\"d\",\"releaseDate\":\"2000-01-01\",\"duration\":90},"
+                + "{\"name\":\"Film 5\",\"description\":\"d\",\"releaseDate\":\"2000-01-01\",\"duration\":90},"
+                + "{\"name\":\"Film 6\",\"description\":\"d\",\"duration\":90}"
+                + "]";
+        HttpResponse<String> response = httpMethods.post("/films/batch", films);
+        assertEquals(200, response.statusCode());
+        JsonObject result = JsonParser.parseString(response.body()).getAsJsonObject();
+        assertEquals(2, result.get("processed").getAsInt());
+        assertEquals(4, result.get("failed").getAsInt());
+        JsonArray errors = result.getAsJsonArray("errors");
+        assertEquals(1, errors.get(0).getAsJsonObject().get("index").getAsInt());
+        assertEquals(2, errors.get(1).getAsJsonObject().get("index").getAsInt());
+        assertEquals(3, errors.get(2).getAsJsonObject().get("index").getAsInt());
+        assertEquals(5, errors.get(3).getAsJsonObject().get("index").getAsInt());
+        assertEquals(2, gson.fromJson(httpMethods.get("/films").body(), Film[].class).length);
+    }
+
+    @Test
+    public void shouldAddLikesInBatchFromNdjson() throws IOException, InterruptedException {
+        httpMethods.del("/users");
+        String films = "{\"name\":\"Film 1\",\"description\":\"d\",\"releaseDate\":\"2000-01-01\",\"duration\":90}\n"
+                + "{\"name\":\"Film 2\",\"description\":\"d\",\"releaseDate\":\"2000-01-01\",\"duration\":90}\n";
+        assertEquals(200, httpMethods.post("/films/batch", films, "application/x-ndjson").statusCode());
+        String users = "{\"login\":\"user1\",\"email\":\"user1@mail.ru\",\"birthday\":\"1990-01-01\"}\n"
+                + "{\"login\":\"user2\",\"email\":\"user2@mail.ru\",\"birthday\":\"1990-01-01\"}\n";
+        assertEquals(200, httpMethods.post("/users/batch", users, "application/x-ndjson").statusCode());
+        Film[] createdFilms = gson.fromJson(httpMethods.get("/films").body(), Film[].class);
+        User[] createdUsers = gson.fromJson(httpMethods.get("/users").body(), User[].class);
+        assertEquals(2, createdFilms.length);
+        assertEquals(2, createdUsers.length);
+
+        String likes = like(createdFilms[1].getId(), createdUsers[0].getId())
+                + like(createdFilms[1].getId(), createdUsers[1].getId())
+                + like(createdFilms[0].getId(), createdUsers[0].getId())
+                + like(createdFilms[0].getId(), 999_999);
+        HttpResponse<String> response = httpMethods.put("/films/likes", "[" + likes.replace("}\n{", "},{").trim() + "]");
+        assertEquals(200, response.statusCode());
+        JsonObject result = JsonParser.parseString(response.body()).getAsJsonObject();
+        assertEquals(3, result.get("processed").getAsInt());
+        assertEquals(3, result.getAsJsonArray("errors").get(0).getAsJsonObject().get("index").getAsInt());
+
+        Film[] popularFilms = gson.fromJson(httpMethods.get("/films/popular?count=2").body(), Film[].class);
+        assertEquals(createdFilms[1].getId(), popularFilms[0].getId());
+        assertEquals(createdFilms[0].getId(), popularFilms[1].getId());
+    }
+
+    @Test
+    public void shouldRankTrendingFilmsByRecentLikes() throws IOException, InterruptedException {
+        httpMethods.del("/users");
+        String films = "{\"name\":\"Old hit\",\"description\":\"d\",\"releaseDate\":\"2000-01-01\",\"duration\":90}\n"
+                + "{\"name\":\"New film\",\"description\":\"d\",\"releaseDate\":\"2000-01-01\",\"duration\":90}\n";
+        assertEquals(200, httpMethods.post("/films/batch", films, "application/x-ndjson").statusCode());
+        String users = "{\"login\":\"user1\",\"email\":\"user1@mail.ru\",\"birthday\":\"1990-01-01\"}\n"
+                + "{\"login\":\"user2\",\"email\":\"user2@mail.ru\",\"birthday\":\"1990-01-01\"}\n"
+                + "{\"login\":\"user3\",\"email\":\"user3@mail.ru\",\"birthday\":\"1990-01-01\"}\n";
+        assertEquals(200, httpMethods.post("/users/batch", users, "application/x-ndjson").statusCode());
+        Film[] createdFilms = gson.fromJson(httpMethods.get("/films").body(), Film[].class);
+        User[] createdUsers = gson.fromJson(httpMethods.get("/users").body(), User[].class);
+        int oldHit = createdFilms[0].getId();
+        int newFilm = createdFilms[1].getId();
+
+        StringBuilder likes = new StringBuilder("[");
+        for (int i = 1; i < createdUsers.length; i++) {
+            likes.append("{\"filmId\":").append(oldHit).append(",\"userId\":").append(createdUsers[i].getId())
+                    .append(",\"likedAt\":\"2000-01-01T00:00:00Z\"},");
+        }
+        likes.append("{\"filmId\":").append(newFilm).append(",\"userId\":").append(createdUsers[0].getId())
+                .append("}]");
+        assertEquals(200, httpMethods.put("/films/likes", likes.toString()).statusCode());
+
+        Film[] popularFilms = gson.fromJson(httpMethods.get("/films/popular?count=2").body(), Film[].class);
+        assertEquals(oldHit, popularFilms[0].getId());
+        Film[] trendingFilms = gson.fromJson(httpMethods.get("/films/trending?window=week").body(), Film[].class);
+        assertEquals(1, trendingFilms.length);
+        assertEquals(newFilm, trendingFilms[0].getId());
+
+        assertEquals(200, httpMethods.put("/films/" + oldHit + "/like/" + createdUsers[0].getId(), "").statusCode());
+        assertEquals(200, httpMethods.put("/films/" + newFilm + "/like/" + createdUsers[1].getId(), "").statusCode());
+        trendingFilms = gson.fromJson(httpMethods.get("/films/trending?window=hour&count=2").body(), Film[].class);
+        assertEquals(newFilm, trendingFilms[0].getId());
+        assertEquals(oldHit, trendingFilms[1].getId());
+
+        assertEquals(400, httpMethods.get("/films/trending?window=year").statusCode());
+    }
+
+    @Test
+    public void shouldSearchFilmsByDatesDurationAndWords() throws IOException, InterruptedException {
+        String films = "{\"name\":\"The Matrix\",\"description\":\"Hacker learns the truth\","
+                + "\"releaseDate\":\"1999-03-31\",\"duration\":136}\n"
+                + "{\"name\":\"Matrix Reloaded\",\"description\":\"Sequel\","
+                + "\"releaseDate\":\"2003-05-15\",\"duration\":138}\n"
+                + "{\"name\":\"Short film\",\"description\":\"A short story, not the matrix\","
+                + "\"releaseDate\":\"2001-01-01\",\"duration\":15}\n";
+        assertEquals(200, httpMethods.post("/films/batch", films, "application/x-ndjson").statusCode());
+        Film[] created = gson.fromJson(httpMethods.get("/films").body(), Film[].class);
+
+        Film[] found = gson.fromJson(httpMethods.get("/films/search?q=MATRIX").body(), Film[].class);
+        assertEquals(3, found.length);
+        found = gson.fromJson(httpMethods.get("/films/search?q=matrix&minDuration=100&to=2000-12-31").body(),
+                Film[].class);
+        assertEquals(1, found.length);
+        assertEquals(created[0].getId(), found[0].getId());
+        // Без слов фильмы идут в порядке даты выхода
+        found = gson.fromJson(httpMethods.get("/films/search?from=2000-01-01").body(), Film[].class);
+        assertEquals(2, found.length);
+        assertEquals(created[2].getId(), found[0].getId());
+        assertEquals(created[1].getId(), found[1].getId());
+        found = gson.fromJson(httpMethods.get("/films/search?maxDuration=100").body(), Film[].class);
+        assertEquals(1, found.length);
+        assertEquals(created[2].getId(), found[0].getId());
+
+        Film update = created[1];
+        update.setName("Renamed");
+        update.setDescription("Sequel");
+        assertEquals(200, httpMethods.put("/films", gson.toJson(update)).statusCode());
+        found = gson.fromJson(httpMethods.get("/films/search?q=matrix&from=2002-01-01").body(), Film[].class);
+        assertEquals(0, found.length);
+        found = gson.fromJson(httpMethods.get("/films/search?q=renamed").body(), Film[].class);
+        assertEquals(1, found.length);
+
+        assertEquals(400, httpMethods.get("/films/search?from=2001-01-01&to=2000-01-01").statusCode());
+        assertEquals(400, httpMethods.get("/films/search?limit=0").statusCode());
+    }
+
+    @Test
+    public void shouldGetFilmsByPagesAndStream() throws IOException, InterruptedException {
+        StringBuilder films = new StringBuilder();
+        for (int i = 0; i < 5; i++) {
+            films.append("{\"name\":\"Film ").append(i)
+                    .append("\",\"description\":\"d\",\"releaseDate\":\"2000-01-01\",\"duration\":90}\n");
+        }
+        httpMethods.post("/films/batch", films.toString(), "application/x-ndjson");
+        Film[] all = gson.fromJson(httpMethods.get("/films").body(), Film[].class);
+        assertEquals(5, all.length);
+
+        Film[] page = gson.fromJson(httpMethods.get("/films?limit=2").body(), Film[].class);
+        assertEquals(2, page.length);
+        assertEquals(all[0].getId(), page[0].getId());
+        assertEquals(all[1].getId(), page[1].getId());
+        page = gson.fromJson(httpMethods.get("/films?limit=2&after=" + page[1].getId()).body(), Film[].class);
+        assertEquals(2, page.length);
+        assertEquals(all[2].getId(), page[0].getId());
+        page = gson.fromJson(httpMethods.get("/films?limit=2&after=" + all[4].getId()).body(), Film[].class);
+        assertEquals(0, page.length);
+        assertEquals(400, httpMethods.get("/films?limit=0").statusCode());
+
+        HttpResponse<String> response = httpMethods.get("/films?stream=true");
+        assertEquals(200, response.statusCode());
+        Film[] streamed = gson.fromJson(response.body(), Film[].class);
+        assertEquals(5, streamed.length);
+        for (int i = 0; i < all.length; i++) {
+            assertEquals(all[i].toString(), streamed[i].toString());
+        }
+    }
+
+    @Test
+    public void shouldExposeMetrics() throws IOException, InterruptedException {
+        httpMethods.del("/users");
+        Film film = Film.builder()
+                .name("Film")
+                .description("Description")
+                .duration(100L)
+                .releaseDate(LocalDate.of(2023, 7, 1))
+                .likes(new HashSet<>())
+                .build();
+        film = gson.fromJson(httpMethods.post("/films", gson.toJson(film)).body(), Film.class);
+        User user = User.builder()
+                .login("UserLogin")
+                .name("UserName")
+                .email("user@mail.ru")
+                .birthday(LocalDate.of(1990, 1, 1))
+                .friends(new HashSet<>())
+                .build();
+        user = gson.fromJson(httpMethods.post("/users", gson.toJson(user)).body(), User.class);
+        assertEquals(200, httpMethods.put("/films/" + film.getId() + "/like/" + user.getId(), "").statusCode());
+        assertEquals(200, httpMethods.get("/films/popular?count=1").statusCode());
+
+        HttpResponse<String> response = httpMethods.get("/actuator/metrics/filmorate.likes?tag=operation:add");
+        assertEquals(200, response.statusCode());
+        assertTrue(metricValue(response) >= 1);
+        response = httpMethods.get("/actuator/metrics/filmorate.storage"
+                + "?tag=class:InMemoryFilmStorage&tag=method:getPopFilms&tag=exception:none");
+        assertEquals(200, response.statusCode());
+        assertTrue(metricValue(response) >= 1);
+        response = httpMethods.get("/actuator/metrics/filmorate.service?tag=class:FilmServiceImpl&tag=method:addLike");
+        assertEquals(200, response.statusCode());
+        // Вспомогательные бины сервиса не замеряются
+        assertEquals(404, httpMethods.get("/actuator/metrics/filmorate.service?tag=class:TrendingFilms").statusCode());
+        response = httpMethods.get("/actuator/metrics/filmorate.films");
+        assertEquals(1, metricValue(response));
+    }
+
+    @Test
+    public void shouldNegotiateBinaryFormats() throws IOException, InterruptedException {
+        for (int i = 1; i <= 3; i++) {
+            Film film = Film.builder()
+                    .name("Film " + i)
+                    .description("Description " + i)
+                    .duration(100L + i)
+                    .releaseDate(LocalDate.of(2000 + i, 7, 1))
+                    .likes(new HashSet<>())
+                    .build();
+            httpMethods.post("/films", gson.toJson(film));
+        }
+        HttpResponse<String> json = httpMethods.get("/films/popular?count=3");
+        assertTrue(json.headers().firstValue("Content-Type").orElse("").startsWith("application/json"));
+        String expected = Arrays.toString(gson.fromJson(json.body(), Film[].class));
+
+        HttpResponse<byte[]> smile = httpMethods.get("/films/popular?count=3", "application/x-jackson-smile");
+        assertEquals(200, smile.statusCode());
+        assertEquals("application/x-jackson-smile", smile.headers().firstValue("Content-Type").orElse(""));
+        ObjectMapper smileMapper = Jackson2ObjectMapperBuilder.smile().build();
+        assertEquals(expected, Arrays.toString(smileMapper.readValue(smile.body(), Film[].class)));
+        assertTrue(smile.body().length < json.body().getBytes(StandardCharsets.UTF_8).length);
+        // Двоичный ответ собирается в буфер и уходит с длиной, а не кусками
+        assertEquals(String.valueOf(smile.body().length), smile.headers().firstValue("Content-Length").orElse(""));
+
+        HttpResponse<byte[]> cbor = httpMethods.get("/films", "application/cbor");
+        assertEquals("application/cbor", cbor.headers().firstValue("Content-Type").orElse(""));
+        ObjectMapper cborMapper = Jackson2ObjectMapperBuilder.cbor().build();
+        assertEquals(3, cborMapper.readValue(cbor.body(), Film[].class).length);
+        assertEquals(String.valueOf(cbor.body().length), cbor.headers().firstValue("Content-Length").orElse(""));
+    }
+
+    @Test
+    public void shouldAnswerNotModifiedUntilFilmsChange() throws IOException, InterruptedException {
+        Film film = Film.builder()
+                .name("Film 1")
+                .description("Description 1")
+                .duration(100L)
+                .releaseDate(LocalDate.of(2001, 7, 1))
+                .likes(new HashSet<>())
+                .build();
+        httpMethods.post("/films", gson.toJson(film));
+        HttpResponse<String> films = httpMethods.get("/films");
+        String filmsTag = films.headers().firstValue("ETag").orElseThrow();
+        String popularTag = httpMethods.get("/films/popular").headers().firstValue("ETag").orElseThrow();
+
+        HttpResponse<byte[]> notModified = httpMethods.get("/films", "If-None-Match", filmsTag);
+        assertEquals(304, notModified.statusCode());
+        assertEquals(0, notModified.body().length);
+        assertEquals(304, httpMethods.get("/films/popular", "If-None-Match", popularTag).statusCode());
+        assertEquals(200, httpMethods.get("/films/popular?count=5", "If-None-Match", popularTag).statusCode());
+
+        film.setName("Film 2");
+        httpMethods.post("/films", gson.toJson(film));
+        HttpResponse<byte[]> modified = httpMethods.get("/films", "If-None-Match", filmsTag);
+        assertEquals(200, modified.statusCode());
+        assertNotEquals(filmsTag, modified.headers().firstValue("ETag").orElseThrow());
+        assertEquals(2, gson.fromJson(new String(modified.body(), StandardCharsets.UTF_8), Film[].class).length);
+        assertEquals(200, httpMethods.get("/films/popular", "If-None-Match", popularTag).statusCode());
+    }
+
+    @Test
+    public void shouldNotServeCachedPopularFilmsUnderNewerTag() throws IOException, InterruptedException {
+        httpMethods.del("/users");
+        Film[] films = new Film[2];
+        for (int i = 0; i < films.length; i++) {
+            Film film = Film.builder()
+                    .name("Film " + i)
+                    .description("Description " + i)
+                    .duration(100L)
+                    .releaseDate(LocalDate.of(2001, 7, 1))
+                    .likes(new HashSet<>())
+                    .build();
+            films[i] = gson.fromJson(httpMethods.post("/films", gson.toJson(film)).body(), Film.class);
+        }
+        User[] users = new User[2];
+        for (int i = 0; i < users.length; i++) {
+            User user = User.builder()
+                    .login("user" + i)
+                    .email("user" + i + "@mail.ru")
+                    .birthday(LocalDate.of(1990, 1, 1))
+                    .friends(new HashSet<>())
+                    .build();
+            users[i] = gson.fromJson(httpMethods.post("/users", gson.toJson(user)).body(), User.class);
+        }
+        assertEquals(200, httpMethods.put("/films/" + films[0].getId() + "/like/" + users[0].getId(), "").statusCode());
+        HttpResponse<String> cached = httpMethods.get("/films/popular?count=2");
+        assertEquals(films[0].getId(), gson.fromJson(cached.body(), Film[].class)[0].getId());
+        String tag = cached.headers().firstValue("ETag").orElseThrow();
+        assertEquals(tag, httpMethods.get("/films/popular?count=2").headers().firstValue("ETag").orElseThrow());
+        HttpResponse<String> hits = httpMethods.get("/actuator/metrics/cache.gets?tag=cache:popularFilms&tag=result:hit");
+        assertEquals(200, hits.statusCode());
+        assertTrue(metricValue(hits) >= 1);
+
+        // Лайки уже в хранилище, а кэш популярных ещё не сброшен: так выглядит запрос посреди лайка
+        filmStorage.addLike(filmStorage.getFilmById(films[1].getId()), users[0].getId());
+        filmStorage.addLike(filmStorage.getFilmById(films[1].getId()), users[1].getId());
+        HttpResponse<byte[]> modified = httpMethods.get("/films/popular?count=2", "If-None-Match", tag);
+        assertEquals(200, modified.statusCode());
+        assertNotEquals(tag, modified.headers().firstValue("ETag").orElseThrow());
+        Film[] popularFilms = gson.fromJson(new String(modified.body(), StandardCharsets.UTF_8), Film[].class);
+        assertEquals(films[1].getId(), popularFilms[0].getId());
+    }
+
+    @Test
+    public void shouldCompressLargeFilmList() throws IOException, InterruptedException {
+        for (int i = 1; i <= 30; i++) {
+            Film film = Film.builder()
+                    .name("Film " + i)
+                    .description("Description " + i)
+                    .duration(100L + i)
+                    .releaseDate(LocalDate.of(2000, 7, 1))
+                    .likes(new HashSet<>())
+                    .build();
+            httpMethods.post("/films", gson.toJson(film));
+        }
+        HttpResponse<String> plain = httpMethods.get("/films");
+        HttpResponse<byte[]> gzip = httpMethods.get("/films", "Accept-Encoding", "gzip");
+        assertEquals("gzip", gzip.headers().firstValue("Content-Encoding").orElse(""));
+        assertTrue(gzip.body().length < plain.body().length());
+        // Сжатый ответ - другое представление, у него свой сильный тег
+        assertNotEquals(plain.headers().firstValue("ETag").orElseThrow(),
+                gzip.headers().firstValue("ETag").orElseThrow());
+        try (GZIPInputStream body = new GZIPInputStream(new ByteArrayInputStream(gzip.body()))) {
+            assertEquals(plain.body(), new String(body.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void shouldServeCachedFilmAndInvalidateItOnUpdate() throws IOException, InterruptedException {
+        Film film = Film.builder()
+                .name("Film")
+                .description("Description")
+                .duration(100L)
+                .releaseDate(LocalDate.of(2023, 7, 1))
+                .likes(new HashSet<>())
+                .build();
+        film = gson.fromJson(httpMethods.post("/films", gson.toJson(film)).body(), Film.class);
+        assertEquals("Film", gson.fromJson(httpMethods.get("/films/" + film.getId()).body(), Film.class).getName());
+        assertEquals("Film", gson.fromJson(httpMethods.get("/films/" + film.getId()).body(), Film.class).getName());
+        HttpResponse<String> response = httpMethods.get("/actuator/metrics/cache.gets?tag=cache:films&tag=result:hit");
+        assertEquals(200, response.statusCode());
+        assertTrue(metricValue(response) >= 1);
+
+        film.setName("Updated film");
+        assertEquals(200, httpMethods.put("/films", gson.toJson(film)).statusCode());
+        assertEquals("Updated film",
+                gson.fromJson(httpMethods.get("/films/" + film.getId()).body(), Film.class).getName());
+    }
+
+    private static double metricValue(HttpResponse<String> response) {
+        return JsonParser.parseString(response.body()).getAsJsonObject()
+                .getAsJsonArray("measurements").get(0).getAsJsonObject()
+                .get("value").getAsDouble();
+    }
+
+    private static String like(int filmId, int userId) {
+        return "{\"filmId\":" + filmId + ",\"userId\":" + userId + "}\n";
+    }
+
 //    на гитхабе выдаёт ошибку на 254 строке. Видимо User по какой-то причине не возвращается, а на домашнем всё работает хорошо
 //    FilmControllerTest.shouldAddAndDeleteLike:253 NullPointer
 
@@ -29,6 +29,15 @@ public class HttpMethods {
         return client.send(request, HttpResponse.BodyHandlers.ofString());
     }
 
+    public HttpResponse<String> post(String parameters, String body, String contentType)
+            throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newHttpClient();
+        URI url = URI.create(serverUrl + parameters);
+        HttpRequest request = HttpRequest.newBuilder().uri(url).header("Content-Type", contentType)
+                .POST(HttpRequest.BodyPublishers.ofString(body)).build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
     public HttpResponse<String> put(String parameters, String json) throws IOException, InterruptedException {
         HttpClient client = HttpClient.newHttpClient();
         URI url = URI.create(serverUrl + parameters);
@@ -44,4 +53,16 @@ public class HttpMethods {
         HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
         return response;
     }
+
+    public HttpResponse<byte[]> get(String parameters, String accept) throws IOException, InterruptedException {
+        return get(parameters, "Accept", accept);
+    }
+
+    public HttpResponse<byte[]> get(String parameters, String header, String value)
+            throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newHttpClient();
+        URI url = URI.create(serverUrl + parameters);
+        HttpRequest request = HttpRequest.newBuilder().uri(url).header(header, value).GET().build();
+        return client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+    }
 }
@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Заготовки фильмов и пользователей для тестов хранилищ и сервисов.
+ */
+public final class TestData {
+
+    private TestData() {
+    }
+
+    public static Film film(String name) {
+        return Film.builder()
+                .name(name)
+                .description("description")
+                .duration(100L)
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .likes(new HashSet<>())
+                .build();
+    }
+
+    public static User user(String login) {
+        return User.builder()
+                .login(login)
+                .name(login)
+                .email(login + "@mail.ru")
+                .birthday(LocalDate.of(1990, 1, 1))
+                .friends(new HashSet<>())
+                .build();
+    }
+
+    public static List<Integer> ids(List<Film> films) {
+        return films.stream().map(Film::getId).collect(Collectors.toList());
+    }
+}
@@ -2,10 +2,13 @@ package ru.yandex.practicum.filmorate.controller;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.io.IOException;
@@ -189,6 +192,8 @@ public class UserControllerTest {
                 .build();
         HttpResponse<String> response = httpMethods.put("/users", gson.toJson(user2));
         assertEquals(404,response.statusCode());
+        user2.setId(null);
+        assertEquals(404, httpMethods.put("/users", gson.toJson(user2)).statusCode());
         User[] users = gson.fromJson(httpMethods.get("/users").body(), User[].class);
         assertEquals(1,users.length);
         user.setId(users[0].getId());
@@ -231,6 +236,49 @@ public class UserControllerTest {
         assertEquals(users[0].getId(), updatedUser2.getFriends().iterator().next());
     }
 
+    @Test
+    public void shouldReturnFriendsInSmile() throws IOException, InterruptedException {
+        for (int i = 1; i <= 2; i++) {
+            User user = User.builder()
+                    .login("User" + i + "Login")
+                    .name("User" + i + "Name")
+                    .email("user" + i + "@mail.ru")
+                    .birthday(LocalDate.of(1990, 6, 15))
+                    .friends(new HashSet<>())
+                    .build();
+            httpMethods.post("/users", gson.toJson(user));
+        }
+        User[] users = gson.fromJson(httpMethods.get("/users").body(), User[].class);
+        httpMethods.put("/users/" + users[0].getId() + "/friends/" + users[1].getId(), "");
+
+        HttpResponse<byte[]> response = httpMethods.get("/users/" + users[0].getId() + "/friends",
+                "application/x-jackson-smile");
+        assertEquals(200, response.statusCode());
+        User[] friends = Jackson2ObjectMapperBuilder.smile().build().readValue(response.body(), User[].class);
+        assertEquals(1, friends.length);
+        assertEquals(users[1].getLogin(), friends[0].getLogin());
+        assertEquals(users[1].getBirthday(), friends[0].getBirthday());
+    }
+
+    @Test
+    public void shouldAnswerNotModifiedUntilUsersChange() throws IOException, InterruptedException {
+        User user = User.builder()
+                .login("User1Login")
+                .name("User1Name")
+                .email("user1@mail.ru")
+                .birthday(LocalDate.of(1990, 6, 15))
+                .friends(new HashSet<>())
+                .build();
+        httpMethods.post("/users", gson.toJson(user));
+        String tag = httpMethods.get("/users").headers().firstValue("ETag").orElseThrow();
+        assertEquals(304, httpMethods.get("/users", "If-None-Match", tag).statusCode());
+
+        user.setLogin("User2Login");
+        user.setEmail("user2@mail.ru");
+        httpMethods.post("/users", gson.toJson(user));
+        assertEquals(200, httpMethods.get("/users", "If-None-Match", tag).statusCode());
+    }
+
     @Test
     public void shouldDeleteFriendFromUser() throws IOException, InterruptedException {
         User user1 = User.builder()
@@ -312,5 +360,63 @@ public class UserControllerTest {
         assertEquals(1, commonFriends.length);
         assertEquals(users[2].getId(), commonFriends[0].getId());
     }
-}
 
+    @Test
+    public void shouldAddFriendsInBatch() throws IOException, InterruptedException {
+        String users = "["
+                + "{\"login\":\"user1\",\"email\":\"user1@mail.ru\",\"birthday\":\"1990-01-01\"},"
+                + "{\"login\":\"user2\",\"email\":\"wrong email\",\"birthday\":\"1990-01-01\"},"
+                + "{\"login\":\"user3\",\"email\":\"user3@mail.ru\",\"birthday\":\"1990-01-01\"},"
+                + "{\"login\":\"user4\",\"email\":\"user4@mail.ru\",\"birthday\":\"1990-01-01\"}"
+                + "]";
+        HttpResponse<String> response = httpMethods.post("/users/batch", users);
+        assertEquals(200, response.statusCode());
+        JsonObject result = JsonParser.parseString(response.body()).getAsJsonObject();
+        assertEquals(3, result.get("processed").getAsInt());
+        assertEquals(1, result.getAsJsonArray("errors").get(0).getAsJsonObject().get("index").getAsInt());
+
+        User[] created = gson.fromJson(httpMethods.get("/users").body(), User[].class);
+        assertEquals(3, created.length);
+        assertEquals("user1", created[0].getName());
+        String friendships = "[{\"userId\":" + created[0].getId() + ",\"friendId\":" + created[1].getId() + "},"
+                + "{\"userId\":" + created[0].getId() + ",\"friendId\":" + created[2].getId() + "},"
+                + "{\"userId\":" + created[1].getId() + ",\"friendId\":" + created[2].getId() + "},"
+                + "{\"userId\":" + created[1].getId() + "}]";
+        response = httpMethods.put("/users/friends", friendships);
+        assertEquals(200, response.statusCode());
+        result = JsonParser.parseString(response.body()).getAsJsonObject();
+        assertEquals(3, result.get("processed").getAsInt());
+        assertEquals(1, result.get("failed").getAsInt());
+
+        User[] commonFriends = gson.fromJson(httpMethods.get("/users/" + created[0].getId() + "/friends/common/"
+                + created[1].getId()).body(), User[].class);
+        assertEquals(1, commonFriends.length);
+        assertEquals(created[2].getId(), commonFriends[0].getId());
+        assertEquals(2, gson.fromJson(httpMethods.get("/users/" + created[2].getId() + "/friends").body(),
+                User[].class).length);
+    }
+
+    @Test
+    public void shouldGetUsersByPagesAndStream() throws IOException, InterruptedException {
+        StringBuilder users = new StringBuilder();
+        for (int i = 0; i < 3; i++) {
+            users.append("{\"login\":\"user").append(i).append("\",\"email\":\"user").append(i)
+                    .append("@mail.ru\",\"birthday\":\"1990-01-01\"}\n");
+        }
+        httpMethods.post("/users/batch", users.toString(), "application/x-ndjson");
+        User[] all = gson.fromJson(httpMethods.get("/users").body(), User[].class);
+        assertEquals(3, all.length);
+        httpMethods.put("/users/" + all[0].getId() + "/friends/" + all[2].getId(), "");
+
+        User[] page = gson.fromJson(httpMethods.get("/users?after=" + all[0].getId() + "&limit=1").body(),
+                User[].class);
+        assertEquals(1, page.length);
+        assertEquals(all[1].getId(), page[0].getId());
+
+        User[] streamed = gson.fromJson(httpMethods.get("/users?stream=true").body(), User[].class);
+        assertEquals(3, streamed.length);
+        assertEquals(all[0].getId(), streamed[0].getId());
+        assertEquals(1, streamed[0].getFriends().size());
+        assertEquals(1, streamed[2].getFriends().size());
+    }
+}
@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.execution;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.apache.coyote.http11.Http11NioProtocol;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class VirtualThreadTomcatCustomizerTest {
+
+    @Test
+    public void shouldKeepTomcatPoolWithoutVirtualThreads() {
+        assumeTrue(Runtime.version().feature() < 21, "виртуальные потоки есть начиная с JDK 21");
+        // Логгер читается напрямую: после тестов с контекстом Spring консоль пишет асинхронный appender
+        Logger logger = (Logger) LoggerFactory.getLogger(VirtualThreadTomcatCustomizer.class);
+        ListAppender<ILoggingEvent> events = new ListAppender<>();
+        events.start();
+        logger.addAppender(events);
+        try {
+            VirtualThreadTomcatCustomizer customizer = new VirtualThreadTomcatCustomizer();
+            Http11NioProtocol protocol = new Http11NioProtocol();
+
+            customizer.customize(protocol);
+
+            // Без своего исполнителя Tomcat при запуске создаёт обычный пул
+            assertNull(protocol.getExecutor());
+            assertTrue(events.list.stream()
+                    .anyMatch(event -> event.getFormattedMessage().contains(Runtime.version().toString())));
+            customizer.destroy();
+        } finally {
+            logger.detachAppender(events);
+        }
+    }
+
+    @Test
+    public void shouldRunRequestsInVirtualThreads() throws Exception {
+        assumeTrue(Runtime.version().feature() >= 21, "виртуальные потоки есть начиная с JDK 21");
+        VirtualThreadTomcatCustomizer customizer = new VirtualThreadTomcatCustomizer();
+        Http11NioProtocol protocol = new Http11NioProtocol();
+
+        customizer.customize(protocol);
+
+        Executor executor = protocol.getExecutor();
+        ExecutorService virtual = (ExecutorService) executor;
+        Thread thread = virtual.submit(Thread::currentThread).get(1, TimeUnit.MINUTES);
+        // Сборка под Java 11: Thread.isVirtual доступен только через отражение
+        assertTrue((Boolean) Thread.class.getMethod("isVirtual").invoke(thread));
+        customizer.destroy();
+        assertTrue(virtual.isShutdown());
+        assertSame(executor, protocol.getExecutor());
+    }
+}
@@ -0,0 +1,179 @@
+package ru.yandex.practicum.filmorate.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.yandex.practicum.filmorate.controller.TestData.film;
+import static ru.yandex.practicum.filmorate.controller.TestData.ids;
+import static ru.yandex.practicum.filmorate.controller.TestData.user;
+
+class StoragePersistenceTest {
+
+    @TempDir
+    Path dir;
+
+    private InMemoryFilmStorage filmStorage;
+    private InMemoryUserStorage userStorage;
+    private StoragePersistence persistence;
+
+    @Test
+    public void shouldRecoverFromLog() throws IOException {
+        start();
+        User user = userStorage.createUser(user("user"));
+        User friend = userStorage.createUser(user("friend"));
+        userStorage.addFriend(user, friend.getId());
+        userStorage.addFriend(friend, user.getId());
+        Film first = filmStorage.createFilm(film("First"));
+        Film second = filmStorage.createFilm(film("Second"));
+        filmStorage.addLike(second, user.getId());
+        filmStorage.addLike(second, friend.getId());
+        filmStorage.addLike(first, user.getId());
+        filmStorage.delLike(first, user.getId());
+        Film update = film("Updated");
+        update.setId(first.getId());
+        update.setDuration(null);
+        filmStorage.updateFilm(update);
+        List<Film> films = filmStorage.getAllFilms();
+        List<User> users = userStorage.getAllUsers();
+        persistence.close();
+
+        start();
+        assertEquals(films, filmStorage.getAllFilms());
+        assertEquals(users, userStorage.getAllUsers());
+        assertEquals(List.of(second.getId(), first.getId()), ids(filmStorage.getPopFilms(2)));
+        assertEquals(second.getId() + 1, filmStorage.createFilm(film("Third")).getId());
+        persistence.close();
+    }
+
+    @Test
+    public void shouldRecoverFromSnapshotAndLogTail() throws IOException {
+        start();
+        userStorage.createUsers(List.of(user("user1"), user("user2"), user("user3")));
+        filmStorage.createFilms(List.of(film("First"), film("Second")));
+        filmStorage.addLikes(List.of(new Like(1, 1), new Like(1, 2), new Like(2, 3)));
+        userStorage.addFriends(List.of(new Friendship(1, 2), new Friendship(2, 1)));
+        persistence.snapshot();
+        filmStorage.addLikes(List.of(new Like(2, 1), new Like(2, 2)));
+        filmStorage.delLike(filmStorage.getFilmById(1), 1);
+        userStorage.delFriend(userStorage.getUserById(1), 2);
+        userStorage.createUser(user("user4"));
+        List<Film> films = filmStorage.getAllFilms();
+        List<User> users = userStorage.getAllUsers();
+        persistence.close();
+
+        assertEquals(1, files("snapshot-").size());
+        start();
+        assertEquals(films, filmStorage.getAllFilms());
+        assertEquals(users, userStorage.getAllUsers());
+        assertEquals(List.of(2, 1), ids(filmStorage.getPopFilms(2)));
+        assertEquals(Set.of(1), userStorage.getUserById(2).getFriends());
+        persistence.close();
+    }
+
+    @Test
+    public void shouldLoadSnapshotChunksInParallel() throws IOException {
+        start();
+        int count = SnapshotFile.CHUNK_ENTRIES * 3 + 1;
+        List<User> newUsers = new ArrayList<>();
+        List<Film> newFilms = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            newUsers.add(user("user" + i));
+            newFilms.add(film("Film" + i));
+        }
+        userStorage.createUsers(newUsers);
+        filmStorage.createFilms(newFilms);
+        List<Like> likes = new ArrayList<>();
+        List<Friendship> friendships = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            for (int j = 1; j <= i % 7; j++) {
+                likes.add(new Like(i, j));
+                friendships.add(new Friendship(i, j));
+            }
+        }
+        filmStorage.addLikes(likes);
+        userStorage.addFriends(friendships);
+        persistence.snapshot();
+        List<Film> films = filmStorage.getAllFilms();
+        List<User> users = userStorage.getAllUsers();
+        List<Integer> popular = ids(filmStorage.getPopFilms(100));
+        persistence.close();
+
+        filmStorage = new InMemoryFilmStorage();
+        userStorage = new InMemoryUserStorage();
+        persistence = new StoragePersistence(filmStorage, userStorage, dir, true, 0, 4);
+        persistence.start();
+        assertEquals(films, filmStorage.getAllFilms());
+        assertEquals(users, userStorage.getAllUsers());
+        assertEquals(popular, ids(filmStorage.getPopFilms(100)));
+        assertEquals(count + 1, userStorage.createUser(user("last")).getId());
+        persistence.close();
+    }
+
+    @Test
+    public void shouldIgnoreTornLogTail() throws IOException {
+        start();
+        Film film = filmStorage.createFilm(film("Film"));
+        filmStorage.addLike(film, 1);
+        persistence.close();
+        List<Path> segments = files("wal-");
+        Path last = segments.get(segments.size() - 1);
+        Files.write(last, new byte[]{0, 0, 0, 42, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        start();
+        assertEquals(Set.of(1), filmStorage.getFilmById(film.getId()).getLikes());
+        filmStorage.addLike(film, 2);
+        persistence.close();
+        start();
+        assertEquals(Set.of(1, 2), filmStorage.getFilmById(film.getId()).getLikes());
+        persistence.close();
+    }
+
+    @Test
+    public void shouldForgetClearedData() throws IOException {
+        start();
+        filmStorage.createFilm(film("Film"));
+        userStorage.createUser(user("user"));
+        persistence.snapshot();
+        filmStorage.clearFilms();
+        userStorage.clearUsers();
+        persistence.close();
+
+        start();
+        assertTrue(filmStorage.getAllFilms().isEmpty());
+        assertTrue(userStorage.getAllUsers().isEmpty());
+        persistence.close();
+    }
+
+    private void start() throws IOException {
+        filmStorage = new InMemoryFilmStorage();
+        userStorage = new InMemoryUserStorage();
+        persistence = new StoragePersistence(filmStorage, userStorage, dir, true, 0, 0);
+        persistence.start();
+    }
+
+    private List<Path> files(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(prefix))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package ru.yandex.practicum.filmorate.replication;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.Mutation;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static ru.yandex.practicum.filmorate.controller.TestData.ids;
+
+/**
+ * Основное хранилище и несколько реплик в одном процессе: после потока изменений из нескольких потоков
+ * все реплики должны сойтись с основным хранилищем.
+ */
+class ReadReplicasTest {
+
+    private static final int THREADS = 4;
+    private static final int OPERATIONS = 2000;
+
+    private InMemoryFilmStorage filmStorage;
+    private InMemoryUserStorage userStorage;
+    private ReadReplicas readReplicas;
+
+    @BeforeEach
+    public void beforeEach() {
+        filmStorage = new InMemoryFilmStorage();
+        userStorage = new InMemoryUserStorage();
+        for (int i = 1; i <= 50; i++) {
+            filmStorage.createFilm(film(i));
+            userStorage.createUser(user(i));
+        }
+    }
+
+    @AfterEach
+    public void afterEach() throws InterruptedException {
+        if (readReplicas != null) {
+            readReplicas.destroy();
+        }
+    }
+
+    @Test
+    public void shouldConvergeReplicasUnderConcurrentWrites() throws Exception {
+        // Лента меньше потока изменений: отставшие реплики догоняют через снимок
+        readReplicas = new ReadReplicas(filmStorage, userStorage, 3, 256, 0, 1);
+        readReplicas.afterSingletonsInstantiated();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            Future<?>[] futures = new Future<?>[THREADS];
+            for (int thread = 0; thread < THREADS; thread++) {
+                Random random = new Random(thread);
+                futures[thread] = executor.submit(() -> {
+                    for (int i = 0; i < OPERATIONS; i++) {
+                        int filmId = 1 + random.nextInt(50);
+                        int userId = 1 + random.nextInt(50);
+                        switch (random.nextInt(6)) {
+                            case 0:
+                                filmStorage.createFilm(film(i));
+                                break;
+                            case 1:
+                                userStorage.addFriend(userStorage.getUserById(userId), 1 + random.nextInt(50));
+                                break;
+                            case 2:
+                                filmStorage.delLike(filmStorage.getFilmById(filmId), 1 + random.nextInt(50));
+                                break;
+                            default:
+                                filmStorage.addLike(filmStorage.getFilmById(filmId), 1 + random.nextInt(50));
+                                break;
+                        }
+                    }
+                });
+            }
+            for (Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Film updated = film(1000);
+        updated.setId(7);
+        filmStorage.updateFilm(updated);
+
+        awaitReplication();
+        for (ReadReplica replica : readReplicas.getReplicas()) {
+            assertEquals(filmStorage.getAllFilms(), replica.getFilmStorage().getAllFilms(), replica.getName());
+            assertEquals(userStorage.getAllUsers(), replica.getUserStorage().getAllUsers(), replica.getName());
+            assertEquals(ids(filmStorage.getPopFilms(20)), ids(replica.getFilmStorage().getPopFilms(20)));
+            assertEquals("Film 1000", replica.getFilmStorage().getFilmById(7).getName());
+        }
+        assertNotSame(filmStorage, readReplicas.films());
+        assertNotSame(userStorage, readReplicas.users());
+    }
+
+    @Test
+    public void shouldReadFromPrimaryWhileReplicasLag() throws Exception {
+        readReplicas = new ReadReplicas(filmStorage, userStorage, 2, 1024, 0, 1);
+        readReplicas.afterSingletonsInstantiated();
+        awaitReplication();
+        assertNotSame(filmStorage, readReplicas.films());
+
+        // Без потоков реплик каждое новое изменение - отставание
+        readReplicas.destroy();
+        filmStorage.addLike(filmStorage.getFilmById(1), 1);
+        for (ReadReplica replica : readReplicas.getReplicas()) {
+            assertEquals(1, readReplicas.lag(replica));
+        }
+        assertSame(filmStorage, readReplicas.films());
+        assertSame(userStorage, readReplicas.users());
+
+        ReadReplicas noReplicas = new ReadReplicas(filmStorage, userStorage, 0, 1, 0, 1);
+        assertSame(filmStorage, noReplicas.films());
+    }
+
+    @Test
+    public void shouldRequestSnapshotWhenFeedOverflows() {
+        ChangeFeed feed = new ChangeFeed(4);
+        ReadReplica replica = new ReadReplica("replica");
+        for (int userId = 1; userId <= 3; userId++) {
+            feed.append(Mutation.addLike(1, userId));
+        }
+        replica.load(0, List.of(Mutation.createFilm(film(1))));
+        assertEquals(3, replica.catchUp(feed, 10));
+        assertEquals(3, replica.getFilmStorage().getFilmById(1).getLikes().size());
+
+        for (int userId = 4; userId <= 8; userId++) {
+            feed.append(Mutation.addLike(1, userId));
+        }
+        assertEquals(-1, replica.catchUp(feed, 10));
+        assertNull(feed.read(0, 10));
+        assertEquals(4, feed.read(4, 10).size());
+    }
+
+    private void awaitReplication() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        for (ReadReplica replica : readReplicas.getReplicas()) {
+            while (readReplicas.lag(replica) > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            assertEquals(0, readReplicas.lag(replica), replica.getName());
+        }
+    }
+
+    private static Film film(int number) {
+        return Film.builder()
+                .id(number)
+                .name("Film " + number)
+                .description("description")
+                .duration(100L)
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .likes(new HashSet<>())
+                .build();
+    }
+
+    private static User user(int number) {
+        return User.builder()
+                .login("user" + number)
+                .email("user" + number + "@mail.ru")
+                .birthday(LocalDate.of(1990, 1, 1))
+                .friends(new HashSet<>())
+                .build();
+    }
+}
@@ -0,0 +1,124 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.support.NoOpCacheManager;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.replication.ReadReplicas;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static ru.yandex.practicum.filmorate.controller.TestData.film;
+
+class FilmRecommendationsTest {
+
+    private InMemoryFilmStorage filmStorage;
+    private FilmRecommendations recommendations;
+
+    @BeforeEach
+    public void beforeEach() {
+        filmStorage = new InMemoryFilmStorage();
+        for (int i = 1; i <= 5; i++) {
+            filmStorage.createFilm(film("Film " + i));
+        }
+        recommendations = new FilmRecommendations(filmStorage, 20, 0, 0);
+        for (int userId = 1; userId <= 3; userId++) {
+            like(userId, 1);
+            like(userId, 2);
+        }
+        like(4, 1);
+        like(4, 3);
+        like(5, 4);
+        recommendations.rebuild();
+    }
+
+    @Test
+    public void shouldRecommendSimilarFilmsNotLikedYet() {
+        // Фильм 2 лайкали трое из четырёх лайкнувших фильм 1, фильм 3 - один
+        like(6, 1);
+        assertEquals(List.of(2, 3), recommendations.recommend(6, 10));
+        assertEquals(List.of(2), recommendations.recommend(6, 1));
+        assertEquals(List.of(3), recommendations.recommend(1, 10));
+        assertEquals(List.of(), recommendations.recommend(5, 10));
+        assertEquals(List.of(), recommendations.recommend(7, 10));
+    }
+
+    @Test
+    public void shouldRefreshChangedFilmsIncrementally() {
+        like(4, 5);
+        like(8, 3);
+        assertEquals(List.of(1), recommendations.recommend(8, 10));
+
+        // После пересчёта у фильма 3 появляется сосед 5: единственный лайкнувший его лайкал и фильм 3
+        recommendations.refresh();
+        assertEquals(List.of(5, 1), recommendations.recommend(8, 10));
+
+        unlike(8, 3);
+        assertEquals(List.of(), recommendations.recommend(8, 10));
+        recommendations.clear();
+        assertEquals(List.of(), recommendations.recommend(1, 10));
+    }
+
+    @Test
+    public void shouldMatchRebuildAfterRefresh() {
+        like(5, 2);
+        like(6, 3);
+        unlike(4, 3);
+        recommendations.refresh();
+        List<Integer> refreshed = recommendations.recommend(5, 10);
+
+        recommendations.rebuild();
+        assertEquals(recommendations.recommend(5, 10), refreshed);
+        assertEquals(List.of(1), refreshed);
+    }
+
+    @Test
+    public void shouldNotCountRepeatedLikesOfBatch() {
+        // Фильмов достаточно, чтобы пересчитывались только изменившиеся
+        for (int i = 6; i <= 25; i++) {
+            filmStorage.createFilm(film("Film " + i));
+        }
+        recommendations.rebuild();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        for (int i = 1; i <= 6; i++) {
+            userStorage.createUser(User.builder()
+                    .login("user" + i)
+                    .email("user" + i + "@mail.ru")
+                    .birthday(LocalDate.of(1990, 1, 1))
+                    .friends(new HashSet<>())
+                    .build());
+        }
+        FilmService filmService = new FilmServiceImpl(filmStorage, userStorage, new TrendingFilms(),
+                new PopularFilmsSketch(filmStorage, "exact", 1), recommendations,
+                new LikeIngestion("sync", 1, 1, 10, new NoOpCacheManager()),
+                new ReadReplicas(filmStorage, userStorage, 0, 1, 0, 1));
+        List<Like> likes = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            likes.add(new Like(2, 1 + i % 3));
+        }
+        likes.add(new Like(1, 6));
+
+        filmService.addLikes(likes);
+        recommendations.refresh();
+        // Уже поставленные лайки не завышают число лайков фильма 2 и не занижают его сходство с фильмом 1
+        assertEquals(List.of(2, 3), recommendations.recommend(6, 10));
+    }
+
+    private void like(int userId, int filmId) {
+        filmStorage.addLike(filmStorage.getFilmById(filmId), userId);
+        recommendations.like(filmId, userId);
+    }
+
+    private void unlike(int userId, int filmId) {
+        filmStorage.delLike(filmStorage.getFilmById(filmId), userId);
+        recommendations.unlike(filmId, userId);
+    }
+}
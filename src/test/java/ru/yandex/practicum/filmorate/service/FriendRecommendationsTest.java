@@ -0,0 +1,132 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.replication.ReadReplicas;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FriendRecommendationsTest {
+
+    private InMemoryUserStorage userStorage;
+    private FriendRecommendations friendRecommendations;
+    private UserService userService;
+
+    @BeforeEach
+    public void beforeEach() {
+        userStorage = new InMemoryUserStorage();
+        friendRecommendations = new FriendRecommendations(userStorage,
+                new ConcurrentMapCacheManager(CacheNames.RECOMMENDATIONS));
+        userService = new UserServiceImpl(userStorage, friendRecommendations,
+                new ReadReplicas(new InMemoryFilmStorage(), userStorage, 0, 1, 0, 1));
+    }
+
+    @Test
+    public void shouldRankFriendsOfFriendsByMutualFriends() {
+        createUsers(6);
+        userService.addFriend(1, 2);
+        userService.addFriend(1, 3);
+        userService.addFriend(2, 4);
+        userService.addFriend(3, 4);
+        userService.addFriend(3, 5);
+        userService.addFriend(2, 3);
+
+        // 4 - общий друг 2 и 3, 5 - только 3; сам пользователь и его друзья не рекомендуются
+        assertEquals(List.of(4, 5), ids(userService.getRecommendations(1, 10)));
+        assertEquals(List.of(4), ids(userService.getRecommendations(1, 1)));
+        assertEquals(List.of(), ids(userService.getRecommendations(6, 10)));
+    }
+
+    @Test
+    public void shouldRecalculateAfterFriendshipChanges() {
+        createUsers(4);
+        userService.addFriend(1, 2);
+        userService.addFriend(2, 3);
+        assertArrayEquals(new int[]{3}, friendRecommendations.recommend(1));
+
+        // Изменение у друга друга сбрасывает закэшированные рекомендации пользователя
+        userService.addFriend(3, 4);
+        userService.addFriend(2, 4);
+        assertArrayEquals(new int[]{3, 4}, friendRecommendations.recommend(1));
+        userService.addFriend(1, 3);
+        assertArrayEquals(new int[]{4}, friendRecommendations.recommend(1));
+        userService.delFriend(2, 4);
+        assertArrayEquals(new int[]{4}, friendRecommendations.recommend(1));
+        userService.delFriend(3, 4);
+        assertArrayEquals(new int[0], friendRecommendations.recommend(1));
+    }
+
+    @Test
+    public void shouldCountLargeNetworkInParallelLikeBruteForce() {
+        int users = 20_000;
+        createUsers(users);
+        Random random = new Random(7);
+        List<Friendship> friendships = new ArrayList<>();
+        for (int userId = 2; userId <= users; userId++) {
+            for (int i = 0; i < 15; i++) {
+                friendships.add(new Friendship(userId, 2 + random.nextInt(users - 1)));
+            }
+        }
+        for (int i = 0; i < 3000; i++) {
+            friendships.add(new Friendship(1, 2 + random.nextInt(users - 1)));
+        }
+        friendships.removeIf(friendship -> friendship.getUserId().equals(friendship.getFriendId()));
+        userService.addFriends(friendships);
+
+        int[] expected = bruteForce(1).stream().mapToInt(Integer::intValue).toArray();
+        assertArrayEquals(expected, friendRecommendations.computeRecommendations(1));
+        int[] expectedForUser = bruteForce(2).stream().mapToInt(Integer::intValue).toArray();
+        assertArrayEquals(expectedForUser, friendRecommendations.computeRecommendations(2));
+    }
+
+    private List<Integer> bruteForce(int userId) {
+        Set<Integer> friends = userStorage.getUserById(userId).getFriends();
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (Integer friendId : friends) {
+            for (Integer candidate : userStorage.getUserById(friendId).getFriends()) {
+                if (candidate != userId && !friends.contains(candidate)) {
+                    counts.merge(candidate, 1, Integer::sum);
+                }
+            }
+        }
+        return counts.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey(Comparator.naturalOrder())))
+                .limit(FriendRecommendations.MAX_RECOMMENDATIONS)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    private void createUsers(int count) {
+        for (int i = 1; i <= count; i++) {
+            userStorage.createUser(User.builder()
+                    .login("user" + i)
+                    .name("user" + i)
+                    .email("user" + i + "@mail.ru")
+                    .birthday(LocalDate.of(1990, 1, 1))
+                    .friends(new HashSet<>())
+                    .build());
+        }
+    }
+
+    private static List<Integer> ids(List<User> users) {
+        return users.stream().map(User::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,57 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import ru.yandex.practicum.filmorate.exeption.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static ru.yandex.practicum.filmorate.controller.TestData.film;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = {"filmorate.storage=memory", "filmorate.replication.replicas=1",
+                "filmorate.replication.max-lag=1000"})
+class LaggingReplicaCacheTest {
+
+    @Autowired
+    private FilmService filmService;
+    @Autowired
+    private CacheManager cacheManager;
+
+    @BeforeEach
+    public void beforeEach() {
+        filmService.clearAll();
+    }
+
+    @Test
+    public void shouldNotCacheReadsOfLaggingReplicas() throws InterruptedException {
+        Film film = filmService.create(film("Film"));
+
+        // Реплика получает фильм из ленты изменений не сразу
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (true) {
+            try {
+                filmService.findFilm(film.getId());
+                break;
+            } catch (NotFoundException e) {
+                if (System.nanoTime() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(1);
+            }
+        }
+        filmService.getPopFilms(10);
+
+        // Ответ реплики мог быть старше хранилища и прожил бы в кэше до конца срока записи
+        assertNull(cacheManager.getCache(CacheNames.FILMS).get(film.getId()));
+        assertEquals(0, ((Cache<?, ?>) cacheManager.getCache(CacheNames.POPULAR_FILMS).getNativeCache())
+                .asMap().size());
+    }
+}
@@ -0,0 +1,135 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.support.NoOpCacheManager;
+import ru.yandex.practicum.filmorate.model.BatchResponse;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.replication.ReadReplicas;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.yandex.practicum.filmorate.controller.TestData.ids;
+
+class LikeIngestionTest {
+
+    private InMemoryFilmStorage filmStorage;
+    private TrendingFilms trendingFilms;
+
+    @BeforeEach
+    public void beforeEach() {
+        filmStorage = new InMemoryFilmStorage();
+        trendingFilms = new TrendingFilms();
+        for (int i = 1; i <= 3; i++) {
+            filmStorage.createFilm(Film.builder()
+                    .name("Film " + i)
+                    .description("description")
+                    .duration(100L)
+                    .releaseDate(LocalDate.of(2000, 1, 1))
+                    .likes(new HashSet<>())
+                    .build());
+        }
+    }
+
+    @Test
+    public void shouldCoalesceOperationsAndApplyOnFlush() {
+        LikeIngestion ingestion = new LikeIngestion("async", 64, 64, 10, new NoOpCacheManager());
+        FilmService filmService = filmService(ingestion);
+
+        filmService.addLike(1, 1);
+        filmService.addLike(1, 2);
+        filmService.delLike(1, 2);
+        filmService.addLike(2, 1);
+        filmService.addLike(2, 1);
+        filmService.delLike(3, 1);
+        assertTrue(filmStorage.getFilmById(1).getLikes().isEmpty());
+
+        assertEquals(6, ingestion.flush());
+        assertEquals(Set.of(1), filmStorage.getFilmById(1).getLikes());
+        assertEquals(Set.of(1), filmStorage.getFilmById(2).getLikes());
+        assertTrue(filmStorage.getFilmById(3).getLikes().isEmpty());
+        // Повторный лайк и снятие отсутствующего лайка не меняют рейтинги
+        assertEquals(List.of(1, 2), ids(filmService.getTrendingFilms("hour", 10)));
+        assertEquals(List.of(1, 2, 3), ids(filmService.getPopFilms(3)));
+
+        filmService.delLike(2, 1);
+        filmService.addLike(3, 2);
+        assertEquals(2, ingestion.flush());
+        assertEquals(List.of(1, 3, 2), ids(filmService.getPopFilms(3)));
+        assertEquals(0, ingestion.flush());
+    }
+
+    @Test
+    public void shouldApplyQueuedOperationsInRequestWhenQueueIsFull() {
+        LikeIngestion ingestion = new LikeIngestion("async", 2, 2, 10, new NoOpCacheManager());
+        FilmService filmService = filmService(ingestion);
+
+        for (int userId = 1; userId <= 5; userId++) {
+            filmService.addLike(1, userId);
+        }
+        // Два переполнения очереди применили по пачке, последняя операция ещё в очереди
+        assertEquals(4, filmStorage.getFilmById(1).getLikes().size());
+        assertEquals(1, ingestion.flush());
+        assertEquals(5, filmStorage.getFilmById(1).getLikes().size());
+    }
+
+    @Test
+    public void shouldFlushInBackgroundAndOnShutdown() throws Exception {
+        LikeIngestion ingestion = new LikeIngestion("async", 1024, 16, 1, new NoOpCacheManager());
+        FilmService filmService = filmService(ingestion);
+        ingestion.afterSingletonsInstantiated();
+
+        filmService.addLike(1, 1);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (filmStorage.getFilmById(1).getLikes().isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(Set.of(1), filmStorage.getFilmById(1).getLikes());
+
+        for (int userId = 1; userId <= 100; userId++) {
+            filmService.addLike(2, userId);
+        }
+        ingestion.destroy();
+        assertEquals(100, filmStorage.getFilmById(2).getLikes().size());
+    }
+
+    @Test
+    public void shouldCountOnlyNewLikesOfSyncBatch() {
+        FilmService filmService = filmService(new LikeIngestion("sync", 1, 1, 10, new NoOpCacheManager()));
+        filmService.addLike(1, 1);
+        filmService.addLike(2, 1);
+
+        BatchResponse response = filmService.addLikes(List.of(new Like(1, 1), new Like(1, 2), new Like(1, 2),
+                new Like(2, 2), new Like(2, 3)));
+
+        assertEquals(5, response.getProcessed());
+        assertEquals(Set.of(1, 2), filmStorage.getFilmById(1).getLikes());
+        // Уже поставленный лайк и повтор в пакете не добавляют фильму 1 веса: у фильма 2 больше новых лайков
+        assertEquals(List.of(2, 1), ids(filmService.getTrendingFilms("hour", 10)));
+    }
+
+    private FilmService filmService(LikeIngestion ingestion) {
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        for (int i = 1; i <= 100; i++) {
+            userStorage.createUser(User.builder()
+                    .login("user" + i)
+                    .email("user" + i + "@mail.ru")
+                    .birthday(LocalDate.of(1990, 1, 1))
+                    .friends(new HashSet<>())
+                    .build());
+        }
+        return new FilmServiceImpl(filmStorage, userStorage, trendingFilms,
+                new PopularFilmsSketch(filmStorage, "exact", 1), new FilmRecommendations(filmStorage, 20, 0, 0),
+                ingestion, new ReadReplicas(filmStorage, userStorage, 0, 1, 0, 1));
+    }
+}
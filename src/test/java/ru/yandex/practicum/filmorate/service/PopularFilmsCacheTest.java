@@ -0,0 +1,58 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.yandex.practicum.filmorate.controller.TestData.film;
+import static ru.yandex.practicum.filmorate.controller.TestData.ids;
+import static ru.yandex.practicum.filmorate.controller.TestData.user;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = {"filmorate.popularity.mode=sketch", "filmorate.popularity.sketch-capacity=2"})
+class PopularFilmsCacheTest {
+
+    @Autowired
+    private FilmService filmService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private FilmStorage filmStorage;
+    @Autowired
+    private PopularFilmsSketch popularFilmsSketch;
+
+    @BeforeEach
+    public void beforeEach() {
+        filmService.clearAll();
+        userService.clearAll();
+    }
+
+    @Test
+    public void shouldNotCacheSketchListReadBetweenStorageAndSketch() {
+        Film[] films = new Film[3];
+        for (int i = 0; i < films.length; i++) {
+            films[i] = filmService.create(film("Film " + i));
+        }
+        User first = userService.create(user("user1"));
+        User second = userService.create(user("user2"));
+        filmService.addLike(films[0].getId(), first.getId());
+        assertTrue(popularFilmsSketch.serves(2));
+        assertEquals(films[0].getId(), ids(filmService.getPopFilms(2)).get(0));
+
+        // Лайки уже в хранилище, но ещё не в наброске: список, прочитанный в этот момент, старый
+        filmStorage.addLike(filmStorage.getFilmById(films[1].getId()), first.getId());
+        filmStorage.addLike(filmStorage.getFilmById(films[1].getId()), second.getId());
+        assertEquals(films[0].getId(), ids(filmService.getPopFilms(2)).get(0));
+        popularFilmsSketch.like(films[1].getId());
+        popularFilmsSketch.like(films[1].getId());
+
+        // Версия наброска изменилась, и старый список из кэша больше не читается
+        assertEquals(films[1].getId(), ids(filmService.getPopFilms(2)).get(0));
+    }
+}
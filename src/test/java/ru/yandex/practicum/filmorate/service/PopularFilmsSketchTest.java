@@ -0,0 +1,88 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.support.NoOpCacheManager;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.replication.ReadReplicas;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.yandex.practicum.filmorate.controller.TestData.film;
+import static ru.yandex.practicum.filmorate.controller.TestData.ids;
+import static ru.yandex.practicum.filmorate.controller.TestData.user;
+
+class PopularFilmsSketchTest {
+
+    private InMemoryFilmStorage filmStorage;
+    private InMemoryUserStorage userStorage;
+
+    @BeforeEach
+    public void beforeEach() {
+        filmStorage = new InMemoryFilmStorage();
+        userStorage = new InMemoryUserStorage();
+        for (int i = 0; i < 4; i++) {
+            filmStorage.createFilm(film("Film " + i));
+            userStorage.createUser(user("user" + i));
+        }
+    }
+
+    @Test
+    public void shouldServeLargeCatalogueFromSketch() {
+        // Лайки до запуска попадают в набросок при заполнении
+        filmStorage.addLike(filmStorage.getFilmById(3), 1);
+        filmStorage.addLike(filmStorage.getFilmById(3), 2);
+        filmStorage.addLike(filmStorage.getFilmById(2), 1);
+        PopularFilmsSketch sketch = new PopularFilmsSketch(filmStorage, "sketch", 2);
+        sketch.afterSingletonsInstantiated();
+        FilmService filmService = new FilmServiceImpl(filmStorage, userStorage, new TrendingFilms(), sketch,
+                new FilmRecommendations(filmStorage, 20, 0, 0),
+                new LikeIngestion("sync", 1, 1, 10, new NoOpCacheManager()),
+                new ReadReplicas(filmStorage, userStorage, 0, 1, 0, 1));
+
+        assertTrue(sketch.serves(2));
+        assertEquals(List.of(3, 2), ids(filmService.getPopFilms(2)));
+        filmService.addLike(4, 1);
+        filmService.addLike(4, 2);
+        filmService.addLike(4, 3);
+        assertEquals(List.of(4, 3), ids(filmService.getPopFilms(2)));
+        filmService.delLike(4, 1);
+        filmService.delLike(4, 2);
+        filmService.delLike(4, 3);
+        // Фильм 4 вытеснил фильм 2 с одним лайком, и его оценка завышена на эту ошибку
+        assertEquals(List.of(3, 4), ids(filmService.getPopFilms(2)));
+
+        // Больше фильмов, чем счётчиков в наброске, выдаёт точный индекс
+        assertFalse(sketch.serves(3));
+        assertEquals(List.of(3, 2, 1), ids(filmService.getPopFilms(3)));
+    }
+
+    @Test
+    public void shouldNotCountRepeatedLikesOfBatch() {
+        filmStorage.addLike(filmStorage.getFilmById(3), 1);
+        filmStorage.addLike(filmStorage.getFilmById(3), 2);
+        filmStorage.addLike(filmStorage.getFilmById(2), 1);
+        PopularFilmsSketch sketch = new PopularFilmsSketch(filmStorage, "sketch", 2);
+        sketch.afterSingletonsInstantiated();
+        FilmService filmService = new FilmServiceImpl(filmStorage, userStorage, new TrendingFilms(), sketch,
+                new FilmRecommendations(filmStorage, 20, 0, 0),
+                new LikeIngestion("sync", 1, 1, 10, new NoOpCacheManager()),
+                new ReadReplicas(filmStorage, userStorage, 0, 1, 0, 1));
+
+        // Уже поставленный лайк и его повторы в пакете не поднимают фильм 2 над фильмом 3
+        filmService.addLikes(List.of(new Like(2, 1), new Like(2, 1), new Like(2, 1)));
+        assertEquals(List.of(3, 2), ids(filmService.getPopFilms(2)));
+    }
+
+    @Test
+    public void shouldUseExactIndexForSmallCatalogueOrExactMode() {
+        assertFalse(new PopularFilmsSketch(filmStorage, "sketch", 4).serves(2));
+        assertFalse(new PopularFilmsSketch(filmStorage, "exact", 2).serves(2));
+    }
+}
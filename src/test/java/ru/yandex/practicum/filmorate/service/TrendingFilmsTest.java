@@ -0,0 +1,103 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrendingFilmsTest {
+
+    private MutableClock clock;
+    private TrendingFilms trendingFilms;
+
+    @BeforeEach
+    public void beforeEach() {
+        clock = new MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+        trendingFilms = new TrendingFilms(clock);
+    }
+
+    @Test
+    public void shouldPreferRecentLikesWithinWindow() {
+        for (int i = 0; i < 5; i++) {
+            trendingFilms.record(1, clock.instant(), 1);
+        }
+        clock.advance(Duration.ofHours(6));
+        trendingFilms.record(2, clock.instant(), 1);
+        trendingFilms.record(2, clock.instant(), 1);
+
+        assertEquals(List.of(2, 1), trendingFilms.top(TrendingWindow.HOUR, 10));
+        assertEquals(List.of(1, 2), trendingFilms.top(TrendingWindow.DAY, 10));
+        assertEquals(List.of(1, 2), trendingFilms.top(TrendingWindow.WEEK, 10));
+        assertEquals(List.of(1), trendingFilms.top(TrendingWindow.WEEK, 1));
+    }
+
+    @Test
+    public void shouldSubtractRemovedLikes() {
+        trendingFilms.record(1, clock.instant(), 1);
+        trendingFilms.record(2, clock.instant(), 1);
+        trendingFilms.record(2, clock.instant(), 1);
+        trendingFilms.record(2, clock.instant(), -1);
+        trendingFilms.record(2, clock.instant(), -1);
+
+        assertEquals(List.of(1), trendingFilms.top(TrendingWindow.DAY, 10));
+    }
+
+    @Test
+    public void shouldKeepOrderAndForgetOldFilmsAfterRebase() {
+        trendingFilms.record(1, clock.instant(), 1);
+        clock.advance(Duration.ofDays(10));
+        trendingFilms.record(2, clock.instant(), 1);
+        trendingFilms.record(2, clock.instant(), 1);
+        trendingFilms.record(3, clock.instant(), 1);
+        // Через 60 часов веса окна HOUR вышли бы за exp(50), опорный момент сдвигается
+        clock.advance(Duration.ofHours(60));
+        trendingFilms.record(4, clock.instant(), 1);
+
+        assertEquals(List.of(4), trendingFilms.top(TrendingWindow.HOUR, 10));
+        assertEquals(List.of(4, 2, 3), trendingFilms.top(TrendingWindow.DAY, 10));
+        assertEquals(List.of(2, 4, 3, 1), trendingFilms.top(TrendingWindow.WEEK, 10));
+    }
+
+    @Test
+    public void shouldIgnoreVeryOldLikes() {
+        trendingFilms.record(1, clock.instant().minus(Duration.ofDays(3650)), 1);
+
+        assertTrue(trendingFilms.top(TrendingWindow.DAY, 10).isEmpty());
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.yandex.practicum.filmorate.exeption.NotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchResponse;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmQuery;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.yandex.practicum.filmorate.controller.TestData.film;
+import static ru.yandex.practicum.filmorate.controller.TestData.ids;
+import static ru.yandex.practicum.filmorate.controller.TestData.user;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = "filmorate.storage=jdbc")
+class DbStorageTest {
+
+    @Autowired
+    private FilmStorage filmStorage;
+    @Autowired
+    private UserStorage userStorage;
+    @Autowired
+    private FilmService filmService;
+    @Autowired
+    private UserService userService;
+
+    @BeforeEach
+    public void beforeEach() {
+        filmService.clearAll();
+        userService.clearAll();
+    }
+
+    @Test
+    public void shouldUseDbStorages() {
+        assertInstanceOf(FilmDbStorage.class, filmStorage);
+        assertInstanceOf(UserDbStorage.class, userStorage);
+    }
+
+    @Test
+    public void shouldCreateAndUpdateFilm() {
+        Film film = filmService.create(film("Film"));
+        assertEquals(film, filmStorage.getFilmById(film.getId()));
+
+        Film update = film("Updated film");
+        update.setId(film.getId());
+        update.setDuration(null);
+        filmService.update(update);
+        assertEquals(update, filmStorage.getFilmById(film.getId()));
+        assertEquals(1, filmStorage.getAllFilms().size());
+
+        update.setId(999);
+        assertThrows(NotFoundException.class, () -> filmService.update(update));
+        assertThrows(NotFoundException.class, () -> filmStorage.getFilmById(999));
+    }
+
+    @Test
+    public void shouldSearchFilmsByIndexes() {
+        Film first = filmService.create(film("Dark city"));
+        Film second = filmService.create(film("Dark water"));
+        second.setReleaseDate(LocalDate.of(2005, 1, 1));
+        second.setDuration(60L);
+        filmService.update(second);
+
+        assertEquals(List.of(first.getId(), second.getId()), ids(search(FilmQuery.builder().text("DARK"))));
+        assertEquals(List.of(second.getId()), ids(search(FilmQuery.builder().text("dark water"))));
+        assertEquals(List.of(second.getId()), ids(search(FilmQuery.builder().from(LocalDate.of(2001, 1, 1)))));
+        assertEquals(List.of(second.getId(), first.getId()), ids(search(FilmQuery.builder().minDuration(1L))));
+        assertEquals(List.of(), ids(search(FilmQuery.builder().text("dark").maxDuration(10L))));
+
+        second.setName("Light water");
+        filmService.update(second);
+        assertEquals(List.of(first.getId()), ids(search(FilmQuery.builder().text("dark"))));
+    }
+
+    @Test
+    public void shouldOrderPopFilmsByLikes() {
+        Film first = filmService.create(film("First"));
+        Film second = filmService.create(film("Second"));
+        Film third = filmService.create(film("Third"));
+        User user = userService.create(user("user"));
+        User other = userService.create(user("other"));
+
+        filmService.addLike(third.getId(), user.getId());
+        filmService.addLike(third.getId(), other.getId());
+        filmService.addLike(third.getId(), other.getId());
+        filmService.addLike(second.getId(), user.getId());
+
+        assertEquals(Set.of(user.getId(), other.getId()), filmStorage.getFilmById(third.getId()).getLikes());
+        assertEquals(List.of(third.getId(), second.getId(), first.getId()), ids(filmService.getPopFilms(3)));
+
+        filmService.delLike(third.getId(), user.getId());
+        filmService.delLike(third.getId(), other.getId());
+        assertEquals(List.of(second.getId(), first.getId()), ids(filmService.getPopFilms(2)));
+        assertThrows(NotFoundException.class, () -> filmService.delLike(third.getId(), user.getId()));
+    }
+
+    @Test
+    public void shouldStoreFriendsAndFindCommonFriends() {
+        User user = userService.create(user("user"));
+        User friend = userService.create(user("friend"));
+        User common = userService.create(user("common"));
+
+        userService.addFriend(user.getId(), friend.getId());
+        userService.addFriend(user.getId(), common.getId());
+        userService.addFriend(friend.getId(), common.getId());
+
+        assertEquals(Set.of(friend.getId(), common.getId()), userStorage.getUserById(user.getId()).getFriends());
+        assertEquals(Set.of(user.getId(), common.getId()), userStorage.getUserById(friend.getId()).getFriends());
+        List<User> commonFriends = userService.getCommonFriends(user.getId(), friend.getId());
+        assertEquals(1, commonFriends.size());
+        assertEquals(common.getId(), commonFriends.get(0).getId());
+
+        userService.delFriend(user.getId(), friend.getId());
+        assertEquals(Set.of(common.getId()), userStorage.getUserById(user.getId()).getFriends());
+        assertTrue(userStorage.getAllUsers().stream()
+                .filter(stored -> stored.getId().equals(friend.getId()))
+                .allMatch(stored -> stored.getFriends().equals(Set.of(common.getId()))));
+        assertThrows(NotFoundException.class, () -> userService.delFriend(user.getId(), friend.getId()));
+    }
+
+    @Test
+    public void shouldBatchInsertFriendsOnUpdate() {
+        User user = userService.create(user("user"));
+        Set<Integer> friendIds = new HashSet<>();
+        for (int i = 0; i < 50; i++) {
+            friendIds.add(userService.create(user("friend" + i)).getId());
+        }
+        User update = user("updated");
+        update.setId(user.getId());
+        update.setFriends(friendIds);
+        userService.update(update);
+
+        assertEquals(friendIds, userStorage.getUserById(user.getId()).getFriends());
+        assertEquals(50, userService.getFriends(user.getId()).size());
+    }
+
+    @Test
+    public void shouldGetUsersAndFilmsByIds() {
+        User user = userService.create(user("user"));
+        User friend = userService.create(user("friend"));
+        userService.addFriend(user.getId(), friend.getId());
+        Film film = filmService.create(film("Film"));
+        filmService.addLike(film.getId(), user.getId());
+
+        List<User> users = userStorage.getUsersByIds(List.of(friend.getId(), user.getId(), 999));
+        assertEquals(2, users.size());
+        assertEquals(Set.of(friend.getId()), users.get(0).getFriends());
+        assertEquals(Set.of(user.getId()), users.get(1).getFriends());
+        assertTrue(userStorage.getUsersByIds(List.of()).isEmpty());
+
+        List<Film> films = filmStorage.getFilmsByIds(List.of(film.getId(), 999));
+        assertEquals(1, films.size());
+        assertEquals(Set.of(user.getId()), films.get(0).getLikes());
+    }
+
+    @Test
+    public void shouldCreateFilmsAndLikesInBatch() {
+        List<User> users = List.of(user("user1"), user("user2"));
+        assertEquals(2, userService.createAll(users).getProcessed());
+        Film invalid = film("Invalid");
+        invalid.setReleaseDate(LocalDate.of(1890, 1, 1));
+        List<Film> films = List.of(film("First"), invalid, film("Second"));
+        BatchResponse response = filmService.createAll(films);
+        assertEquals(2, response.getProcessed());
+        assertEquals(1, response.getErrors().get(0).getIndex());
+        Film first = films.get(0);
+        Film second = films.get(2);
+
+        response = filmService.addLikes(List.of(
+                new Like(second.getId(), users.get(0).getId()),
+                new Like(second.getId(), users.get(1).getId()),
+                new Like(second.getId(), users.get(1).getId()),
+                new Like(first.getId(), 999)));
+        assertEquals(3, response.getProcessed());
+        assertEquals(3, response.getErrors().get(0).getIndex());
+        assertEquals(2, filmStorage.getFilmById(second.getId()).getLikes().size());
+        assertEquals(List.of(second.getId(), first.getId()), ids(filmService.getPopFilms(2)));
+    }
+
+    @Test
+    public void shouldSkipLikesOfMissingFilmsInBatch() {
+        User user = userService.create(user("user"));
+        Film film = filmService.create(film("Film"));
+
+        // Фильм 999 мог быть удалён после проверки пакета в сервисе
+        List<Like> added = filmStorage.addLikes(List.of(new Like(999, user.getId()),
+                new Like(film.getId(), user.getId())));
+
+        assertEquals(List.of(film.getId()), added.stream().map(Like::getFilmId).collect(Collectors.toList()));
+        assertEquals(Set.of(user.getId()), filmStorage.getFilmById(film.getId()).getLikes());
+    }
+
+    @Test
+    public void shouldInsertConcurrentSameLikesOnce() throws Exception {
+        User user = userService.create(user("user"));
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            films.add(filmService.create(film("Film " + i)));
+        }
+        AtomicInteger added = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                boolean batch = i % 2 == 0;
+                futures.add(executor.submit((Callable<Void>) () -> {
+                    start.await();
+                    for (Film film : films) {
+                        if (batch) {
+                            added.addAndGet(filmStorage.addLikes(List.of(new Like(film.getId(), user.getId()))).size());
+                        } else if (filmStorage.addLike(filmStorage.getFilmById(film.getId()), user.getId())) {
+                            added.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Вставка, упёршаяся в одновременно вставленный лайк, не ошибка: лайк уже стоит
+        assertEquals(films.size(), added.get());
+        for (Film film : films) {
+            assertEquals(Set.of(user.getId()), filmStorage.getFilmById(film.getId()).getLikes());
+        }
+    }
+
+    private List<Film> search(FilmQuery.FilmQueryBuilder query) {
+        return filmService.searchFilms(query.limit(10).build());
+    }
+}
@@ -0,0 +1,229 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.yandex.practicum.filmorate.controller.TestData.film;
+import static ru.yandex.practicum.filmorate.controller.TestData.user;
+
+class InMemoryStorageConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int OPERATIONS = 500;
+
+    private InMemoryFilmStorage filmStorage;
+    private InMemoryUserStorage userStorage;
+
+    @BeforeEach
+    public void beforeEach() {
+        filmStorage = new InMemoryFilmStorage();
+        userStorage = new InMemoryUserStorage();
+    }
+
+    @Test
+    public void shouldNotLoseIdsOnConcurrentCreate() throws Exception {
+        Set<Integer> ids = ConcurrentHashMap.newKeySet();
+        runConcurrently(thread -> {
+            for (int i = 0; i < OPERATIONS; i++) {
+                ids.add(filmStorage.createFilm(film("Film " + thread + "-" + i)).getId());
+                ids.add(-userStorage.createUser(user("user" + thread + "-" + i)).getId());
+            }
+        });
+
+        assertEquals(2 * THREADS * OPERATIONS, ids.size());
+        assertEquals(THREADS * OPERATIONS, filmStorage.getAllFilms().size());
+        assertEquals(THREADS * OPERATIONS, userStorage.getAllUsers().size());
+    }
+
+    @Test
+    public void shouldNotLoseLikesOnConcurrentAddLike() throws Exception {
+        Film first = filmStorage.createFilm(film("First"));
+        Film second = filmStorage.createFilm(film("Second"));
+        runConcurrently(thread -> {
+            for (int i = 0; i < OPERATIONS; i++) {
+                int userId = thread * OPERATIONS + i;
+                filmStorage.addLike(first, userId);
+                if (i % 2 == 0) {
+                    filmStorage.addLike(second, userId);
+                }
+                filmStorage.getPopFilms(2);
+            }
+        });
+
+        assertEquals(THREADS * OPERATIONS, filmStorage.getFilmById(first.getId()).getLikes().size());
+        assertEquals(THREADS * OPERATIONS / 2, filmStorage.getFilmById(second.getId()).getLikes().size());
+        List<Film> popFilms = filmStorage.getPopFilms(2);
+        assertEquals(first.getId(), popFilms.get(0).getId());
+        assertEquals(second.getId(), popFilms.get(1).getId());
+    }
+
+    @Test
+    public void shouldKeepPopularityConsistentOnConcurrentAddAndDelLike() throws Exception {
+        Film film = filmStorage.createFilm(film("Film"));
+        Film other = filmStorage.createFilm(film("Other"));
+        filmStorage.addLike(other, 0);
+        runConcurrently(thread -> {
+            for (int i = 0; i < OPERATIONS; i++) {
+                int userId = thread * OPERATIONS + i + 1;
+                filmStorage.addLike(film, userId);
+                filmStorage.delLike(film, userId);
+            }
+        });
+
+        assertTrue(filmStorage.getFilmById(film.getId()).getLikes().isEmpty());
+        List<Film> popFilms = filmStorage.getPopFilms(10);
+        assertEquals(2, popFilms.size());
+        assertEquals(other.getId(), popFilms.get(0).getId());
+        assertEquals(film.getId(), popFilms.get(1).getId());
+    }
+
+    @Test
+    public void shouldReportEachLikeChangeOnce() throws Exception {
+        Film film = filmStorage.createFilm(film("Film"));
+        AtomicInteger added = new AtomicInteger();
+        AtomicInteger removed = new AtomicInteger();
+        // Все потоки ставят и снимают одни и те же лайки: каждое изменение сообщается ровно одному
+        runConcurrently(thread -> {
+            for (int userId = 1; userId <= OPERATIONS; userId++) {
+                if (filmStorage.addLike(film, userId)) {
+                    added.incrementAndGet();
+                }
+            }
+        });
+        runConcurrently(thread -> {
+            for (int userId = 1; userId <= OPERATIONS; userId++) {
+                if (filmStorage.delLike(film, userId)) {
+                    removed.incrementAndGet();
+                }
+            }
+        });
+
+        assertEquals(OPERATIONS, added.get());
+        assertEquals(OPERATIONS, removed.get());
+        assertTrue(filmStorage.getFilmById(film.getId()).getLikes().isEmpty());
+    }
+
+    @Test
+    public void shouldReturnOnlyNewLikesFromBatch() {
+        Film film = filmStorage.createFilm(film("Film"));
+        filmStorage.addLike(film, 1);
+
+        List<Like> added = filmStorage.addLikes(List.of(new Like(film.getId(), 1), new Like(film.getId(), 2),
+                new Like(film.getId(), 2), new Like(film.getId(), 3)));
+
+        assertEquals(List.of(2, 3), added.stream().map(Like::getUserId).collect(Collectors.toList()));
+        List<Like> removed = filmStorage.delLikes(List.of(new Like(film.getId(), 3), new Like(film.getId(), 3),
+                new Like(film.getId(), 4)));
+        assertEquals(1, removed.size());
+        assertEquals(Set.of(1, 2), filmStorage.getFilmById(film.getId()).getLikes());
+    }
+
+    @Test
+    public void shouldChangeVersionOnlyAfterLogSync() {
+        List<Long> versionsAtSync = new ArrayList<>();
+        filmStorage.setMutationLog(versionsAtSync(filmStorage.getModifications(), versionsAtSync));
+        userStorage.setMutationLog(versionsAtSync(userStorage.getModifications(), versionsAtSync));
+        long filmVersion = filmStorage.getModifications().getVersion();
+        long userVersion = userStorage.getModifications().getVersion();
+
+        Film film = filmStorage.createFilm(film("Film"));
+        filmStorage.addLike(film, 1);
+        filmStorage.addLikes(List.of(new Like(film.getId(), 2)));
+        User user = userStorage.createUser(user("user"));
+        userStorage.addFriend(user, 2);
+
+        // Пока журнал не записан, клиенты видят прежнюю версию и не получают ETag незаписанного изменения
+        assertEquals(List.of(filmVersion, filmVersion + 1, filmVersion + 2, userVersion, userVersion + 1),
+                versionsAtSync);
+        assertEquals(filmVersion + 3, filmStorage.getModifications().getVersion());
+        assertEquals(userVersion + 2, userStorage.getModifications().getVersion());
+    }
+
+    @Test
+    public void shouldSkipLikesOfMissingFilmsInBatch() {
+        Film film = filmStorage.createFilm(film("Film"));
+
+        // Фильм 999 мог быть удалён после проверки пакета в сервисе
+        List<Like> added = filmStorage.addLikes(List.of(new Like(999, 1), new Like(film.getId(), 1)));
+
+        assertEquals(List.of(film.getId()), added.stream().map(Like::getFilmId).collect(Collectors.toList()));
+        List<Like> removed = filmStorage.delLikes(List.of(new Like(999, 1), new Like(film.getId(), 1)));
+        assertEquals(List.of(film.getId()), removed.stream().map(Like::getFilmId).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void shouldNotLoseFriendsOnConcurrentAddFriend() throws Exception {
+        User user = userStorage.createUser(user("user"));
+        runConcurrently(thread -> {
+            for (int i = 0; i < OPERATIONS; i++) {
+                User friend = userStorage.createUser(user("friend" + thread + "-" + i));
+                userStorage.addFriend(user, friend.getId());
+                userStorage.addFriend(friend, user.getId());
+            }
+        });
+
+        assertEquals(THREADS * OPERATIONS, userStorage.getUserById(user.getId()).getFriends().size());
+        for (User friend : userStorage.getAllUsers()) {
+            if (!friend.getId().equals(user.getId())) {
+                assertEquals(Set.of(user.getId()), friend.getFriends());
+            }
+        }
+    }
+
+    private void runConcurrently(ThreadTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            Future<?>[] futures = new Future<?>[THREADS];
+            for (int i = 0; i < THREADS; i++) {
+                int thread = i;
+                futures[i] = executor.submit((Callable<Void>) () -> {
+                    start.await();
+                    task.run(thread);
+                    return null;
+                });
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static MutationLog versionsAtSync(ModificationCounter modifications, List<Long> versions) {
+        return new MutationLog() {
+            @Override
+            public void append(Mutation mutation) {
+            }
+
+            @Override
+            public void sync() {
+                versions.add(modifications.getVersion());
+            }
+        };
+    }
+
+    private interface ThreadTask {
+        void run(int thread);
+    }
+}
@@ -0,0 +1,206 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.support.NoOpCacheManager;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmQuery;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.replication.ReadReplicas;
+import ru.yandex.practicum.filmorate.service.FriendRecommendations;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.service.UserServiceImpl;
+import ru.yandex.practicum.filmorate.util.ConsistentHashRing;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.yandex.practicum.filmorate.controller.TestData.ids;
+
+/**
+ * Несколько узлов в одном процессе вместо настоящих: шардированное хранилище должно отвечать так же,
+ * как одно хранилище в памяти с теми же данными.
+ */
+class ShardedStorageTest {
+
+    private static final int SHARDS = 4;
+    private static final int FILMS = 200;
+    private static final int USERS = 100;
+
+    private List<InMemoryFilmStorage> filmNodes;
+    private List<InMemoryUserStorage> userNodes;
+    private ShardedFilmStorage filmStorage;
+    private ShardedUserStorage userStorage;
+    private InMemoryFilmStorage singleFilmStorage;
+    private InMemoryUserStorage singleUserStorage;
+
+    @BeforeEach
+    public void beforeEach() {
+        ConsistentHashRing ring = new ConsistentHashRing(SHARDS, 64);
+        filmNodes = new ArrayList<>();
+        userNodes = new ArrayList<>();
+        for (int i = 0; i < SHARDS; i++) {
+            filmNodes.add(new InMemoryFilmStorage());
+            userNodes.add(new InMemoryUserStorage());
+        }
+        filmStorage = new ShardedFilmStorage(filmNodes, ring);
+        userStorage = new ShardedUserStorage(userNodes, ring);
+        singleFilmStorage = new InMemoryFilmStorage();
+        singleUserStorage = new InMemoryUserStorage();
+
+        filmStorage.createFilms(films());
+        singleFilmStorage.createFilms(films());
+        Random random = new Random(7);
+        List<Like> likes = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            likes.add(new Like(1 + random.nextInt(random.nextInt(FILMS) + 1), 1 + random.nextInt(USERS)));
+        }
+        filmStorage.addLikes(likes);
+        singleFilmStorage.addLikes(likes);
+    }
+
+    @Test
+    public void shouldSpreadFilmsAndRouteById() {
+        assertEquals(FILMS, filmStorage.getFilmsCount());
+        for (InMemoryFilmStorage node : filmNodes) {
+            assertTrue(node.getFilmsCount() > 0 && node.getFilmsCount() < FILMS);
+        }
+        for (int id = 1; id <= FILMS; id++) {
+            assertEquals(singleFilmStorage.getFilmById(id), filmStorage.getFilmById(id));
+        }
+        assertEquals(ids(singleFilmStorage.getAllFilms()), ids(filmStorage.getAllFilms()));
+        assertEquals(List.of(7, 3, 150, 42), ids(filmStorage.getFilmsByIds(List.of(7, 3, 1000, 150, 42))));
+    }
+
+    @Test
+    public void shouldMergeListsFromAllShards() {
+        assertEquals(ids(singleFilmStorage.getPopFilms(10)), ids(filmStorage.getPopFilms(10)));
+        assertEquals(ids(singleFilmStorage.getPopFilms(FILMS)), ids(filmStorage.getPopFilms(FILMS + 1)));
+        assertEquals(ids(singleFilmStorage.getFilmsPage(37, 25)), ids(filmStorage.getFilmsPage(37, 25)));
+
+        List<FilmQuery> queries = List.of(
+                FilmQuery.builder().from(LocalDate.of(1990, 1, 1)).to(LocalDate.of(2000, 1, 1)).limit(15).build(),
+                FilmQuery.builder().minDuration(100L).maxDuration(110L).limit(15).build(),
+                FilmQuery.builder().text("even").limit(15).build(),
+                FilmQuery.builder().limit(15).build());
+        for (FilmQuery query : queries) {
+            assertEquals(ids(singleFilmStorage.searchFilms(query)), ids(filmStorage.searchFilms(query)),
+                    query.toString());
+        }
+
+        List<Like> unlikes = List.of(new Like(1, 1), new Like(2, 1), new Like(3, 2));
+        filmStorage.delLikes(unlikes);
+        singleFilmStorage.delLikes(unlikes);
+        assertEquals(ids(singleFilmStorage.getPopFilms(20)), ids(filmStorage.getPopFilms(20)));
+    }
+
+    @Test
+    public void shouldMergePopularFilmsWhileLikesChange() throws Exception {
+        // Лайки меняются прямо во время слияния: порядок должен браться из одного снимка числа лайков
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> writer = executor.submit(() -> {
+                Random random = new Random(11);
+                while (!done.get()) {
+                    Film film = filmStorage.getFilmById(1 + random.nextInt(FILMS));
+                    int userId = 1 + random.nextInt(USERS);
+                    if (!filmStorage.addLike(film, userId)) {
+                        filmStorage.delLike(film, userId);
+                    }
+                }
+            });
+            Future<?> reader = executor.submit(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    filmStorage.getPopFilms(FILMS);
+                }
+                return null;
+            });
+            try {
+                reader.get(1, TimeUnit.MINUTES);
+            } finally {
+                done.set(true);
+            }
+            writer.get(1, TimeUnit.MINUTES);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldKeepFriendshipOnShardsOfBothUsers() {
+        UserService userService = new UserServiceImpl(userStorage,
+                new FriendRecommendations(userStorage, new NoOpCacheManager()),
+                new ReadReplicas(filmStorage, userStorage, 0, 1, 0, 1));
+        List<User> users = new ArrayList<>();
+        for (int i = 1; i <= USERS; i++) {
+            users.add(user(i));
+        }
+        userStorage.createUsers(users);
+        ConsistentHashRing ring = new ConsistentHashRing(SHARDS, 64);
+        int userId = 1;
+        int friendId = 2;
+        while (ring.shardFor(friendId) == ring.shardFor(userId)) {
+            friendId++;
+        }
+
+        userService.addFriend(userId, friendId);
+        assertEquals(Set.of(friendId), userNodes.get(ring.shardFor(userId)).getUserById(userId).getFriends());
+        assertEquals(Set.of(userId), userNodes.get(ring.shardFor(friendId)).getUserById(friendId).getFriends());
+
+        List<Friendship> friendships = new ArrayList<>();
+        for (int common = 50; common < 60; common++) {
+            friendships.add(new Friendship(userId, common));
+            friendships.add(new Friendship(friendId, common + 5));
+        }
+        userService.addFriends(friendships);
+        assertEquals(List.of(55, 56, 57, 58, 59), userService.getCommonFriends(userId, friendId).stream()
+                .map(User::getId).collect(Collectors.toList()));
+        assertTrue(userStorage.getUserById(57).getFriends().containsAll(Set.of(userId, friendId)));
+
+        userService.delFriend(userId, friendId);
+        assertFalse(userStorage.getUserById(friendId).getFriends().contains(userId));
+        assertEquals(USERS, userStorage.getUsersCount());
+        assertEquals(List.of(41, 42, 43), userStorage.getUsersPage(40, 3).stream()
+                .map(User::getId).collect(Collectors.toList()));
+    }
+
+    private static List<Film> films() {
+        List<Film> films = new ArrayList<>();
+        for (int i = 1; i <= FILMS; i++) {
+            films.add(Film.builder()
+                    .name("Film " + i + (i % 2 == 0 ? " even" : " odd"))
+                    .description("description " + i)
+                    .duration(90L + i % 30)
+                    .releaseDate(LocalDate.of(1950 + i % 70, 1 + i % 12, 1 + i % 28))
+                    .likes(new HashSet<>())
+                    .build());
+        }
+        return films;
+    }
+
+    private static User user(int number) {
+        return User.builder()
+                .login("user" + number)
+                .name("User " + number)
+                .email("user" + number + "@mail.ru")
+                .birthday(LocalDate.of(1990, 1, 1))
+                .friends(new HashSet<>())
+                .build();
+    }
+}
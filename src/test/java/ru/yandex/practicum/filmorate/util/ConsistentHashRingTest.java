@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConsistentHashRingTest {
+
+    private static final int KEYS = 100_000;
+
+    @Test
+    public void shouldSpreadKeysEvenly() {
+        ConsistentHashRing ring = new ConsistentHashRing(8, 128);
+        int[] counts = new int[8];
+        for (int key = 1; key <= KEYS; key++) {
+            counts[ring.shardFor(key)]++;
+        }
+        for (int count : counts) {
+            assertTrue(Math.abs(count - KEYS / 8) < KEYS / 8 / 5, "Неравномерное распределение: " + count);
+        }
+        assertEquals(ring.shardFor(42), new ConsistentHashRing(8, 128).shardFor(42));
+    }
+
+    @Test
+    public void shouldMoveOnlyKeysOfNewShard() {
+        ConsistentHashRing before = new ConsistentHashRing(4, 128);
+        ConsistentHashRing after = new ConsistentHashRing(5, 128);
+        int moved = 0;
+        for (int key = 1; key <= KEYS; key++) {
+            int shard = after.shardFor(key);
+            if (shard != before.shardFor(key)) {
+                // Ключ может переехать только на новый шард
+                assertEquals(4, shard);
+                moved++;
+            }
+        }
+        assertTrue(moved > KEYS / 5 * 3 / 4 && moved < KEYS / 5 * 5 / 4, "Переехало ключей: " + moved);
+    }
+
+    @Test
+    public void shouldRejectEmptyRing() {
+        assertThrows(IllegalArgumentException.class, () -> new ConsistentHashRing(0, 16));
+        assertThrows(IllegalArgumentException.class, () -> new ConsistentHashRing(4, 0));
+    }
+}
@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongRingBufferTest {
+
+    @Test
+    public void shouldKeepOrderAndRejectWhenFull() {
+        LongRingBuffer buffer = new LongRingBuffer(4);
+        for (long value = 1; value <= 4; value++) {
+            assertTrue(buffer.offer(value));
+        }
+        assertFalse(buffer.offer(5));
+        assertEquals(4, buffer.size());
+
+        long[] batch = new long[3];
+        assertEquals(3, buffer.drainTo(batch));
+        assertArrayEquals(new long[]{1, 2, 3}, batch);
+        // Освободившиеся ячейки используются на следующем круге
+        assertTrue(buffer.offer(5));
+        assertTrue(buffer.offer(6));
+        assertEquals(3, buffer.drainTo(batch));
+        assertArrayEquals(new long[]{4, 5, 6}, batch);
+        assertEquals(0, buffer.drainTo(batch));
+
+        assertThrows(IllegalArgumentException.class, () -> new LongRingBuffer(3));
+    }
+
+    @Test
+    public void shouldNotLoseValuesFromConcurrentProducers() throws Exception {
+        int producers = 4;
+        int perProducer = 20_000;
+        LongRingBuffer buffer = new LongRingBuffer(1024);
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        try {
+            Future<?>[] futures = new Future<?>[producers];
+            for (int producer = 0; producer < producers; producer++) {
+                long base = (long) producer * perProducer;
+                futures[producer] = executor.submit(() -> {
+                    for (long value = base; value < base + perProducer; value++) {
+                        while (!buffer.offer(value)) {
+                            Thread.yield();
+                        }
+                    }
+                });
+            }
+            long[] batch = new long[256];
+            long[] lastByProducer = new long[producers];
+            Arrays.fill(lastByProducer, -1);
+            long received = 0;
+            long sum = 0;
+            while (received < (long) producers * perProducer) {
+                int count = buffer.drainTo(batch);
+                for (int i = 0; i < count; i++) {
+                    int producer = (int) (batch[i] / perProducer);
+                    // Значения одного производителя приходят в порядке добавления
+                    assertTrue(batch[i] > lastByProducer[producer]);
+                    lastByProducer[producer] = batch[i];
+                    sum += batch[i];
+                }
+                received += count;
+            }
+            for (Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+            long total = (long) producers * perProducer;
+            assertEquals(total * (total - 1) / 2, sum);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SortedIntSetTest {
+
+    @Test
+    public void shouldKeepValuesSortedAndUnique() {
+        SortedIntSet set = new SortedIntSet();
+        assertTrue(set.add(5));
+        assertTrue(set.add(1));
+        assertTrue(set.add(3));
+        assertFalse(set.add(3));
+
+        assertEquals(3, set.size());
+        assertArrayEquals(new int[]{1, 3, 5}, set.toIntArray());
+        assertEquals("[1, 3, 5]", set.toString());
+    }
+
+    @Test
+    public void shouldRemoveValues() {
+        SortedIntSet set = new SortedIntSet(List.of(4, 2, 2, 8, 6));
+        assertArrayEquals(new int[]{2, 4, 6, 8}, set.toIntArray());
+
+        assertTrue(set.remove(4));
+        assertFalse(set.remove(4));
+        assertFalse(set.remove((Object) "4"));
+        assertFalse(set.contains(4));
+        assertTrue(set.contains(6));
+        assertArrayEquals(new int[]{2, 6, 8}, set.toIntArray());
+    }
+
+    @Test
+    public void shouldGrowAndShrink() {
+        SortedIntSet set = new SortedIntSet();
+        for (int i = 1000; i > 0; i--) {
+            set.add(i);
+        }
+        assertEquals(1000, set.size());
+        for (int i = 1; i <= 1000; i += 2) {
+            set.remove(i);
+        }
+        assertEquals(500, set.size());
+        int expected = 2;
+        for (int value : set) {
+            assertEquals(expected, value);
+            expected += 2;
+        }
+    }
+
+    @Test
+    public void shouldBeEqualToOtherSets() {
+        SortedIntSet set = new SortedIntSet(Set.of(1, 2, 3));
+        assertEquals(Set.of(1, 2, 3), set);
+        assertEquals(set, Set.of(3, 2, 1));
+        assertEquals(Set.of(1, 2, 3).hashCode(), set.hashCode());
+    }
+
+    @Test
+    public void shouldRemoveThroughIterator() {
+        SortedIntSet set = new SortedIntSet(Set.of(1, 2, 3));
+        Iterator<Integer> iterator = set.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() % 2 == 1) {
+                iterator.remove();
+            }
+        }
+        assertArrayEquals(new int[]{2}, set.toIntArray());
+    }
+
+    @Test
+    public void shouldIntersectSetsOfSimilarSize() {
+        SortedIntSet first = new SortedIntSet(List.of(1, 3, 5, 7, 9, 11));
+        SortedIntSet second = new SortedIntSet(List.of(2, 3, 4, 7, 11, 12));
+
+        assertArrayEquals(new int[]{3, 7, 11}, first.intersect(second));
+        assertArrayEquals(new int[]{3, 7, 11}, second.intersect(first));
+        assertArrayEquals(new int[0], first.intersect(new SortedIntSet()));
+    }
+
+    @Test
+    public void shouldIntersectSkewedSets() {
+        SortedIntSet large = new SortedIntSet();
+        for (int i = 0; i < 100_000; i += 3) {
+            large.add(i);
+        }
+        SortedIntSet small = new SortedIntSet(List.of(-1, 0, 4, 9, 50_002, 99_999, 100_002));
+
+        assertArrayEquals(new int[]{0, 9, 99_999}, small.intersect(large));
+        assertArrayEquals(new int[]{0, 9, 99_999}, large.intersect(small));
+    }
+
+}
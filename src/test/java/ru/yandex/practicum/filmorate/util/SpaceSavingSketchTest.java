@@ -0,0 +1,100 @@
+package ru.yandex.practicum.filmorate.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpaceSavingSketchTest {
+
+    @Test
+    public void shouldCountExactlyWhileCountersAreFree() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(10);
+        for (int id = 1; id <= 5; id++) {
+            for (int i = 0; i < id * 10; i++) {
+                sketch.add(id);
+            }
+        }
+
+        assertEquals(List.of(5, 4, 3, 2, 1), sketch.top(10));
+        assertEquals(List.of(5, 4), sketch.top(2));
+        assertEquals(30, sketch.estimate(3));
+        assertEquals(0, sketch.error(3));
+        assertEquals(0, sketch.estimate(6));
+    }
+
+    @Test
+    public void shouldDecrementAndFreeCounters() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(2);
+        sketch.add(1);
+        sketch.add(1);
+        sketch.add(2);
+        sketch.remove(1);
+        sketch.remove(1);
+        sketch.remove(3);
+
+        assertEquals(List.of(2), sketch.top(10));
+        sketch.add(3);
+        sketch.add(3);
+        assertEquals(List.of(3, 2), sketch.top(10));
+        assertEquals(0, sketch.error(3));
+    }
+
+    @Test
+    public void shouldEvictMinimumAndBoundError() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(2);
+        sketch.add(1);
+        sketch.add(1);
+        sketch.add(1);
+        sketch.add(2);
+        sketch.add(3);
+
+        assertEquals(List.of(1, 3), sketch.top(10));
+        assertEquals(2, sketch.estimate(3));
+        assertEquals(1, sketch.error(3));
+        assertEquals(2, sketch.error(2));
+    }
+
+    @Test
+    public void shouldFindHeavyHittersInSkewedStream() {
+        int capacity = 100;
+        SpaceSavingSketch sketch = new SpaceSavingSketch(capacity);
+        int[] counts = new int[100_000];
+        Random random = new Random(7);
+        int total = 200_000;
+        for (int i = 0; i < total; i++) {
+            // Первые 10 id получают половину событий, остальные распределены равномерно
+            int id = random.nextBoolean() ? random.nextInt(10) : 10 + random.nextInt(counts.length - 10);
+            counts[id]++;
+            sketch.add(id);
+        }
+
+        List<Integer> top = sketch.top(10);
+        for (int id = 0; id < 10; id++) {
+            assertTrue(top.contains(id), "Не найден частый id " + id);
+            long estimate = sketch.estimate(id);
+            assertTrue(estimate >= counts[id]);
+            assertTrue(estimate - counts[id] <= sketch.error(id));
+            assertTrue(sketch.error(id) <= total / capacity);
+        }
+    }
+
+    @Test
+    public void shouldSeedWithNonIncreasingCounts() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(2);
+        sketch.seed(1, 10);
+        sketch.seed(2, 5);
+        sketch.seed(3, 1);
+        sketch.add(2);
+
+        assertEquals(List.of(1, 2), sketch.top(10));
+        assertEquals(6, sketch.estimate(2));
+        SpaceSavingSketch other = new SpaceSavingSketch(3);
+        other.seed(1, 1);
+        assertThrows(IllegalArgumentException.class, () -> other.seed(2, 2));
+    }
+}